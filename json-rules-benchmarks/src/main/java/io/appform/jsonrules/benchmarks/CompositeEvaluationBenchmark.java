@@ -0,0 +1,93 @@
+package io.appform.jsonrules.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.ExpressionEvaluationContext;
+import io.appform.jsonrules.compiler.CompiledRule;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.composite.NotExpression;
+import io.appform.jsonrules.expressions.composite.OrExpression;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+
+/**
+ * Cost of the composite operators alone: every leaf is a composite without children, so nothing but and, or and not
+ * nodes are evaluated. Run with {@code -prof gc}: gc.alloc.rate.norm is expected to be zero bytes per operation for
+ * expressions, and a constant for compiled rules, which allocate their per evaluation state only. ExpressionTest checks
+ * that expressions don't allocate.
+ */
+@Threads(value = 1)
+@Timeout(time = 5)
+@Fork
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 3, time = 5)
+@BenchmarkMode(value = Mode.Throughput)
+public class CompositeEvaluationBenchmark {
+    private static final int DEPTH = 6;
+
+    @org.openjdk.jmh.annotations.State(value = Scope.Benchmark)
+    public static class State {
+        private Expression expression;
+        private CompiledRule compiledRule;
+        private CompiledRule generatedRule;
+        private ExpressionEvaluationContext context;
+
+        public State() {
+            try {
+                expression = tree(DEPTH);
+                compiledRule = expression.compile();
+                generatedRule = expression.compileToBytecode();
+                context = ExpressionEvaluationContext.builder()
+                        .node(new ObjectMapper().createObjectNode())
+                        .options(new HashMap<>())
+                        .build();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        // Alternates operators by level, so that every level both short-circuits and evaluates all children
+        private static Expression tree(int depth) {
+            if (depth == 0) {
+                return AndExpression.builder().build();
+            }
+            switch (depth % 3) {
+                case 0:
+                    return AndExpression.builder()
+                            .child(tree(depth - 1))
+                            .child(NotExpression.builder().child(OrExpression.builder().build()).build())
+                            .child(tree(depth - 1))
+                            .build();
+                case 1:
+                    return OrExpression.builder()
+                            .child(OrExpression.builder().build())
+                            .child(tree(depth - 1))
+                            .child(tree(depth - 1))
+                            .build();
+                default:
+                    return NotExpression.builder()
+                            .child(OrExpression.builder().build())
+                            .child(NotExpression.builder().child(tree(depth - 1)).build())
+                            .build();
+            }
+        }
+    }
+
+    @Benchmark
+    public void evaluate(State state, Blackhole bh) {
+        bh.consume(state.expression.evaluate(state.context));
+    }
+
+    @Benchmark
+    public void evaluateCompiled(State state, Blackhole bh) {
+        bh.consume(state.compiledRule.evaluate(state.context));
+    }
+
+    // Composites become jumps in generated classes, nothing is left to evaluate but the jumps
+    @Benchmark
+    public void evaluateGenerated(State state, Blackhole bh) {
+        bh.consume(state.generatedRule.evaluate(state.context));
+    }
+}
@@ -4,10 +4,23 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.appform.jsonrules.Expression;
 import io.appform.jsonrules.ExpressionEvaluationContext;
+import io.appform.jsonrules.compiler.CompiledRule;
+import io.appform.jsonrules.compiler.EvaluationSession;
 import io.appform.jsonrules.config.JsonRulesConfiguration;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.numeric.BetweenExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanExpression;
+import io.appform.jsonrules.expressions.preoperation.date.DateTimeOperation;
+import io.appform.jsonrules.expressions.preoperation.date.EpochOperation;
+import io.appform.jsonrules.expressions.preoperation.numeric.ModuloOperation;
+import io.appform.jsonrules.expressions.preoperation.numeric.MultiplyOperation;
+import io.appform.jsonrules.expressions.preoperation.string.LengthOperation;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
+import java.io.IOException;
 import java.util.HashMap;
 
 @Threads(value = 5)
@@ -20,29 +33,144 @@ public class ExpressionEvaluationBenchmark {
     @org.openjdk.jmh.annotations.State(value = Scope.Benchmark)
     public static class State {
         private Expression expression;
+        private Expression valuePathExpression;
+        private Expression numericExpression;
+        private Expression computedExpression;
+        private Expression dateWindowExpression;
+        private ExpressionEvaluationContext dateContext;
+        private CompiledRule compiledRule;
+        private CompiledRule generatedRule;
         private ExpressionEvaluationContext context;
+        private ObjectMapper mapper;
+        private byte[] document;
 
         public State() {
             try {
-                ObjectMapper mapper = new ObjectMapper();
+                // Before compiling, so that compiled rules resolve paths in the same way as expressions
+                JsonRulesConfiguration.configure(JsonRulesConfiguration.PerformanceSafetyPreference.SPEED);
+                mapper = new ObjectMapper();
                 expression = mapper.readValue(
                         ExpressionEvaluationBenchmark.class.getResourceAsStream("/expression.json"),
                         Expression.class);
+                compiledRule = expression.compile();
+                generatedRule = expression.compileToBytecode();
+                valuePathExpression = GreaterThanExpression.builder()
+                        .path("$.fees.considerationAmount")
+                        .value("$.fees.totalAmount")
+                        .extractValueFromPath(true)
+                        .build();
+                numericExpression = AndExpression.builder()
+                        .child(GreaterThanExpression.builder()
+                                       .path("$.fees.considerationAmount")
+                                       .value(100)
+                                       .preoperation(new MultiplyOperation(2.5))
+                                       .build())
+                        .child(BetweenExpression.builder()
+                                       .path("$.fees.totalAmount")
+                                       .lowerbound(0)
+                                       .upperBound(1_000_000)
+                                       .preoperation(new MultiplyOperation(100))
+                                       .build())
+                        .build();
+                computedExpression = AndExpression.builder()
+                        .child(GreaterThanExpression.builder()
+                                       .path("$.fees.pricingPlanId")
+                                       .value(16)
+                                       .preoperation(new LengthOperation())
+                                       .build())
+                        .child(EqualsExpression.builder()
+                                       .path("$.fees.considerationAmount")
+                                       .value(1)
+                                       .preoperation(new ModuloOperation(5))
+                                       .build())
+                        .build();
                 JsonNode jsonNode = mapper.readTree(
                         ExpressionEvaluationBenchmark.class.getResourceAsStream("/collection.json"));
+                document = mapper.writeValueAsBytes(jsonNode);
+                dateWindowExpression = AndExpression.builder()
+                        .child(BetweenExpression.builder()
+                                       .path("$.createdAt")
+                                       .lowerbound(6)
+                                       .upperBound(21)
+                                       .includeLowerBound(true)
+                                       .preoperation(new EpochOperation("hour_of_day", "+05:30"))
+                                       .build())
+                        .child(LessThanExpression.builder()
+                                       .path("$.date")
+                                       .value(6)
+                                       .preoperation(new DateTimeOperation("day_of_week", "+05:30", "yyyy-MM-dd HH:mm"))
+                                       .build())
+                        .build();
+                dateContext = ExpressionEvaluationContext.builder()
+                        .node(mapper.readTree("{ \"createdAt\": 1742519148343, \"date\": \"2025-03-21 06:35\" }"))
+                        .options(new HashMap<>())
+                        .build();
                 context = ExpressionEvaluationContext.builder()
                         .node(jsonNode)
                         .options(new HashMap<>())
                         .build();
-                JsonRulesConfiguration.configure(JsonRulesConfiguration.PerformanceSafetyPreference.SPEED);
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
         }
     }
 
+    // Sessions are not thread safe, so there is one per benchmark thread
+    @org.openjdk.jmh.annotations.State(value = Scope.Thread)
+    public static class Session {
+        private final EvaluationSession session = new EvaluationSession();
+    }
+
     @Benchmark
     public void evaluate(State state, Blackhole bh) {
         bh.consume(state.expression.evaluate(state.context));
     }
+
+    @Benchmark
+    public void evaluateCompiled(State state, Blackhole bh) {
+        bh.consume(state.compiledRule.evaluate(state.context));
+    }
+
+    @Benchmark
+    public void evaluateGenerated(State state, Blackhole bh) {
+        bh.consume(state.generatedRule.evaluate(state.context));
+    }
+
+    @Benchmark
+    public void evaluateCompiledInSession(State state, Session session, Blackhole bh) {
+        bh.consume(session.session.evaluate(state.compiledRule, state.context.getNode()));
+    }
+
+    @Benchmark
+    public void parseAndEvaluateCompiled(State state, Blackhole bh) throws IOException {
+        bh.consume(state.compiledRule.evaluate(state.mapper.readTree(state.document)));
+    }
+
+    @Benchmark
+    public void evaluateCompiledStreaming(State state, Blackhole bh) throws IOException {
+        bh.consume(state.compiledRule.evaluate(state.document));
+    }
+
+    @Benchmark
+    public void evaluateValuePathComparison(State state, Blackhole bh) {
+        bh.consume(state.valuePathExpression.evaluate(state.context));
+    }
+
+    // Numeric leaves with numeric preoperations, expected to allocate nothing per evaluation with -prof gc
+    @Benchmark
+    public void evaluateNumericPreoperations(State state, Blackhole bh) {
+        bh.consume(state.numericExpression.evaluate(state.context));
+    }
+
+    // Length compared with a number and modulo compared for equality, without converting results to nodes
+    @Benchmark
+    public void evaluateComputedComparisons(State state, Blackhole bh) {
+        bh.consume(state.computedExpression.evaluate(state.context));
+    }
+
+    // Hour of an epoch and day of a formatted date time, as in date window rules
+    @Benchmark
+    public void evaluateDateWindow(State state, Blackhole bh) {
+        bh.consume(state.dateWindowExpression.evaluate(state.dateContext));
+    }
 }
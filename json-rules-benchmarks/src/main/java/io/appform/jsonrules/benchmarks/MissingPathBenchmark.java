@@ -0,0 +1,77 @@
+package io.appform.jsonrules.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.ExpressionEvaluationContext;
+import io.appform.jsonrules.config.JsonRulesConfiguration;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+
+/**
+ * Leaves over present and missing paths, read through JsonPath and natively. Missing paths evaluate to the default
+ * result without an exception when read natively, and with one exception thrown by JsonPath otherwise.
+ */
+@Threads(value = 1)
+@Timeout(time = 5)
+@Fork
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 3, time = 5)
+@BenchmarkMode(value = Mode.Throughput)
+public class MissingPathBenchmark {
+    @org.openjdk.jmh.annotations.State(value = Scope.Benchmark)
+    public static class State {
+        private Expression presentPath;
+        private Expression missingPath;
+        private Expression nativePresentPath;
+        private Expression nativeMissingPath;
+        private ExpressionEvaluationContext context;
+
+        public State() {
+            try {
+                context = ExpressionEvaluationContext.builder()
+                        .node(new ObjectMapper().readTree(
+                                MissingPathBenchmark.class.getResourceAsStream("/collection.json")))
+                        .options(new HashMap<>())
+                        .build();
+                // Paths are compiled on first evaluation, with the resolution enabled at that time
+                JsonRulesConfiguration.enableNativeResolutionForSimplePaths(false);
+                presentPath = leaf("$.fees.totalAmount");
+                missingPath = leaf("$.fees.discountAmount");
+                JsonRulesConfiguration.enableNativeResolutionForSimplePaths(true);
+                nativePresentPath = leaf("$.fees.totalAmount");
+                nativeMissingPath = leaf("$.fees.discountAmount");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private Expression leaf(String path) {
+            final Expression expression = GreaterThanExpression.builder().path(path).value(10).build();
+            expression.evaluate(context);
+            return expression;
+        }
+    }
+
+    @Benchmark
+    public void evaluatePresentPath(State state, Blackhole bh) {
+        bh.consume(state.presentPath.evaluate(state.context));
+    }
+
+    @Benchmark
+    public void evaluateMissingPath(State state, Blackhole bh) {
+        bh.consume(state.missingPath.evaluate(state.context));
+    }
+
+    @Benchmark
+    public void evaluatePresentPathNatively(State state, Blackhole bh) {
+        bh.consume(state.nativePresentPath.evaluate(state.context));
+    }
+
+    @Benchmark
+    public void evaluateMissingPathNatively(State state, Blackhole bh) {
+        bh.consume(state.nativeMissingPath.evaluate(state.context));
+    }
+}
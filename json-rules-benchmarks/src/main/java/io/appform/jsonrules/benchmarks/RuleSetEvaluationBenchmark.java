@@ -0,0 +1,94 @@
+package io.appform.jsonrules.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.compiler.CompiledRule;
+import io.appform.jsonrules.compiler.RuleSet;
+import io.appform.jsonrules.config.JsonRulesConfiguration;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+@Threads(value = 5)
+@Timeout(time = 5)
+@Fork
+@Warmup(iterations = 10, time = 5)
+@Measurement(iterations = 3, time = 5)
+@BenchmarkMode(value = Mode.Throughput)
+public class RuleSetEvaluationBenchmark {
+    private static final int RULES = 3000;
+
+    @org.openjdk.jmh.annotations.State(value = Scope.Benchmark)
+    public static class State {
+        private final List<CompiledRule> compiledRules = new ArrayList<>();
+        private RuleSet ruleSet;
+        private RuleSet cachedRuleSet;
+        private RuleSet selectiveRuleSet;
+        private JsonNode node;
+
+        public State() {
+            try {
+                JsonRulesConfiguration.configure(JsonRulesConfiguration.PerformanceSafetyPreference.SPEED);
+                ObjectMapper mapper = new ObjectMapper();
+                node = mapper.readTree(RuleSetEvaluationBenchmark.class.getResourceAsStream("/collection.json"));
+                // One rule per customer, all reading a handful of overlapping paths
+                RuleSet.Builder builder = RuleSet.builder();
+                for (int i = 0; i < RULES; i++) {
+                    Expression expression = AndExpression.builder()
+                            .child(EqualsExpression.builder().path("$.fees.state").value("COMPLETED").build())
+                            .child(GreaterThanExpression.builder().path("$.fees.totalAmount").value(i % 40).build())
+                            .child(EqualsExpression.builder().path("$.fees.pricingPlanVersion").value(i % 5).build())
+                            .build();
+                    builder.rule("rule-" + i, expression);
+                    compiledRules.add(expression.compile());
+                }
+                ruleSet = builder.build();
+                cachedRuleSet = builder.resultCache(1000).build();
+                // One rule per plan version, only the rules for the version in the document are evaluated
+                RuleSet.Builder selectiveBuilder = RuleSet.builder();
+                for (int i = 0; i < RULES; i++) {
+                    selectiveBuilder.rule("rule-" + i, AndExpression.builder()
+                            .child(EqualsExpression.builder().path("$.fees.pricingPlanVersion").value(i).build())
+                            .child(GreaterThanExpression.builder().path("$.fees.totalAmount").value(i % 40).build())
+                            .build());
+                }
+                selectiveRuleSet = selectiveBuilder.build();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Benchmark
+    public void evaluateEachRule(State state, Blackhole bh) {
+        final BitSet matches = new BitSet(RULES);
+        for (int i = 0; i < RULES; i++) {
+            if (state.compiledRules.get(i).evaluate(state.node)) {
+                matches.set(i);
+            }
+        }
+        bh.consume(matches);
+    }
+
+    @Benchmark
+    public void evaluateRuleSet(State state, Blackhole bh) {
+        bh.consume(state.ruleSet.evaluate(state.node));
+    }
+
+    @Benchmark
+    public void evaluateCachedRuleSet(State state, Blackhole bh) {
+        bh.consume(state.cachedRuleSet.evaluate(state.node));
+    }
+
+    @Benchmark
+    public void evaluateSelectiveRuleSet(State state, Blackhole bh) {
+        bh.consume(state.selectiveRuleSet.evaluate(state.node));
+    }
+}
@@ -21,6 +21,10 @@ import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.MissingNode;
+import io.appform.jsonrules.compiler.CompiledRule;
+import io.appform.jsonrules.compiler.ExpressionCompiler;
+import io.appform.jsonrules.compiler.ExpressionSimplifier;
+import io.appform.jsonrules.compiler.ReferencedPaths;
 import io.appform.jsonrules.expressions.array.ContainsAllExpression;
 import io.appform.jsonrules.expressions.array.ContainsAnyExpression;
 import io.appform.jsonrules.expressions.array.InExpression;
@@ -40,8 +44,11 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * A base expression
@@ -108,6 +115,68 @@ public abstract class Expression {
                 .debug();
     }
 
+    /**
+     * Rewrites this expression into a simpler one with the same result for every document, see
+     * {@link ExpressionSimplifier}. Rules should be simplified once, before they are compiled.
+     *
+     * @return A simplified expression, sharing unchanged leaves with this expression
+     */
+    public Expression simplify() {
+        return ExpressionSimplifier.simplify(this);
+    }
+
+    /**
+     * Finds the json paths this expression reads from documents, and the parts of documents it needs.
+     * See {@link ReferencedPaths}.
+     */
+    public ReferencedPaths referencedPaths() {
+        return ReferencedPaths.of(this);
+    }
+
+    /**
+     * Compiles this expression for repeated evaluation. The expression must not be modified after this call.
+     *
+     * @return A compiled rule that evaluates exactly like this expression
+     */
+    public CompiledRule compile() {
+        return ExpressionCompiler.compile(this);
+    }
+
+    /**
+     * Compiles this expression into a class generated for it, for rules evaluated often enough to pay for the class.
+     * See {@link ExpressionCompiler#compileToBytecode(Expression)}.
+     *
+     * @return A compiled rule that evaluates exactly like this expression
+     */
+    public CompiledRule compileToBytecode() {
+        return ExpressionCompiler.compileToBytecode(this);
+    }
+
+    /**
+     * Compiles this expression with a cache of its results, keyed by the values it reads from documents.
+     * See {@link ExpressionCompiler#compileWithResultCache(Expression, long)}.
+     *
+     * @param maximumSize Largest number of results kept
+     * @return A compiled rule that evaluates exactly like this expression
+     */
+    public CompiledRule compileWithResultCache(long maximumSize) {
+        return ExpressionCompiler.compileWithResultCache(this, maximumSize);
+    }
+
+    /**
+     * Compiles this expression and evaluates a batch of documents with it in parallel, see
+     * {@link CompiledRule#evaluateAll(List)}. The expression must not be modified during this call.
+     *
+     * @return Positions of the matching documents in the batch
+     */
+    public BitSet evaluateAll(List<? extends JsonNode> nodes) {
+        return compile().evaluateAll(nodes);
+    }
+
+    public BitSet evaluateAll(Stream<? extends JsonNode> nodes) {
+        return compile().evaluateAll(nodes);
+    }
+
     public abstract boolean evaluate(ExpressionEvaluationContext context);
 
     public abstract <T> T accept(ExpressionVisitor<T> visitor, JsonNode node);
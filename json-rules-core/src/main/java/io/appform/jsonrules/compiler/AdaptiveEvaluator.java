@@ -0,0 +1,222 @@
+package io.appform.jsonrules.compiler;
+
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+import io.appform.jsonrules.expressions.composite.CompositeExpression;
+import io.appform.jsonrules.expressions.meta.ExistsExpression;
+import io.appform.jsonrules.expressions.meta.NotExistsExpression;
+import io.appform.jsonrules.expressions.numeric.BetweenExpression;
+import io.appform.jsonrules.expressions.numeric.NumericJsonPathBasedExpression;
+import io.appform.jsonrules.expressions.string.EmptyExpression;
+import io.appform.jsonrules.expressions.string.EndsWithExpression;
+import io.appform.jsonrules.expressions.string.NotEmptyExpression;
+import io.appform.jsonrules.expressions.string.StartsWithExpression;
+import io.appform.jsonrules.expressions.string.StringJsonPathBasedExpression;
+import io.appform.jsonrules.jsonpath.resolvers.SimplePathResolver;
+
+import java.util.Comparator;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Evaluates the children of an and, or or not in the order expected to decide the result at the lowest cost.
+ * <p>
+ * Only children that can't fail on any document are moved, see {@link #neverFails(Expression)}, and only among the
+ * run of such children they belong to. Every other child keeps its declared position, with the same children before
+ * it as in the declared order, so results and failures are exactly those of the declared order.
+ * <p>
+ * Children start out ordered by their static cost. Every {@link #SAMPLE_INTERVAL}th evaluation is timed, recording
+ * the time taken by each child and how often its result decided the outcome (false for and, true for or and not).
+ * Every {@link #REORDER_INTERVAL} timed evaluations, children are sorted by expected cost per decision, so cheap
+ * children that are likely to decide come first. Statistics of a child are halved once it has been timed
+ * {@link #MAX_RUNS} times, so that the order follows changes in the documents, while children that are no longer
+ * reached keep what was learnt about them.
+ */
+final class AdaptiveEvaluator implements Evaluator {
+    static final int SAMPLE_INTERVAL = 16;
+    static final int REORDER_INTERVAL = 64;
+    static final int MAX_RUNS = 1024;
+    // Weight of the static cost estimate, in timed evaluations
+    private static final double PRIOR_WEIGHT = 4;
+    // Rough time taken by one unit of static cost
+    private static final double NANOS_PER_COST = 50;
+
+    private final Evaluator[] children;
+    private final double[] staticCosts;
+    private final boolean[] movable;
+    // Child result that decides the outcome without evaluating the remaining children, and that outcome
+    private final boolean decidingResult;
+    private final boolean decidedOutcome;
+    private final LongSupplier nanoTime;
+    private volatile int[] order;
+    // Statistics of timed evaluations, per child in declared order. Updated without synchronization, lost updates
+    // only make the estimates slightly less accurate.
+    private final long[] nanos;
+    private final long[] runs;
+    private final long[] decisions;
+    private int evaluations;
+    private int timedEvaluations;
+
+    AdaptiveEvaluator(Evaluator[] children,
+                      double[] staticCosts,
+                      boolean[] movable,
+                      boolean decidingResult,
+                      boolean decidedOutcome,
+                      LongSupplier nanoTime) {
+        this.children = children;
+        this.staticCosts = staticCosts;
+        this.movable = movable;
+        this.decidingResult = decidingResult;
+        this.decidedOutcome = decidedOutcome;
+        this.nanoTime = nanoTime;
+        this.nanos = new long[children.length];
+        this.runs = new long[children.length];
+        this.decisions = new long[children.length];
+        this.order = rankedOrder();
+    }
+
+    static AdaptiveEvaluator and(Evaluator[] children, double[] staticCosts, boolean[] movable) {
+        return new AdaptiveEvaluator(children, staticCosts, movable, false, false, System::nanoTime);
+    }
+
+    static AdaptiveEvaluator or(Evaluator[] children, double[] staticCosts, boolean[] movable) {
+        return new AdaptiveEvaluator(children, staticCosts, movable, true, true, System::nanoTime);
+    }
+
+    static AdaptiveEvaluator not(Evaluator[] children, double[] staticCosts, boolean[] movable) {
+        return new AdaptiveEvaluator(children, staticCosts, movable, true, false, System::nanoTime);
+    }
+
+    /**
+     * @return Whether any two children can trade places
+     */
+    static boolean canReorder(boolean[] movable) {
+        for (int i = 1; i < movable.length; i++) {
+            if (movable[i - 1] && movable[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether an expression evaluates without failing on every document. Holds for composites of such expressions,
+     * and for leaves of the types declared by {@link Expression} that read a simple path without a preoperation, and
+     * compare against a literal value in a way that can't fail on any node: checks for existence and emptiness, and
+     * numeric and string comparisons. Other expressions, like equality and collection checks that fail on values of
+     * some types, are never moved.
+     */
+    static boolean neverFails(Expression expression) {
+        if (!SharedSubexpressions.isKnownType(expression)) {
+            return false;
+        }
+        if (expression instanceof CompositeExpression) {
+            final Iterable<Expression> children = ((CompositeExpression) expression).getChildren();
+            if (null != children) {
+                for (Expression child : children) {
+                    if (!neverFails(child)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        if (!(expression instanceof JsonPathBasedExpression)) {
+            return false;
+        }
+        final JsonPathBasedExpression leaf = (JsonPathBasedExpression) expression;
+        if (null != leaf.getPreoperation()
+                || null == leaf.getPath()
+                || !SimplePathResolver.compile(leaf.getPath()).isPresent()) {
+            return false;
+        }
+        if (leaf instanceof ExistsExpression || leaf instanceof NotExistsExpression
+                || leaf instanceof EmptyExpression || leaf instanceof NotEmptyExpression) {
+            return true;
+        }
+        if (leaf instanceof StartsWithExpression || leaf instanceof EndsWithExpression) {
+            return !((StringJsonPathBasedExpression) leaf).isExtractValueFromPath();
+        }
+        if (leaf instanceof NumericJsonPathBasedExpression) {
+            final NumericJsonPathBasedExpression numeric = (NumericJsonPathBasedExpression) leaf;
+            return !numeric.isExtractValueFromPath() && numeric.getValue() instanceof Number;
+        }
+        if (leaf instanceof BetweenExpression) {
+            return null != ((BetweenExpression) leaf).getLowerBound()
+                    && null != ((BetweenExpression) leaf).getUpperBound();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean evaluate(EvaluationState state) {
+        final int[] current = order;
+        return ++evaluations % SAMPLE_INTERVAL == 0
+               ? evaluateTimed(state, current)
+               : evaluate(state, current);
+    }
+
+    private boolean evaluate(EvaluationState state, int[] current) {
+        for (int child : current) {
+            if (children[child].evaluate(state) == decidingResult) {
+                return decidedOutcome;
+            }
+        }
+        return !decidedOutcome;
+    }
+
+    private boolean evaluateTimed(EvaluationState state, int[] current) {
+        boolean outcome = !decidedOutcome;
+        for (int child : current) {
+            final long start = nanoTime.getAsLong();
+            final boolean result = children[child].evaluate(state);
+            nanos[child] += nanoTime.getAsLong() - start;
+            runs[child]++;
+            if (result == decidingResult) {
+                decisions[child]++;
+                outcome = decidedOutcome;
+                break;
+            }
+        }
+        if (++timedEvaluations % REORDER_INTERVAL == 0) {
+            order = rankedOrder();
+        }
+        return outcome;
+    }
+
+    /**
+     * Declared order, with every run of movable children sorted by expected cost per decision
+     */
+    int[] rankedOrder() {
+        final double[] ranks = new double[children.length];
+        for (int i = 0; i < children.length; i++) {
+            final double weight = runs[i] + PRIOR_WEIGHT;
+            final double cost = (nanos[i] + PRIOR_WEIGHT * staticCosts[i] * NANOS_PER_COST) / weight;
+            final double decisionRate = (decisions[i] + PRIOR_WEIGHT / 2) / weight;
+            ranks[i] = cost / decisionRate;
+            if (runs[i] >= MAX_RUNS) {
+                nanos[i] /= 2;
+                runs[i] /= 2;
+                decisions[i] /= 2;
+            }
+        }
+        final int[] ranked = IntStream.range(0, children.length).toArray();
+        int start = 0;
+        while (start < ranked.length) {
+            int end = start + 1;
+            if (movable[start]) {
+                while (end < ranked.length && movable[end]) {
+                    end++;
+                }
+                final int[] run = IntStream.range(start, end)
+                        .boxed()
+                        .sorted(Comparator.comparingDouble(child -> ranks[child]))
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+                System.arraycopy(run, 0, ranked, start, run.length);
+            }
+            start = end;
+        }
+        return ranked;
+    }
+}
@@ -0,0 +1,22 @@
+package io.appform.jsonrules.compiler;
+
+/**
+ * True if all children are true, stops at the first false child
+ */
+final class AndEvaluator implements Evaluator {
+    private final Evaluator[] children;
+
+    AndEvaluator(Evaluator[] children) {
+        this.children = children;
+    }
+
+    @Override
+    public boolean evaluate(EvaluationState state) {
+        for (Evaluator child : children) {
+            if (!child.evaluate(state)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,158 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.appform.jsonrules.OptionKeys;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates a batch of documents in parallel on a {@link ForkJoinPool}.
+ * <p>
+ * Documents are read in order by the calling thread and split into chunks of {@link #CHUNK_SIZE} documents, each
+ * evaluated by one task with its own {@link EvaluationSession}, either a document or a column at a time. Only a few
+ * chunks per worker are in flight at any time, so batches read from a stream don't need to fit in memory. Each chunk
+ * records its matches in whole words, which are copied into the result as chunks complete, so no state is shared
+ * between tasks.
+ * <p>
+ * Results have one bit set per matching document, at the position of the document in the batch, for each output:
+ * a compiled rule has one output, a rule set has one per rule.
+ */
+final class BatchEvaluation {
+    // Multiple of the 64 documents recorded per word
+    static final int CHUNK_SIZE = 1024;
+    private static final int WORDS_PER_CHUNK = CHUNK_SIZE / Long.SIZE;
+    private static final int PENDING_CHUNKS_PER_WORKER = 4;
+
+    /**
+     * Evaluates the documents of a chunk, setting the bits of the matching documents in the words of every output
+     */
+    @FunctionalInterface
+    interface ChunkEvaluator {
+        void evaluate(EvaluationSession session, JsonNode[] documents, int size, Matches matches);
+    }
+
+    /**
+     * Evaluates one document, at the given position in its chunk
+     */
+    @FunctionalInterface
+    interface DocumentEvaluator {
+        void evaluate(EvaluationSession session, JsonNode node, int document, Matches matches);
+    }
+
+    private final int outputs;
+    private final Map<OptionKeys, Object> options;
+    private final ForkJoinPool pool;
+    private final ChunkEvaluator evaluator;
+
+    BatchEvaluation(int outputs, Map<OptionKeys, Object> options, ForkJoinPool pool, ChunkEvaluator evaluator) {
+        if (null == pool) {
+            throw new IllegalArgumentException("Fork join pool is required");
+        }
+        this.outputs = outputs;
+        this.options = options;
+        this.pool = pool;
+        this.evaluator = evaluator;
+    }
+
+    static ChunkEvaluator byDocument(DocumentEvaluator evaluator) {
+        return (session, documents, size, matches) -> {
+            for (int document = 0; document < size; document++) {
+                evaluator.evaluate(session, documents[document], document, matches);
+            }
+        };
+    }
+
+    BitSet[] evaluate(Iterator<? extends JsonNode> documents) {
+        final long[][] words = new long[outputs][];
+        final Deque<ForkJoinTask<long[][]>> pending = new ArrayDeque<>();
+        final int maxPending = Math.max(2, pool.getParallelism() * PENDING_CHUNKS_PER_WORKER);
+        int chunks = 0;
+        try {
+            while (documents.hasNext()) {
+                final JsonNode[] chunk = new JsonNode[CHUNK_SIZE];
+                int size = 0;
+                while (size < CHUNK_SIZE && documents.hasNext()) {
+                    chunk[size++] = documents.next();
+                }
+                pending.add(pool.submit(new ChunkTask(chunk, size)));
+                if (pending.size() >= maxPending) {
+                    copy(pending.poll().join(), words, chunks++);
+                }
+            }
+            while (!pending.isEmpty()) {
+                copy(pending.poll().join(), words, chunks++);
+            }
+        } catch (RuntimeException | Error e) {
+            pending.forEach(task -> task.cancel(false));
+            throw e;
+        }
+        final BitSet[] matches = new BitSet[outputs];
+        for (int output = 0; output < outputs; output++) {
+            matches[output] = null == words[output] ? new BitSet() : BitSet.valueOf(words[output]);
+        }
+        return matches;
+    }
+
+    private static void copy(long[][] chunkWords, long[][] words, int chunk) {
+        final int offset = chunk * WORDS_PER_CHUNK;
+        for (int output = 0; output < chunkWords.length; output++) {
+            if (null == chunkWords[output]) {
+                continue;
+            }
+            if (null == words[output]) {
+                words[output] = new long[Math.max(offset + WORDS_PER_CHUNK, 2 * WORDS_PER_CHUNK)];
+            } else if (words[output].length < offset + WORDS_PER_CHUNK) {
+                words[output] = Arrays.copyOf(words[output], Math.max(offset + WORDS_PER_CHUNK,
+                                                                      2 * words[output].length));
+            }
+            System.arraycopy(chunkWords[output], 0, words[output], offset, WORDS_PER_CHUNK);
+        }
+    }
+
+    /**
+     * Matches of the documents of one chunk, words of an output are allocated on its first match
+     */
+    static final class Matches {
+        private final long[][] words;
+
+        private Matches(int outputs) {
+            this.words = new long[outputs][];
+        }
+
+        void set(int output, int document) {
+            words(output)[document >>> 6] |= 1L << document;
+        }
+
+        long[] words(int output) {
+            if (null == words[output]) {
+                words[output] = new long[WORDS_PER_CHUNK];
+            }
+            return words[output];
+        }
+    }
+
+    private final class ChunkTask extends RecursiveTask<long[][]> {
+        private final JsonNode[] documents;
+        private final int size;
+
+        private ChunkTask(JsonNode[] documents, int size) {
+            this.documents = documents;
+            this.size = size;
+        }
+
+        @Override
+        protected long[][] compute() {
+            final Matches matches = new Matches(outputs);
+            evaluator.evaluate(new EvaluationSession(options), documents, size, matches);
+            return matches.words;
+        }
+    }
+}
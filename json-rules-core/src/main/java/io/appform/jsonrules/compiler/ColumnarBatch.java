@@ -0,0 +1,173 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import io.appform.jsonrules.ExpressionEvaluationContext;
+import io.appform.jsonrules.OptionKeys;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of documents with the values of the paths read by a rule projected into columns, one per path.
+ * <p>
+ * Every value is classified by the kind of node it is. Numbers are kept as primitives and text is dictionary
+ * encoded, so that leaves can compare them without touching the nodes. Values are kept as read as well, for leaves
+ * that evaluate some kinds of values one document at a time.
+ */
+final class ColumnarBatch {
+    static final byte MISSING = 0;
+    // Java null or a missing node, both evaluated as a missing node
+    static final byte NULL_VALUE = 1;
+    static final byte NULL_NODE = 2;
+    static final byte TRUE = 3;
+    static final byte FALSE = 4;
+    static final byte INTEGRAL = 5;
+    static final byte FLOATING_POINT = 6;
+    static final byte TEXT = 7;
+    // Containers and anything else that is not a json node
+    static final byte OTHER = 8;
+
+    final int size;
+    final int words;
+    private final JsonNode[] documents;
+    private final PathTable paths;
+    private final EvaluationState state;
+    private final ExpressionEvaluationContext context;
+    private final Column[] columns;
+    // Results of leaves for values evaluated once per batch, see ColumnarLeafEvaluator
+    private final byte[][] memos;
+
+    ColumnarBatch(JsonNode[] documents,
+                  int size,
+                  Map<OptionKeys, Object> options,
+                  PathTable paths,
+                  int leaves,
+                  EvaluationState state) {
+        this.size = size;
+        this.words = (size + Long.SIZE - 1) / Long.SIZE;
+        this.documents = documents;
+        this.paths = paths;
+        this.state = state;
+        this.context = ExpressionEvaluationContext.builder().options(options).build();
+        this.columns = new Column[paths.size()];
+        this.memos = new byte[leaves][];
+    }
+
+    /**
+     * Column of a path, with the values of the selected rows read. Values are read on first use, so paths are only
+     * read for the documents that reach a leaf reading them, as when evaluating a document at a time.
+     */
+    Column column(int slot, long[] selection) {
+        Column column = columns[slot];
+        if (null == column) {
+            column = new Column(size);
+            columns[slot] = column;
+        }
+        for (int word = 0; word < words; word++) {
+            long rows = selection[word] & ~column.read[word];
+            column.read[word] |= rows;
+            while (rows != 0) {
+                final int row = word * Long.SIZE + Long.numberOfTrailingZeros(rows);
+                rows &= rows - 1;
+                state.reset(context(row), paths);
+                try {
+                    column.set(row, state.read(slot));
+                } finally {
+                    state.clear();
+                }
+            }
+        }
+        return column;
+    }
+
+    byte[] memo(int leaf, int length) {
+        byte[] memo = memos[leaf];
+        if (null == memo) {
+            memo = new byte[length];
+            memos[leaf] = memo;
+        }
+        return memo;
+    }
+
+    /**
+     * @return Context for evaluating the document of a row, reused for all rows
+     */
+    ExpressionEvaluationContext context(int row) {
+        context.setNode(null == documents[row] ? MissingNode.getInstance() : documents[row]);
+        return context;
+    }
+
+    static final class Column {
+        final byte[] kinds;
+        final long[] longs;
+        final double[] doubles;
+        final int[] codes;
+        final Object[] values;
+        // Rows whose values have been read
+        private final long[] read;
+        final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Integer> dictionaryCodes = new HashMap<>();
+
+        private Column(int size) {
+            this.kinds = new byte[size];
+            this.longs = new long[size];
+            this.doubles = new double[size];
+            this.codes = new int[size];
+            this.values = new Object[size];
+            this.read = new long[(size + Long.SIZE - 1) / Long.SIZE];
+        }
+
+        private void set(int row, Object value) {
+            values[row] = value;
+            kinds[row] = kind(value);
+            switch (kinds[row]) {
+                case INTEGRAL:
+                    longs[row] = ((JsonNode) value).asLong();
+                    break;
+                case FLOATING_POINT:
+                    doubles[row] = ((JsonNode) value).asDouble();
+                    break;
+                case TEXT:
+                    codes[row] = dictionaryCodes.computeIfAbsent(((JsonNode) value).asText(), text -> {
+                        dictionary.add(text);
+                        return dictionary.size() - 1;
+                    });
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private static byte kind(Object value) {
+            if (value == PathTable.MISSING) {
+                return MISSING;
+            }
+            if (null == value) {
+                return NULL_VALUE;
+            }
+            if (!(value instanceof JsonNode)) {
+                return OTHER;
+            }
+            final JsonNode node = (JsonNode) value;
+            if (node.isMissingNode()) {
+                return NULL_VALUE;
+            }
+            if (node.isNull()) {
+                return NULL_NODE;
+            }
+            if (node.isBoolean()) {
+                return node.booleanValue() ? TRUE : FALSE;
+            }
+            if (node.isIntegralNumber()) {
+                return INTEGRAL;
+            }
+            if (node.isFloatingPointNumber()) {
+                return FLOATING_POINT;
+            }
+            return node.isTextual() ? TEXT : OTHER;
+        }
+    }
+}
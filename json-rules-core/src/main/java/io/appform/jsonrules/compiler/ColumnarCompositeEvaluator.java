@@ -0,0 +1,56 @@
+package io.appform.jsonrules.compiler;
+
+/**
+ * Evaluates an and, or or not over a batch. Each child is evaluated only on the rows that earlier children left
+ * undecided, and results are combined a word of 64 rows at a time.
+ */
+final class ColumnarCompositeEvaluator implements ColumnarEvaluator {
+    // Or without children
+    static final ColumnarCompositeEvaluator FALSE = or(new ColumnarEvaluator[0]);
+
+    private final ColumnarEvaluator[] children;
+    // Child result that decides the outcome of a row without evaluating the remaining children, and that outcome
+    private final boolean decidingResult;
+    private final boolean decidedOutcome;
+
+    private ColumnarCompositeEvaluator(ColumnarEvaluator[] children, boolean decidingResult, boolean decidedOutcome) {
+        this.children = children;
+        this.decidingResult = decidingResult;
+        this.decidedOutcome = decidedOutcome;
+    }
+
+    static ColumnarCompositeEvaluator and(ColumnarEvaluator[] children) {
+        return new ColumnarCompositeEvaluator(children, false, false);
+    }
+
+    static ColumnarCompositeEvaluator or(ColumnarEvaluator[] children) {
+        return new ColumnarCompositeEvaluator(children, true, true);
+    }
+
+    static ColumnarCompositeEvaluator not(ColumnarEvaluator[] children) {
+        return new ColumnarCompositeEvaluator(children, true, false);
+    }
+
+    @Override
+    public void evaluate(ColumnarBatch batch, long[] selection, long[] result) {
+        final long[] undecided = selection.clone();
+        final long[] decided = new long[batch.words];
+        final long[] childResult = new long[batch.words];
+        for (ColumnarEvaluator child : children) {
+            child.evaluate(batch, undecided, childResult);
+            long remaining = 0;
+            for (int word = 0; word < batch.words; word++) {
+                final long decisions = decidingResult
+                                       ? childResult[word]
+                                       : undecided[word] & ~childResult[word];
+                decided[word] |= decisions;
+                undecided[word] &= ~decisions;
+                remaining |= undecided[word];
+            }
+            if (remaining == 0) {
+                break;
+            }
+        }
+        System.arraycopy(decidedOutcome ? decided : undecided, 0, result, 0, batch.words);
+    }
+}
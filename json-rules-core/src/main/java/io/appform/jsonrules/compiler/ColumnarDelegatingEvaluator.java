@@ -0,0 +1,30 @@
+package io.appform.jsonrules.compiler;
+
+import io.appform.jsonrules.Expression;
+
+/**
+ * Evaluates expressions the compiler doesn't know about one row at a time
+ */
+final class ColumnarDelegatingEvaluator implements ColumnarEvaluator {
+    private final Expression expression;
+
+    ColumnarDelegatingEvaluator(Expression expression) {
+        this.expression = expression;
+    }
+
+    @Override
+    public void evaluate(ColumnarBatch batch, long[] selection, long[] result) {
+        for (int word = 0; word < batch.words; word++) {
+            long rows = selection[word];
+            long matches = 0;
+            while (rows != 0) {
+                final int bit = Long.numberOfTrailingZeros(rows);
+                rows &= rows - 1;
+                if (expression.evaluate(batch.context(word * Long.SIZE + bit))) {
+                    matches |= 1L << bit;
+                }
+            }
+            result[word] = matches;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package io.appform.jsonrules.compiler;
+
+/**
+ * A node of the evaluator tree of a {@link ColumnarRule}, evaluating a whole {@link ColumnarBatch} at a time
+ */
+interface ColumnarEvaluator {
+    /**
+     * Evaluates the rows set in the selection, one bit per row, and sets the bits of the rows evaluating to true in
+     * the result. Bits of rows outside the selection are cleared. Rows outside the selection must not be evaluated,
+     * as short-circuited rows are not evaluated by row at a time evaluation either.
+     */
+    void evaluate(ColumnarBatch batch, long[] selection, long[] result);
+}
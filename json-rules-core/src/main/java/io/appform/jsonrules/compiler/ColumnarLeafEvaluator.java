@@ -0,0 +1,266 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.NumericNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.collect.ImmutableSet;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+import io.appform.jsonrules.expressions.array.ContainsAllExpression;
+import io.appform.jsonrules.expressions.array.ContainsAnyExpression;
+import io.appform.jsonrules.expressions.array.InExpression;
+import io.appform.jsonrules.expressions.array.NotInExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.equality.NotEqualsExpression;
+import io.appform.jsonrules.expressions.meta.ExistsExpression;
+import io.appform.jsonrules.expressions.meta.NotExistsExpression;
+import io.appform.jsonrules.expressions.numeric.BetweenExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanExpression;
+import io.appform.jsonrules.expressions.string.EmptyExpression;
+import io.appform.jsonrules.expressions.string.EndsWithExpression;
+import io.appform.jsonrules.expressions.string.MatchesExpression;
+import io.appform.jsonrules.expressions.string.NotEmptyExpression;
+import io.appform.jsonrules.expressions.string.StartsWithExpression;
+
+import java.util.Set;
+
+/**
+ * Evaluates a {@link JsonPathBasedExpression} over the column of its path.
+ * <p>
+ * Missing paths evaluate to the default result. Numbers are compared as primitives by comparisons against literal
+ * numbers. Leaves whose result only depends on the value at their path evaluate text, booleans and nulls once per
+ * distinct value in the batch. Everything else is handed over to the expression one row at a time, exactly like
+ * {@link LeafEvaluator} does.
+ */
+final class ColumnarLeafEvaluator implements ColumnarEvaluator {
+    // Built in leaves that only read the value at their path when they have no value path and no preoperation
+    private static final Set<Class<?>> VALUE_ONLY_LEAVES = ImmutableSet.of(
+            EqualsExpression.class, NotEqualsExpression.class,
+            GreaterThanExpression.class, GreaterThanEqualsExpression.class,
+            LessThanExpression.class, LessThanEqualsExpression.class, BetweenExpression.class,
+            InExpression.class, NotInExpression.class, ContainsAnyExpression.class, ContainsAllExpression.class,
+            ExistsExpression.class, NotExistsExpression.class,
+            EmptyExpression.class, NotEmptyExpression.class,
+            StartsWithExpression.class, EndsWithExpression.class, MatchesExpression.class);
+    // Memoized results, by kind of value, followed by text values by dictionary code
+    private static final int TEXT_MEMO = 4;
+    private static final byte UNKNOWN = 0;
+    private static final byte MATCHES = 1;
+    private static final byte DOESNT_MATCH = 2;
+
+    private final JsonPathBasedExpression expression;
+    private final int slot;
+    private final int leaf;
+    private final boolean defaultResult;
+    private final boolean valueOnly;
+    // Null when numbers are evaluated by the expression
+    private final NumberTest numberTest;
+
+    ColumnarLeafEvaluator(JsonPathBasedExpression expression, int slot, int leaf) {
+        this.expression = expression;
+        this.slot = slot;
+        this.leaf = leaf;
+        this.defaultResult = expression.isDefaultResult();
+        this.valueOnly = VALUE_ONLY_LEAVES.contains(expression.getClass())
+                && null == expression.getPreoperation()
+                && !expression.accept(ValuePathVisitor.INSTANCE, null).isPresent();
+        this.numberTest = valueOnly ? NumberTest.of(expression) : null;
+    }
+
+    @Override
+    public void evaluate(ColumnarBatch batch, long[] selection, long[] result) {
+        final ColumnarBatch.Column column = batch.column(slot, selection);
+        final byte[] memo = valueOnly ? batch.memo(leaf, TEXT_MEMO + column.dictionary.size()) : null;
+        for (int word = 0; word < batch.words; word++) {
+            long rows = selection[word];
+            long matches = 0;
+            while (rows != 0) {
+                final int bit = Long.numberOfTrailingZeros(rows);
+                rows &= rows - 1;
+                if (matches(batch, column, memo, word * Long.SIZE + bit)) {
+                    matches |= 1L << bit;
+                }
+            }
+            result[word] = matches;
+        }
+    }
+
+    private boolean matches(ColumnarBatch batch, ColumnarBatch.Column column, byte[] memo, int row) {
+        switch (column.kinds[row]) {
+            case ColumnarBatch.MISSING:
+                return defaultResult;
+            case ColumnarBatch.INTEGRAL:
+                if (null != numberTest) {
+                    return numberTest.test(column.longs[row]);
+                }
+                break;
+            case ColumnarBatch.FLOATING_POINT:
+                if (null != numberTest) {
+                    return numberTest.test(column.doubles[row]);
+                }
+                break;
+            case ColumnarBatch.NULL_VALUE:
+                return null != memo
+                       ? memoized(batch, memo, 0, MissingNode.getInstance(), row)
+                       : byRow(batch, column, row);
+            case ColumnarBatch.NULL_NODE:
+                return null != memo ? memoized(batch, memo, 1, NullNode.getInstance(), row) : byRow(batch, column, row);
+            case ColumnarBatch.TRUE:
+                return null != memo ? memoized(batch, memo, 2, BooleanNode.TRUE, row) : byRow(batch, column, row);
+            case ColumnarBatch.FALSE:
+                return null != memo ? memoized(batch, memo, 3, BooleanNode.FALSE, row) : byRow(batch, column, row);
+            case ColumnarBatch.TEXT:
+                if (null != memo) {
+                    final int code = column.codes[row];
+                    final int index = TEXT_MEMO + code;
+                    return memo[index] != UNKNOWN
+                           ? memo[index] == MATCHES
+                           : memoized(batch, memo, index, TextNode.valueOf(column.dictionary.get(code)), row);
+                }
+                break;
+            default:
+                break;
+        }
+        return byRow(batch, column, row);
+    }
+
+    private boolean memoized(ColumnarBatch batch, byte[] memo, int index, JsonNode value, int row) {
+        if (memo[index] == UNKNOWN) {
+            memo[index] = expression.evaluateResolved(batch.context(row), value) ? MATCHES : DOESNT_MATCH;
+        }
+        return memo[index] == MATCHES;
+    }
+
+    private boolean byRow(ColumnarBatch batch, ColumnarBatch.Column column, int row) {
+        return expression.evaluateResolved(batch.context(row), column.values[row]);
+    }
+
+    /**
+     * Primitive form of comparisons of numbers against literal numbers, the same as the comparison of the expression
+     */
+    private abstract static class NumberTest {
+        abstract boolean test(long value);
+
+        abstract boolean test(double value);
+
+        // Null for expressions whose comparison of numbers is not known, or would fail
+        static NumberTest of(JsonPathBasedExpression expression) {
+            if (expression instanceof GreaterThanExpression) {
+                return comparison(((GreaterThanExpression) expression).getValue(), 1, 1);
+            }
+            if (expression instanceof GreaterThanEqualsExpression) {
+                return comparison(((GreaterThanEqualsExpression) expression).getValue(), 0, 1);
+            }
+            if (expression instanceof LessThanExpression) {
+                return comparison(((LessThanExpression) expression).getValue(), -1, -1);
+            }
+            if (expression instanceof LessThanEqualsExpression) {
+                return comparison(((LessThanEqualsExpression) expression).getValue(), -1, 0);
+            }
+            if (expression instanceof EqualsExpression) {
+                return comparison(toNumber(((EqualsExpression) expression).getValue()), 0, 0);
+            }
+            if (expression instanceof NotEqualsExpression) {
+                final Object value = ((NotEqualsExpression) expression).getValue();
+                return null == value ? new Constant(true) : negate(comparison(toNumber(value), 0, 0));
+            }
+            if (expression instanceof BetweenExpression) {
+                return between((BetweenExpression) expression);
+            }
+            return null;
+        }
+
+        // Matches comparison results from min to max
+        private static NumberTest comparison(Object literal, int min, int max) {
+            if (!(literal instanceof Number)) {
+                return null;
+            }
+            final long longValue = ((Number) literal).longValue();
+            final double doubleValue = ((Number) literal).doubleValue();
+            return new NumberTest() {
+                @Override
+                boolean test(long value) {
+                    final int result = Long.compare(value, longValue);
+                    return result >= min && result <= max;
+                }
+
+                @Override
+                boolean test(double value) {
+                    final int result = Double.compare(value, doubleValue);
+                    return result >= min && result <= max;
+                }
+            };
+        }
+
+        private static NumberTest between(BetweenExpression expression) {
+            final Number lower = expression.getLowerBound();
+            final Number upper = expression.getUpperBound();
+            if (null == lower || null == upper) {
+                return null;
+            }
+            final boolean includeLower = expression.isIncludeLowerBound();
+            final boolean includeUpper = expression.isIncludeUpperBound();
+            final long lowerLong = lower.longValue();
+            final long upperLong = upper.longValue();
+            final double lowerDouble = lower.doubleValue();
+            final double upperDouble = upper.doubleValue();
+            return new NumberTest() {
+                @Override
+                boolean test(long value) {
+                    return (includeLower ? value >= lowerLong : value > lowerLong)
+                            && (includeUpper ? value <= upperLong : value < upperLong);
+                }
+
+                @Override
+                boolean test(double value) {
+                    return (includeLower ? value >= lowerDouble : value > lowerDouble)
+                            && (includeUpper ? value <= upperDouble : value < upperDouble);
+                }
+            };
+        }
+
+        private static NumberTest negate(NumberTest test) {
+            if (null == test) {
+                return null;
+            }
+            return new NumberTest() {
+                @Override
+                boolean test(long value) {
+                    return !test.test(value);
+                }
+
+                @Override
+                boolean test(double value) {
+                    return !test.test(value);
+                }
+            };
+        }
+
+        private static Object toNumber(Object value) {
+            return value instanceof NumericNode ? ((NumericNode) value).numberValue() : value;
+        }
+
+        private static final class Constant extends NumberTest {
+            private final boolean result;
+
+            private Constant(boolean result) {
+                this.result = result;
+            }
+
+            @Override
+            boolean test(long value) {
+                return result;
+            }
+
+            @Override
+            boolean test(double value) {
+                return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.appform.jsonrules.OptionKeys;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+
+import java.util.Map;
+
+/**
+ * Evaluates a {@link CompiledRule} over a batch of documents a column at a time instead of a document at a time.
+ * <p>
+ * The paths read by the rule are projected into the columns of a {@link ColumnarBatch} as leaves need them. Leaves
+ * are evaluated over their column for the selection of rows that reach them, producing one bit per row, and and, or
+ * and not combine the bits of their children a word at a time. Children are evaluated in declared order and only on
+ * rows left undecided by the children before them, so every row evaluates the same leaves as it would on its own.
+ */
+final class ColumnarRule {
+    private final PathTable paths;
+    private final ColumnarEvaluator evaluator;
+    private final int leaves;
+
+    private ColumnarRule(PathTable paths, ColumnarEvaluator evaluator, int leaves) {
+        this.paths = paths;
+        this.evaluator = evaluator;
+        this.leaves = leaves;
+    }
+
+    /**
+     * @return Words with one bit per document, set for the matching ones
+     */
+    long[] evaluate(JsonNode[] documents, int size, Map<OptionKeys, Object> options, EvaluationState state) {
+        final ColumnarBatch batch = new ColumnarBatch(documents, size, options, paths, leaves, state);
+        final long[] selection = new long[batch.words];
+        for (int row = 0; row < size; row++) {
+            selection[row >>> 6] |= 1L << row;
+        }
+        final long[] matches = new long[batch.words];
+        evaluator.evaluate(batch, selection, matches);
+        return matches;
+    }
+
+    static final class Builder {
+        private int leaves;
+
+        ColumnarEvaluator leaf(JsonPathBasedExpression expression, int slot) {
+            return new ColumnarLeafEvaluator(expression, slot, leaves++);
+        }
+
+        ColumnarRule build(PathTable paths, ColumnarEvaluator evaluator) {
+            return new ColumnarRule(paths, evaluator, leaves);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.ExpressionEvaluationContext;
+import io.appform.jsonrules.OptionKeys;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * An {@link Expression} compiled into an evaluator tree with all json paths resolved upfront.
+ * Every distinct path, and every shared prefix of simple paths, is read from the document at most once per
+ * evaluation.
+ * Build one using {@link Expression#compile()} and reuse it for all documents. Evaluate through an
+ * {@link EvaluationSession} to reuse the per evaluation state as well, or evaluate batches of documents in parallel
+ * with {@code evaluateAll}.
+ * <p>
+ * A compiled rule is immutable and thread safe as long as the source expression is not modified after compilation.
+ */
+public final class CompiledRule {
+    @Getter
+    private final Expression expression;
+    private final PathTable paths;
+    @Getter(AccessLevel.PACKAGE)
+    private final DocumentProjection projection;
+    private final Evaluator evaluator;
+    // Null unless columnar batch evaluation was enabled when compiling
+    private final ColumnarRule columnar;
+    // Null unless compiled with a result cache, and for rules that can't be cached
+    private final ResultCache<Boolean> cache;
+
+    CompiledRule(Expression expression,
+                 PathTable paths,
+                 DocumentProjection projection,
+                 Evaluator evaluator,
+                 ColumnarRule columnar,
+                 ResultCache<Boolean> cache) {
+        this.expression = expression;
+        this.paths = paths;
+        this.projection = projection;
+        this.evaluator = evaluator;
+        this.columnar = columnar;
+        this.cache = cache;
+    }
+
+    public boolean evaluate(JsonNode node) {
+        return evaluate(node, Collections.emptyMap());
+    }
+
+    public boolean evaluate(JsonNode node, Map<OptionKeys, Object> options) {
+        return evaluate(ExpressionEvaluationContext.builder()
+                .node(null == node ? MissingNode.getInstance() : node)
+                .options(options)
+                .build());
+    }
+
+    /**
+     * Evaluates a serialized json document. Only the parts of the document the rule reads are parsed into nodes,
+     * the rest is skipped while parsing. Results are the same as evaluating the document read into a tree, including
+     * for documents with duplicate fields, where the last one wins.
+     *
+     * @param document Serialized json document
+     * @return Result of the evaluation
+     * @throws IOException If the document can't be parsed
+     */
+    public boolean evaluate(byte[] document) throws IOException {
+        return evaluate(document, Collections.emptyMap());
+    }
+
+    public boolean evaluate(byte[] document, Map<OptionKeys, Object> options) throws IOException {
+        return evaluate(projection.read(document), options);
+    }
+
+    /**
+     * Same as {@link #evaluate(byte[])}, for documents read from a stream. The stream is closed after reading.
+     */
+    public boolean evaluate(InputStream document) throws IOException {
+        return evaluate(document, Collections.emptyMap());
+    }
+
+    public boolean evaluate(InputStream document, Map<OptionKeys, Object> options) throws IOException {
+        return evaluate(projection.read(document), options);
+    }
+
+    public boolean evaluate(ExpressionEvaluationContext context) {
+        return evaluate(new EvaluationState(context, paths));
+    }
+
+    /**
+     * @return Statistics of the result cache, if the rule was compiled with one and can be cached
+     */
+    public Optional<ResultCacheStatistics> getResultCacheStatistics() {
+        return null == cache ? Optional.empty() : Optional.of(cache.stats());
+    }
+
+    /**
+     * Evaluates a batch of documents in parallel on the common {@link ForkJoinPool}. With columnar batch evaluation
+     * enabled, see {@link io.appform.jsonrules.config.JsonRulesConfiguration#enableColumnarBatchEvaluation(boolean)},
+     * chunks of documents are evaluated a column at a time: the paths read by the rule are projected into columns of
+     * primitives and dictionary encoded text, and every leaf is evaluated over its column for all the documents of the
+     * chunk that reach it. Results are the same as evaluating documents one at a time.
+     *
+     * @param nodes Documents to evaluate
+     * @return Positions of the matching documents in the batch
+     */
+    public BitSet evaluateAll(List<? extends JsonNode> nodes) {
+        return evaluateAll(nodes, ForkJoinPool.commonPool());
+    }
+
+    public BitSet evaluateAll(List<? extends JsonNode> nodes, ForkJoinPool pool) {
+        return evaluateAll(nodes, Collections.emptyMap(), pool);
+    }
+
+    public BitSet evaluateAll(List<? extends JsonNode> nodes, Map<OptionKeys, Object> options, ForkJoinPool pool) {
+        return evaluateAll(nodes.iterator(), options, pool);
+    }
+
+    /**
+     * Same as {@link #evaluateAll(List)}, for documents read from a stream. The stream is consumed in order by the
+     * calling thread, only a few chunks of documents per worker are held in memory at any time.
+     */
+    public BitSet evaluateAll(Stream<? extends JsonNode> nodes) {
+        return evaluateAll(nodes, ForkJoinPool.commonPool());
+    }
+
+    public BitSet evaluateAll(Stream<? extends JsonNode> nodes, ForkJoinPool pool) {
+        return evaluateAll(nodes, Collections.emptyMap(), pool);
+    }
+
+    public BitSet evaluateAll(Stream<? extends JsonNode> nodes,
+                              Map<OptionKeys, Object> options,
+                              ForkJoinPool pool) {
+        return evaluateAll(nodes.iterator(), options, pool);
+    }
+
+    private BitSet evaluateAll(Iterator<? extends JsonNode> nodes,
+                               Map<OptionKeys, Object> options,
+                               ForkJoinPool pool) {
+        if (null == columnar) {
+            return new BatchEvaluation(1, options, pool, BatchEvaluation.byDocument(
+                    (session, node, document, matches) -> {
+                        if (session.evaluate(this, node)) {
+                            matches.set(0, document);
+                        }
+                    })).evaluate(nodes)[0];
+        }
+        return new BatchEvaluation(1, options, pool, (session, documents, size, matches) -> {
+            final long[] words;
+            try {
+                words = columnar.evaluate(documents, size, options, new EvaluationState());
+            } catch (RuntimeException e) {
+                // Evaluated again a document at a time, so that failures surface exactly as they do without batching
+                for (int document = 0; document < size; document++) {
+                    if (session.evaluate(this, documents[document])) {
+                        matches.set(0, document);
+                    }
+                }
+                return;
+            }
+            System.arraycopy(words, 0, matches.words(0), 0, words.length);
+        }).evaluate(nodes)[0];
+    }
+
+    // Evaluates with the reusable state of a session
+    boolean evaluate(EvaluationState state, ExpressionEvaluationContext context) {
+        try {
+            return evaluate(state.reset(context, paths));
+        } finally {
+            state.clear();
+        }
+    }
+
+    private boolean evaluate(EvaluationState state) {
+        return null == cache ? evaluator.evaluate(state) : cache.evaluate(state, evaluator::evaluate);
+    }
+}
@@ -0,0 +1,19 @@
+package io.appform.jsonrules.compiler;
+
+/**
+ * Always evaluates to the same result
+ */
+final class ConstantEvaluator implements Evaluator {
+    static final ConstantEvaluator FALSE = new ConstantEvaluator(false);
+
+    private final boolean result;
+
+    private ConstantEvaluator(boolean result) {
+        this.result = result;
+    }
+
+    @Override
+    public boolean evaluate(EvaluationState state) {
+        return result;
+    }
+}
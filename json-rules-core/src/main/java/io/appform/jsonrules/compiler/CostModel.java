@@ -0,0 +1,58 @@
+package io.appform.jsonrules.compiler;
+
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+import io.appform.jsonrules.expressions.array.CollectionJsonPathBasedExpression;
+import io.appform.jsonrules.expressions.composite.CompositeExpression;
+import io.appform.jsonrules.expressions.string.MatchesExpression;
+import io.appform.jsonrules.jsonpath.resolvers.SimplePathResolver;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Static estimate of the cost of evaluating an expression, in units of one simple path lookup and comparison.
+ * Used to order the children of composite expressions before any runtime statistics are available.
+ */
+@UtilityClass
+class CostModel {
+    private static final double SIMPLE_PATH = 1;
+    private static final double JSON_PATH = 5;
+    private static final double PREOPERATION = 2;
+    private static final double REGEX = 8;
+    // Collection comparisons, per element of the literal values
+    private static final double PER_VALUE = 0.125;
+    // Expressions the compiler can't see into
+    private static final double UNKNOWN = 10;
+
+    static double cost(Expression expression) {
+        if (expression instanceof CompositeExpression) {
+            double cost = 0;
+            if (null != ((CompositeExpression) expression).getChildren()) {
+                for (Expression child : ((CompositeExpression) expression).getChildren()) {
+                    cost += cost(child);
+                }
+            }
+            return cost;
+        }
+        if (!(expression instanceof JsonPathBasedExpression)) {
+            return UNKNOWN;
+        }
+        final JsonPathBasedExpression leaf = (JsonPathBasedExpression) expression;
+        double cost = pathCost(leaf.getPath());
+        cost += leaf.accept(ValuePathVisitor.INSTANCE, null).map(CostModel::pathCost).orElse(0.0);
+        if (null != leaf.getPreoperation()) {
+            cost += PREOPERATION;
+        }
+        if (leaf instanceof MatchesExpression) {
+            cost += REGEX;
+        }
+        if (leaf instanceof CollectionJsonPathBasedExpression
+                && null != ((CollectionJsonPathBasedExpression) leaf).getValues()) {
+            cost += PER_VALUE * ((CollectionJsonPathBasedExpression) leaf).getValues().size();
+        }
+        return cost;
+    }
+
+    private static double pathCost(String path) {
+        return SimplePathResolver.compile(path).isPresent() ? SIMPLE_PATH : JSON_PATH;
+    }
+}
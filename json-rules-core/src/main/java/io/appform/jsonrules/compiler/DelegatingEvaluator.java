@@ -0,0 +1,19 @@
+package io.appform.jsonrules.compiler;
+
+import io.appform.jsonrules.Expression;
+
+/**
+ * Falls back to the interpreted evaluation of expressions the compiler doesn't know about
+ */
+final class DelegatingEvaluator implements Evaluator {
+    private final Expression expression;
+
+    DelegatingEvaluator(Expression expression) {
+        this.expression = expression;
+    }
+
+    @Override
+    public boolean evaluate(EvaluationState state) {
+        return expression.evaluate(state.getContext());
+    }
+}
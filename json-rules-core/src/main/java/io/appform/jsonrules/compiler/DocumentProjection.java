@@ -0,0 +1,222 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.appform.jsonrules.jsonpath.resolvers.SimplePathResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parts of a document a rule can read, used to parse only those parts from a stream of json tokens.
+ * <p>
+ * Values at the end of a path are read in full, everything else is skipped without building any nodes, except for
+ * the containers on the way to the values. Skipped array elements up to the last index the rule reads are replaced by
+ * nulls, so that indices and out of range checks work as on the full document. Arrays read at negative indices are
+ * read in full, since their size is only known at the end. Objects are always read to their end, so that the last of
+ * duplicate fields wins, as it does when reading the document into a tree.
+ * <p>
+ * Rules that read paths other than simple ones, or that contain expressions of unknown types, need the full document.
+ * <p>
+ * The same parts of a document can be kept by a {@link TokenFilter}, see {@link #tokenFilter()}, for parsers of any
+ * format and for copying documents without building nodes.
+ */
+final class DocumentProjection {
+    // Arrays read at larger indices, or at negative ones, are read in full
+    private static final int MAX_INDEX = 1024;
+
+    private final ObjectMapper mapper;
+    private final Node root;
+    private final TokenFilter filter;
+
+    private DocumentProjection(ObjectMapper mapper, Node root) {
+        this.mapper = mapper;
+        this.root = root;
+        this.filter = null == root ? TokenFilter.INCLUDE_ALL : root.filter();
+    }
+
+    /**
+     * Filter keeping the parts of a document this projection reads, to be used with
+     * {@link TokenFilter.Inclusion#INCLUDE_ALL_AND_PATH}. Unlike {@link #read(byte[])}, arrays read at an index are
+     * kept in full, and objects without any of the fields read are left out, which doesn't change any value read.
+     */
+    TokenFilter tokenFilter() {
+        return filter;
+    }
+
+    JsonNode read(byte[] document) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(document)) {
+            return read(parser);
+        }
+    }
+
+    JsonNode read(byte[] buffer, int offset, int length) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(buffer, offset, length)) {
+            return read(parser);
+        }
+    }
+
+    JsonNode read(InputStream document) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(document)) {
+            return read(parser);
+        }
+    }
+
+    private JsonNode read(JsonParser parser) throws IOException {
+        if (null == parser.nextToken()) {
+            return MissingNode.getInstance();
+        }
+        if (null == root) {
+            return mapper.readTree(parser);
+        }
+        return read(parser, root);
+    }
+
+    private JsonNode read(JsonParser parser, Node node) throws IOException {
+        final JsonToken token = parser.currentToken();
+        if (node.terminal || (token == JsonToken.START_ARRAY && node.wholeArray)) {
+            return token == JsonToken.VALUE_NULL ? NullNode.getInstance() : mapper.readTree(parser);
+        }
+        if (token == JsonToken.START_OBJECT) {
+            return readObject(parser, node);
+        }
+        if (token == JsonToken.START_ARRAY) {
+            return readArray(parser, node);
+        }
+        return token == JsonToken.VALUE_NULL ? NullNode.getInstance() : mapper.readTree(parser);
+    }
+
+    private JsonNode readObject(JsonParser parser, Node node) throws IOException {
+        final ObjectNode object = JsonNodeFactory.instance.objectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final Node child = node.fields.get(name);
+            parser.nextToken();
+            if (null == child) {
+                parser.skipChildren();
+                continue;
+            }
+            // A later duplicate of the field replaces the earlier one
+            object.replace(name, read(parser, child));
+        }
+        return object;
+    }
+
+    private JsonNode readArray(JsonParser parser, Node node) throws IOException {
+        final ArrayNode array = JsonNodeFactory.instance.arrayNode();
+        int index = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            final Node child = index < node.indices.length ? node.indices[index] : null;
+            if (null == child) {
+                parser.skipChildren();
+                if (index < node.indices.length) {
+                    array.add(NullNode.getInstance());
+                }
+            } else {
+                array.add(read(parser, child));
+            }
+            index++;
+        }
+        return array;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> fields = new HashMap<>();
+        private Node[] indices = new Node[0];
+        private boolean wholeArray;
+        private boolean terminal;
+
+        private Node field(String name) {
+            return fields.computeIfAbsent(name, key -> new Node());
+        }
+
+        private Node index(int index) {
+            if (index < 0 || index > MAX_INDEX) {
+                wholeArray = true;
+                return new Node();
+            }
+            if (index >= indices.length) {
+                indices = Arrays.copyOf(indices, index + 1);
+            }
+            if (null == indices[index]) {
+                indices[index] = new Node();
+            }
+            return indices[index];
+        }
+
+        private TokenFilter filter() {
+            return terminal ? TokenFilter.INCLUDE_ALL : new NodeFilter(this);
+        }
+    }
+
+    // Keeps the fields of a node, and arrays read at an index in full so that indices and out of range reads work
+    private static final class NodeFilter extends TokenFilter {
+        private final Map<String, TokenFilter> fields = new HashMap<>();
+        private final boolean wholeArray;
+
+        private NodeFilter(Node node) {
+            node.fields.forEach((name, child) -> fields.put(name, child.filter()));
+            this.wholeArray = node.wholeArray || node.indices.length > 0;
+        }
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            return fields.get(name);
+        }
+
+        @Override
+        public TokenFilter filterStartArray() {
+            return wholeArray ? TokenFilter.INCLUDE_ALL : this;
+        }
+
+        @Override
+        public TokenFilter includeElement(int index) {
+            return null;
+        }
+    }
+
+    static final class Builder {
+        private final Node root = new Node();
+        private boolean fullDocument;
+
+        /**
+         * Registers a path the rule reads from the document
+         */
+        Builder add(String path) {
+            if (fullDocument) {
+                return this;
+            }
+            final SimplePathResolver simplePath = SimplePathResolver.compile(path).orElse(null);
+            if (null == simplePath) {
+                return fullDocument();
+            }
+            Node node = root;
+            for (int i = 0; i < simplePath.getDepth(); i++) {
+                final String name = simplePath.getName(i);
+                node = null != name ? node.field(name) : node.index(simplePath.getIndex(i));
+            }
+            node.terminal = true;
+            return this;
+        }
+
+        Builder fullDocument() {
+            fullDocument = true;
+            return this;
+        }
+
+        DocumentProjection build(ObjectMapper mapper) {
+            return new DocumentProjection(mapper, fullDocument ? null : root);
+        }
+    }
+}
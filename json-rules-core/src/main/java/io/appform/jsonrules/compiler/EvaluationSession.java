@@ -0,0 +1,96 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.ExpressionEvaluationContext;
+import io.appform.jsonrules.OptionKeys;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Scratch space for evaluating rules, reused from one evaluation to the next: the evaluation context and the slots
+ * holding the path values resolved by compiled rules. Evaluating a {@link CompiledRule} through a session doesn't
+ * allocate anything beyond what its expressions allocate themselves. Rule sets still allocate their result.
+ * <p>
+ * A session is not thread safe: use one per thread, for example through a {@link ThreadLocal}, or take one from a
+ * pool for each evaluation. A session can evaluate any number of rules, and keeps no reference to documents between
+ * evaluations. Evaluations through a session can't be nested, so rules, and functions called by them, must not use
+ * the session they are evaluated with. Expressions must not keep the context they are evaluated with, as it is
+ * reused for the next evaluation.
+ * <p>
+ * Options passed when creating the session are used for evaluations without options of their own, see
+ * {@link OptionKeys}.
+ */
+public final class EvaluationSession {
+    private final Map<OptionKeys, Object> options;
+    private final ExpressionEvaluationContext context = ExpressionEvaluationContext.builder().build();
+    private final EvaluationState state = new EvaluationState();
+
+    public EvaluationSession() {
+        this(Collections.emptyMap());
+    }
+
+    public EvaluationSession(Map<OptionKeys, Object> options) {
+        this.options = options;
+    }
+
+    public boolean evaluate(CompiledRule rule, JsonNode node) {
+        return evaluate(rule, node, options);
+    }
+
+    public boolean evaluate(CompiledRule rule, JsonNode node, Map<OptionKeys, Object> options) {
+        final ExpressionEvaluationContext current = start(node, options);
+        try {
+            return rule.evaluate(state, current);
+        } finally {
+            finish();
+        }
+    }
+
+    public BitSet evaluate(RuleSet rules, JsonNode node) {
+        return evaluate(rules, node, options);
+    }
+
+    public BitSet evaluate(RuleSet rules, JsonNode node, Map<OptionKeys, Object> options) {
+        final ExpressionEvaluationContext current = start(node, options);
+        try {
+            return rules.evaluate(state, current);
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Evaluates an expression without compiling it, reusing the evaluation context only
+     */
+    public boolean evaluate(Expression expression, JsonNode node) {
+        return evaluate(expression, node, options);
+    }
+
+    public boolean evaluate(Expression expression, JsonNode node, Map<OptionKeys, Object> options) {
+        final ExpressionEvaluationContext current = start(node, options);
+        try {
+            return expression.evaluate(current);
+        } finally {
+            finish();
+        }
+    }
+
+    // Fails without touching the context when it is in use, so that the ongoing evaluation is not affected
+    private ExpressionEvaluationContext start(JsonNode node, Map<OptionKeys, Object> options) {
+        if (null != context.getNode()) {
+            throw new IllegalStateException("Evaluation session is already in use");
+        }
+        context.setNode(null == node ? MissingNode.getInstance() : node);
+        context.setOptions(options);
+        return context;
+    }
+
+    private void finish() {
+        context.setNode(null);
+        context.setOptions(null);
+    }
+}
@@ -0,0 +1,112 @@
+package io.appform.jsonrules.compiler;
+
+import io.appform.jsonrules.ExpressionEvaluationContext;
+import io.appform.jsonrules.compiler.internal.GeneratedState;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Per evaluation state of a {@link CompiledRule}: the context, the values of the paths resolved so far and the results
+ * of the shared subexpressions evaluated so far.
+ * States owned by an {@link EvaluationSession} are reset and reused for every evaluation.
+ */
+final class EvaluationState implements GeneratedState {
+    private static final Object[] NO_VALUES = new Object[0];
+    private static final long[] NO_RESULTS = new long[0];
+
+    @Getter
+    private ExpressionEvaluationContext context;
+    private PathTable paths;
+    // Indexed by PathTable slots, null until a slot is resolved. May be longer than the table of a reused state.
+    Object[] values;
+    // Bit sets indexed by MemoEvaluator slots, a result is only valid when its bit is set in evaluated
+    private long[] evaluated;
+    private long[] results;
+    private int memoWords;
+
+    EvaluationState(ExpressionEvaluationContext context, PathTable paths) {
+        this(context, paths, 0);
+    }
+
+    EvaluationState(ExpressionEvaluationContext context, PathTable paths, int memoSlots) {
+        this.context = context;
+        this.paths = paths;
+        this.values = new Object[paths.size()];
+        this.memoWords = words(memoSlots);
+        this.evaluated = 0 == memoWords ? NO_RESULTS : new long[memoWords];
+        this.results = 0 == memoWords ? NO_RESULTS : new long[memoWords];
+    }
+
+    // Reusable state, see reset
+    EvaluationState() {
+        this.values = NO_VALUES;
+        this.evaluated = NO_RESULTS;
+        this.results = NO_RESULTS;
+    }
+
+    /**
+     * Prepares a reusable state for an evaluation, all its slots are unresolved
+     */
+    EvaluationState reset(ExpressionEvaluationContext context, PathTable paths) {
+        return reset(context, paths, 0);
+    }
+
+    EvaluationState reset(ExpressionEvaluationContext context, PathTable paths, int memoSlots) {
+        if (values.length < paths.size()) {
+            values = new Object[paths.size()];
+        }
+        memoWords = words(memoSlots);
+        if (evaluated.length < memoWords) {
+            evaluated = new long[memoWords];
+            results = new long[memoWords];
+        }
+        this.context = context;
+        this.paths = paths;
+        return this;
+    }
+
+    /**
+     * Drops everything read during an evaluation, so that a reused state doesn't keep documents reachable
+     */
+    void clear() {
+        if (null != paths) {
+            Arrays.fill(values, 0, paths.size(), null);
+        }
+        Arrays.fill(evaluated, 0, memoWords, 0L);
+        memoWords = 0;
+        this.context = null;
+        this.paths = null;
+    }
+
+    /**
+     * Value of the path in a slot, or {@link PathTable#MISSING} if it doesn't exist in the document
+     */
+    @Override
+    public Object read(int slot) {
+        return paths.read(this, slot);
+    }
+
+    /**
+     * Result of the shared subexpression in a slot, evaluated on first use in this evaluation
+     */
+    boolean memoized(int slot, Evaluator evaluator) {
+        final int word = slot >>> 6;
+        final long bit = 1L << slot;
+        if ((evaluated[word] & bit) != 0) {
+            return (results[word] & bit) != 0;
+        }
+        final boolean result = evaluator.evaluate(this);
+        if (result) {
+            results[word] |= bit;
+        } else {
+            results[word] &= ~bit;
+        }
+        evaluated[word] |= bit;
+        return result;
+    }
+
+    private static int words(int slots) {
+        return (slots + 63) >>> 6;
+    }
+}
@@ -0,0 +1,8 @@
+package io.appform.jsonrules.compiler;
+
+/**
+ * A node of the evaluator tree built by {@link ExpressionCompiler}
+ */
+interface Evaluator {
+    boolean evaluate(EvaluationState state);
+}
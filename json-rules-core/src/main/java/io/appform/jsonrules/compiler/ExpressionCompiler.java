@@ -0,0 +1,178 @@
+package io.appform.jsonrules.compiler;
+
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.config.JacksonConfiguration;
+import io.appform.jsonrules.config.JsonRulesConfiguration;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+import io.appform.jsonrules.expressions.composite.CompositeExpression;
+import io.appform.jsonrules.utils.JsonPathUtils;
+import lombok.experimental.UtilityClass;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Walks an expression tree once and builds the evaluator tree for a {@link CompiledRule}
+ */
+@UtilityClass
+public class ExpressionCompiler {
+    // Cached results are the shared Boolean.TRUE and Boolean.FALSE, so they add nothing to the size of an entry
+    private static final ToLongFunction<Boolean> BOOLEAN_RESULT_BYTES = result -> 0;
+
+    public static CompiledRule compile(Expression expression) {
+        return compile(expression, false, 0);
+    }
+
+    /**
+     * Compiles an expression like {@link #compile(Expression)}, evaluating it with a class generated for the rule, see
+     * {@link RuleClassGenerator}. Children of and, or and not are evaluated in declared order, and literals of numeric
+     * comparisons are read when generating the class. Rules too large for a generated class use the evaluator tree.
+     */
+    public static CompiledRule compileToBytecode(Expression expression) {
+        return compile(expression, true, 0);
+    }
+
+    /**
+     * Compiles an expression like {@link #compile(Expression)}, caching its results by the values it reads from
+     * documents, see {@link ResultCache}. Expressions that can't be cached are evaluated for every document.
+     *
+     * @param maximumSize Largest number of results kept
+     */
+    public static CompiledRule compileWithResultCache(Expression expression, long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size of the cache must be positive");
+        }
+        return compile(expression, false, maximumSize);
+    }
+
+    private static CompiledRule compile(Expression expression, boolean generateClass, long cacheSize) {
+        final PathTable.Builder paths = new PathTable.Builder();
+        final DocumentProjection.Builder projection = new DocumentProjection.Builder();
+        final Evaluator tree = toEvaluator(expression, paths, projection);
+        final BitSet cachedSlots = new BitSet();
+        final ResultCache<Boolean> cache = cacheSize > 0 && ResultCache.addSlots(expression, paths, cachedSlots)
+                                           ? new ResultCache<>(cachedSlots.stream().toArray(),
+                                                               cacheSize,
+                                                               BOOLEAN_RESULT_BYTES)
+                                           : null;
+        final Evaluator generated = generateClass ? RuleClassGenerator.generate(expression, paths) : null;
+        final Evaluator evaluator = null != generated ? generated : tree;
+        final ColumnarRule.Builder columnar = new ColumnarRule.Builder();
+        final ColumnarEvaluator columnarEvaluator = JsonRulesConfiguration.isColumnarBatchEvaluationEnabled()
+                                                    ? toColumnarEvaluator(expression, paths, columnar)
+                                                    : null;
+        final PathTable pathTable = paths.build();
+        return new CompiledRule(expression,
+                                pathTable,
+                                projection.build(JacksonConfiguration.getInstance().getObjectMapper()),
+                                evaluator,
+                                null != columnarEvaluator ? columnar.build(pathTable, columnarEvaluator) : null,
+                                cache);
+    }
+
+    // Paths of all expressions compiled with the same builders share slots
+    static Evaluator toEvaluator(Expression expression,
+                                 PathTable.Builder paths,
+                                 DocumentProjection.Builder projection) {
+        return toEvaluator(expression, paths, projection, SharedSubexpressions.NONE);
+    }
+
+    // Subexpressions shared by the rules counted in shared are compiled once, and evaluated once per document
+    static Evaluator toEvaluator(Expression expression,
+                                 PathTable.Builder paths,
+                                 DocumentProjection.Builder projection,
+                                 SharedSubexpressions shared) {
+        return shared.evaluator(expression, () -> newEvaluator(expression, paths, projection, shared));
+    }
+
+    private static Evaluator newEvaluator(Expression expression,
+                                          PathTable.Builder paths,
+                                          DocumentProjection.Builder projection,
+                                          SharedSubexpressions shared) {
+        if (expression instanceof CompositeExpression) {
+            return toEvaluator((CompositeExpression) expression, paths, projection, shared);
+        }
+        if (expression instanceof JsonPathBasedExpression) {
+            final JsonPathBasedExpression leaf = (JsonPathBasedExpression) expression;
+            projection.add(leaf.getPath());
+            leaf.accept(ValuePathVisitor.INSTANCE, null).ifPresent(projection::add);
+            return new LeafEvaluator(leaf, paths.slotFor(JsonPathUtils.compile(leaf.getPath())));
+        }
+        projection.fullDocument();
+        return new DelegatingEvaluator(expression);
+    }
+
+    // Same tree as toEvaluator, with children always in declared order
+    private static ColumnarEvaluator toColumnarEvaluator(Expression expression,
+                                                         PathTable.Builder paths,
+                                                         ColumnarRule.Builder columnar) {
+        if (expression instanceof JsonPathBasedExpression) {
+            final JsonPathBasedExpression leaf = (JsonPathBasedExpression) expression;
+            return columnar.leaf(leaf, paths.slotFor(JsonPathUtils.compile(leaf.getPath())));
+        }
+        if (!(expression instanceof CompositeExpression)) {
+            return new ColumnarDelegatingEvaluator(expression);
+        }
+        final List<Expression> children = ((CompositeExpression) expression).getChildren();
+        if (null == children) {
+            return ColumnarCompositeEvaluator.FALSE;
+        }
+        final ColumnarEvaluator[] evaluators = new ColumnarEvaluator[children.size()];
+        for (int i = 0; i < evaluators.length; i++) {
+            evaluators[i] = toColumnarEvaluator(children.get(i), paths, columnar);
+        }
+        switch (expression.getType()) {
+            case and:
+                return ColumnarCompositeEvaluator.and(evaluators);
+            case or:
+                return ColumnarCompositeEvaluator.or(evaluators);
+            case not:
+                return ColumnarCompositeEvaluator.not(evaluators);
+            default:
+                return new ColumnarDelegatingEvaluator(expression);
+        }
+    }
+
+    private static Evaluator toEvaluator(CompositeExpression expression,
+                                         PathTable.Builder paths,
+                                         DocumentProjection.Builder projection,
+                                         SharedSubexpressions shared) {
+        final List<Expression> children = expression.getChildren();
+        if (null == children) {
+            return ConstantEvaluator.FALSE;
+        }
+        final Evaluator[] evaluators = new Evaluator[children.size()];
+        for (int i = 0; i < evaluators.length; i++) {
+            evaluators[i] = toEvaluator(children.get(i), paths, projection, shared);
+        }
+        final boolean[] movable = new boolean[evaluators.length];
+        for (int i = 0; i < movable.length; i++) {
+            movable[i] = AdaptiveEvaluator.neverFails(children.get(i));
+        }
+        if (JsonRulesConfiguration.isAdaptiveChildOrderingEnabled() && AdaptiveEvaluator.canReorder(movable)) {
+            final double[] costs = children.stream().mapToDouble(CostModel::cost).toArray();
+            switch (expression.getType()) {
+                case and:
+                    return AdaptiveEvaluator.and(evaluators, costs, movable);
+                case or:
+                    return AdaptiveEvaluator.or(evaluators, costs, movable);
+                case not:
+                    return AdaptiveEvaluator.not(evaluators, costs, movable);
+                default:
+                    break;
+            }
+        }
+        switch (expression.getType()) {
+            case and:
+                return new AndEvaluator(evaluators);
+            case or:
+                return new OrEvaluator(evaluators);
+            case not:
+                return new NotEvaluator(evaluators);
+            default:
+                projection.fullDocument();
+                return new DelegatingEvaluator(expression);
+        }
+    }
+}
@@ -0,0 +1,573 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NumericNode;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.ExpressionVisitor;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+import io.appform.jsonrules.expressions.array.CollectionJsonPathBasedExpression;
+import io.appform.jsonrules.expressions.array.ContainsAllExpression;
+import io.appform.jsonrules.expressions.array.ContainsAnyExpression;
+import io.appform.jsonrules.expressions.array.InExpression;
+import io.appform.jsonrules.expressions.array.NotInExpression;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.composite.CompositeExpression;
+import io.appform.jsonrules.expressions.composite.NotExpression;
+import io.appform.jsonrules.expressions.composite.OrExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.equality.NotEqualsExpression;
+import io.appform.jsonrules.expressions.meta.ExistsExpression;
+import io.appform.jsonrules.expressions.meta.NotExistsExpression;
+import io.appform.jsonrules.expressions.numeric.*;
+import io.appform.jsonrules.expressions.string.*;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites an expression into a simpler one that evaluates to the same result for every document.
+ * <ul>
+ *     <li>Nested and/or expressions are flattened, and duplicate children are removed</li>
+ *     <li>equals and in checks of the same path in an or are merged into one in, and not_equals and not_in checks of
+ *     the same path in an and are merged into one not_in</li>
+ *     <li>A lower and an upper bound on the same path in an and are merged into a between, which is false when the
+ *     bounds can't both hold</li>
+ *     <li>not is pushed into the checks it negates, so not(equals) becomes not_equals, not(in) becomes not_in and
+ *     not(not(x)) becomes x</li>
+ *     <li>Subtrees that always evaluate to the same result are folded. The result can be such a constant itself: an and
+ *     without children for true, and an or without children for false</li>
+ * </ul>
+ * Checks are only merged or negated when their paths have the same default result and the rewritten check handles
+ * every value the same way, including values of other types. Evaluations that fail in a subtree that can't change the
+ * result may no longer fail. Leaves that aren't rewritten are shared with the original expression.
+ */
+public final class ExpressionSimplifier implements ExpressionVisitor<Expression> {
+    private static final ExpressionSimplifier INSTANCE = new ExpressionSimplifier();
+
+    private ExpressionSimplifier() {
+    }
+
+    public static Expression simplify(Expression expression) {
+        return expression.accept(INSTANCE, null);
+    }
+
+    @Override
+    public Expression visit(AndExpression expression, JsonNode node) {
+        return null == expression.getChildren() ? constant(false) : and(simplifyAll(expression.getChildren()));
+    }
+
+    @Override
+    public Expression visit(OrExpression expression, JsonNode node) {
+        return null == expression.getChildren() ? constant(false) : or(simplifyAll(expression.getChildren()));
+    }
+
+    @Override
+    public Expression visit(NotExpression expression, JsonNode node) {
+        // not is true when none of its children is, so it is the negation of an or over them
+        return null == expression.getChildren()
+               ? constant(false)
+               : not(or(simplifyAll(expression.getChildren())));
+    }
+
+    @Override
+    public Expression visit(ExistsExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(NotExistsExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(GreaterThanExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(GreaterThanEqualsExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(LessThanExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(LessThanEqualsExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(EqualsExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(NotEqualsExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(EmptyExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(NotEmptyExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(StartsWithExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(EndsWithExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(MatchesExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    @Override
+    public Expression visit(InExpression expression, JsonNode node) {
+        return collection(expression);
+    }
+
+    @Override
+    public Expression visit(NotInExpression expression, JsonNode node) {
+        return collection(expression);
+    }
+
+    @Override
+    public Expression visit(ContainsAnyExpression expression, JsonNode node) {
+        return collection(expression);
+    }
+
+    @Override
+    public Expression visit(ContainsAllExpression expression, JsonNode node) {
+        return collection(expression);
+    }
+
+    @Override
+    public Expression visit(BetweenExpression expression, JsonNode node) {
+        return expression;
+    }
+
+    // Collection checks without literal values are false for every document that has the path
+    private static Expression collection(CollectionJsonPathBasedExpression expression) {
+        return !expression.isExtractValues() && !hasValues(expression) && !expression.isDefaultResult()
+               ? constant(false)
+               : expression;
+    }
+
+    private static List<Expression> simplifyAll(List<Expression> expressions) {
+        final List<Expression> simplified = new ArrayList<>(expressions.size());
+        for (Expression expression : expressions) {
+            simplified.add(simplify(expression));
+        }
+        return simplified;
+    }
+
+    // Builds an and over simplified children
+    private static Expression and(List<Expression> children) {
+        final List<Expression> flattened = new ArrayList<>(children.size());
+        for (Expression child : children) {
+            if (isConstant(child, false)) {
+                return constant(false);
+            }
+            if (child instanceof AndExpression) {
+                flattened.addAll(((AndExpression) child).getChildren());
+            } else if (!isConstant(child, true)) {
+                flattened.add(child);
+            }
+        }
+        final List<Expression> merged = mergeBounds(mergeValues(distinct(flattened), false));
+        if (merged.stream().anyMatch(child -> isConstant(child, false))) {
+            return constant(false);
+        }
+        return composite(merged, true);
+    }
+
+    // Builds an or over simplified children
+    private static Expression or(List<Expression> children) {
+        final List<Expression> flattened = new ArrayList<>(children.size());
+        for (Expression child : children) {
+            if (isConstant(child, true)) {
+                return constant(true);
+            }
+            if (child instanceof OrExpression) {
+                flattened.addAll(((OrExpression) child).getChildren());
+            } else if (!isConstant(child, false)) {
+                flattened.add(child);
+            }
+        }
+        return composite(mergeValues(distinct(flattened), true), false);
+    }
+
+    // Builds the negation of a simplified expression
+    private static Expression not(Expression expression) {
+        final Expression negated = negate(expression);
+        if (null != negated) {
+            return negated;
+        }
+        return NotExpression.builder()
+                .children(expression instanceof OrExpression
+                          ? ((OrExpression) expression).getChildren()
+                          : Collections.singletonList(expression))
+                .build();
+    }
+
+    /**
+     * Negates a simplified expression without wrapping it in a not
+     *
+     * @return The negated expression, or null if the expression can't be negated that way
+     */
+    private static Expression negate(Expression expression) {
+        if (isConstant(expression, true) || isConstant(expression, false)) {
+            return constant(isConstant(expression, false));
+        }
+        if (expression instanceof NotExpression) {
+            return or(((NotExpression) expression).getChildren());
+        }
+        if (expression instanceof AndExpression || expression instanceof OrExpression) {
+            final List<Expression> children = ((CompositeExpression) expression).getChildren();
+            final List<Expression> negatedChildren = new ArrayList<>(children.size());
+            for (Expression child : children) {
+                final Expression negated = negate(child);
+                if (null == negated) {
+                    return null;
+                }
+                negatedChildren.add(negated);
+            }
+            return expression instanceof AndExpression ? or(negatedChildren) : and(negatedChildren);
+        }
+        return negateLeaf(expression);
+    }
+
+    // Pairs of checks that are each other's negation for documents that have the path, so that negating the default
+    // result as well negates them for every document
+    private static Expression negateLeaf(Expression expression) {
+        final Class<?> type = expression.getClass();
+        if (type == EqualsExpression.class && hasComparisonValue((EqualsExpression) expression)) {
+            final EqualsExpression equals = (EqualsExpression) expression;
+            return NotEqualsExpression.builder()
+                    .path(equals.getPath())
+                    .value(equals.getValue())
+                    .extractValueFromPath(equals.isExtractValueFromPath())
+                    .defaultResult(!equals.isDefaultResult())
+                    .preoperation(equals.getPreoperation())
+                    .build();
+        }
+        if (type == NotEqualsExpression.class && hasComparisonValue((NotEqualsExpression) expression)) {
+            final NotEqualsExpression notEquals = (NotEqualsExpression) expression;
+            return EqualsExpression.builder()
+                    .path(notEquals.getPath())
+                    .value(notEquals.getValue())
+                    .extractValueFromPath(notEquals.isExtractValueFromPath())
+                    .defaultResult(!notEquals.isDefaultResult())
+                    .preoperation(notEquals.getPreoperation())
+                    .build();
+        }
+        // Collection checks are false for all documents when they have no values, so they only negate with values
+        if (type == InExpression.class && isLiteralCollection((InExpression) expression)) {
+            final InExpression in = (InExpression) expression;
+            return NotInExpression.builder()
+                    .path(in.getPath())
+                    .values(in.getValues())
+                    .defaultResult(!in.isDefaultResult())
+                    .preoperation(in.getPreoperation())
+                    .build();
+        }
+        if (type == NotInExpression.class && isLiteralCollection((NotInExpression) expression)) {
+            final NotInExpression notIn = (NotInExpression) expression;
+            return InExpression.builder()
+                    .path(notIn.getPath())
+                    .values(notIn.getValues())
+                    .defaultResult(!notIn.isDefaultResult())
+                    .preoperation(notIn.getPreoperation())
+                    .build();
+        }
+        if (type == ExistsExpression.class) {
+            final JsonPathBasedExpression exists = (JsonPathBasedExpression) expression;
+            final NotExistsExpression notExists = new NotExistsExpression(exists.getPath(), exists.getPreoperation());
+            notExists.setDefaultResult(!exists.isDefaultResult());
+            return notExists;
+        }
+        if (type == NotExistsExpression.class) {
+            final JsonPathBasedExpression notExists = (JsonPathBasedExpression) expression;
+            final ExistsExpression exists = new ExistsExpression(notExists.getPath(), notExists.getPreoperation());
+            exists.setDefaultResult(!notExists.isDefaultResult());
+            return exists;
+        }
+        return null;
+    }
+
+    /**
+     * Merges literal checks of the same path into one collection check: equals and in into an in for an or, not_equals
+     * and not_in into a not_in for an and. The merged check takes the place of the first one. Numbers fail to compare
+     * with other values, so checks against numbers are only merged with each other, and so are checks against other
+     * values. That way the merged check fails exactly when the first check it replaces fails.
+     */
+    private static List<Expression> mergeValues(List<Expression> children, boolean inclusion) {
+        final Map<PathKey, List<Expression>> groups = new LinkedHashMap<>();
+        for (Expression child : children) {
+            final Boolean numeric = isMergeableValueCheck(child, inclusion) ? numericValues(child) : null;
+            if (null != numeric) {
+                final JsonPathBasedExpression check = (JsonPathBasedExpression) child;
+                groups.computeIfAbsent(new PathKey(check, numeric), key -> new ArrayList<>()).add(check);
+            }
+        }
+        final Map<Expression, Expression> replacements = new IdentityHashMap<>();
+        for (Map.Entry<PathKey, List<Expression>> group : groups.entrySet()) {
+            final List<Expression> checks = group.getValue();
+            if (checks.size() < 2) {
+                continue;
+            }
+            final Set<Object> values = new LinkedHashSet<>();
+            for (Expression check : checks) {
+                if (check instanceof CollectionJsonPathBasedExpression) {
+                    values.addAll(((CollectionJsonPathBasedExpression) check).getValues());
+                } else {
+                    values.add(check instanceof EqualsExpression
+                               ? ((EqualsExpression) check).getValue()
+                               : ((NotEqualsExpression) check).getValue());
+                }
+            }
+            final PathKey key = group.getKey();
+            replacements.put(checks.get(0), inclusion
+                                            ? InExpression.builder()
+                                                    .path(key.path)
+                                                    .values(values)
+                                                    .defaultResult(key.defaultResult)
+                                                    .build()
+                                            : NotInExpression.builder()
+                                                    .path(key.path)
+                                                    .values(values)
+                                                    .defaultResult(key.defaultResult)
+                                                    .build());
+            for (Expression merged : checks.subList(1, checks.size())) {
+                replacements.put(merged, null);
+            }
+        }
+        return replace(children, replacements);
+    }
+
+    private static boolean isMergeableValueCheck(Expression expression, boolean inclusion) {
+        final Class<?> type = expression.getClass();
+        if (type == (inclusion ? InExpression.class : NotInExpression.class)) {
+            final CollectionJsonPathBasedExpression collection = (CollectionJsonPathBasedExpression) expression;
+            return null == collection.getPreoperation() && isLiteralCollection(collection);
+        }
+        if (inclusion && type == EqualsExpression.class) {
+            final EqualsExpression equals = (EqualsExpression) expression;
+            return null == equals.getPreoperation()
+                    && !equals.isExtractValueFromPath()
+                    && isMergeableValue(equals.getValue());
+        }
+        if (!inclusion && type == NotEqualsExpression.class) {
+            final NotEqualsExpression notEquals = (NotEqualsExpression) expression;
+            return null == notEquals.getPreoperation()
+                    && !notEquals.isExtractValueFromPath()
+                    && isMergeableValue(notEquals.getValue());
+        }
+        return false;
+    }
+
+    // Whether a check compares with numbers only or with other values only, null if it does both
+    private static Boolean numericValues(Expression check) {
+        if (check instanceof CollectionJsonPathBasedExpression) {
+            final Set<Object> values = ((CollectionJsonPathBasedExpression) check).getValues();
+            final long numbers = values.stream().filter(value -> value instanceof NumericNode).count();
+            return numbers == values.size() ? Boolean.TRUE : numbers == 0 ? Boolean.FALSE : null;
+        }
+        return (check instanceof EqualsExpression
+                ? ((EqualsExpression) check).getValue()
+                : ((NotEqualsExpression) check).getValue()) instanceof Number;
+    }
+
+    // Values that compare with every node exactly like the json node a collection check converts them to. Boolean
+    // nodes compare with text values by parsing them, which collection checks do on the quoted form of the text.
+    private static boolean isMergeableValue(Object value) {
+        return value instanceof Integer
+                || value instanceof Long
+                || value instanceof Double
+                || value instanceof Boolean
+                || (value instanceof String && !"true".equalsIgnoreCase((String) value));
+    }
+
+    /**
+     * Merges a lower bound and an upper bound on the same path into a between. Between compares doubles as primitives
+     * while the bounds use {@link Double#compare(double, double)}, so bounds at zero are only merged when the two agree
+     * on negative zero.
+     */
+    private static List<Expression> mergeBounds(List<Expression> children) {
+        final Map<PathKey, List<NumericJsonPathBasedExpression>> groups = new LinkedHashMap<>();
+        for (Expression child : children) {
+            if (isMergeableBound(child)) {
+                final NumericJsonPathBasedExpression bound = (NumericJsonPathBasedExpression) child;
+                groups.computeIfAbsent(new PathKey(bound), key -> new ArrayList<>()).add(bound);
+            }
+        }
+        final Map<Expression, Expression> replacements = new IdentityHashMap<>();
+        for (Map.Entry<PathKey, List<NumericJsonPathBasedExpression>> group : groups.entrySet()) {
+            final List<NumericJsonPathBasedExpression> bounds = group.getValue();
+            if (bounds.size() != 2 || isLowerBound(bounds.get(0)) == isLowerBound(bounds.get(1))) {
+                continue;
+            }
+            final NumericJsonPathBasedExpression lower = isLowerBound(bounds.get(0)) ? bounds.get(0) : bounds.get(1);
+            final NumericJsonPathBasedExpression upper = lower == bounds.get(0) ? bounds.get(1) : bounds.get(0);
+            final Number lowerValue = (Number) lower.getValue();
+            final Number upperValue = (Number) upper.getValue();
+            final boolean includeLower = lower instanceof GreaterThanEqualsExpression;
+            final boolean includeUpper = upper instanceof LessThanEqualsExpression;
+            if (isZero(lowerValue) && includeLower || isZero(upperValue) && !includeUpper) {
+                continue;
+            }
+            final boolean defaultResult = group.getKey().defaultResult;
+            final Expression merged = !defaultResult && isEmpty(lowerValue, upperValue, includeLower, includeUpper)
+                                      ? constant(false)
+                                      : BetweenExpression.builder()
+                                              .path(group.getKey().path)
+                                              .lowerbound(lowerValue)
+                                              .upperBound(upperValue)
+                                              .includeLowerBound(includeLower)
+                                              .includeUpperBound(includeUpper)
+                                              .defaultResult(defaultResult)
+                                              .build();
+            replacements.put(bounds.get(0), merged);
+            replacements.put(bounds.get(1), null);
+        }
+        return replace(children, replacements);
+    }
+
+    private static boolean isMergeableBound(Expression expression) {
+        final Class<?> type = expression.getClass();
+        if (type != GreaterThanExpression.class && type != GreaterThanEqualsExpression.class
+                && type != LessThanExpression.class && type != LessThanEqualsExpression.class) {
+            return false;
+        }
+        final NumericJsonPathBasedExpression bound = (NumericJsonPathBasedExpression) expression;
+        return null == bound.getPreoperation()
+                && !bound.isExtractValueFromPath()
+                && bound.getValue() instanceof Number
+                && !Double.isNaN(((Number) bound.getValue()).doubleValue())
+                && !isNegativeZero((Number) bound.getValue());
+    }
+
+    private static boolean isLowerBound(NumericJsonPathBasedExpression bound) {
+        return bound instanceof GreaterThanExpression || bound instanceof GreaterThanEqualsExpression;
+    }
+
+    private static boolean isZero(Number value) {
+        return value.doubleValue() == 0;
+    }
+
+    private static boolean isNegativeZero(Number value) {
+        return isZero(value) && Double.doubleToRawLongBits(value.doubleValue()) != 0;
+    }
+
+    // Between compares integral numbers with the bounds as longs and others as doubles, both have to be empty
+    private static boolean isEmpty(Number lower, Number upper, boolean includeLower, boolean includeUpper) {
+        final boolean closed = includeLower && includeUpper;
+        final boolean noLong = lower.longValue() > upper.longValue()
+                || (lower.longValue() == upper.longValue() && !closed);
+        final boolean noDouble = lower.doubleValue() > upper.doubleValue()
+                || (lower.doubleValue() == upper.doubleValue() && !closed);
+        return noLong && noDouble;
+    }
+
+    // Replaces children by identity, dropping the ones replaced by null
+    private static List<Expression> replace(List<Expression> children, Map<Expression, Expression> replacements) {
+        if (replacements.isEmpty()) {
+            return children;
+        }
+        final List<Expression> replaced = new ArrayList<>(children.size());
+        for (Expression child : children) {
+            final Expression replacement = replacements.containsKey(child) ? replacements.get(child) : child;
+            if (null != replacement) {
+                replaced.add(replacement);
+            }
+        }
+        return replaced;
+    }
+
+    private static List<Expression> distinct(List<Expression> expressions) {
+        return new ArrayList<>(new LinkedHashSet<>(expressions));
+    }
+
+    private static Expression composite(List<Expression> children, boolean and) {
+        if (children.size() == 1) {
+            return children.get(0);
+        }
+        if (children.isEmpty()) {
+            return constant(and);
+        }
+        return and
+               ? AndExpression.builder().children(children).build()
+               : OrExpression.builder().children(children).build();
+    }
+
+    private static Expression constant(boolean value) {
+        return value
+               ? AndExpression.builder().build()
+               : OrExpression.builder().build();
+    }
+
+    private static boolean isConstant(Expression expression, boolean value) {
+        if (!(expression instanceof CompositeExpression)) {
+            return false;
+        }
+        final List<Expression> children = ((CompositeExpression) expression).getChildren();
+        if (null == children) {
+            return !value;
+        }
+        return children.isEmpty() && (expression instanceof OrExpression ? !value : value);
+    }
+
+    private static boolean hasComparisonValue(EqualsExpression expression) {
+        return expression.isExtractValueFromPath() || null != expression.getValue();
+    }
+
+    private static boolean hasComparisonValue(NotEqualsExpression expression) {
+        return expression.isExtractValueFromPath() || null != expression.getValue();
+    }
+
+    private static boolean isLiteralCollection(CollectionJsonPathBasedExpression expression) {
+        return !expression.isExtractValues() && hasValues(expression);
+    }
+
+    private static boolean hasValues(CollectionJsonPathBasedExpression expression) {
+        return null != expression.getValues() && !expression.getValues().isEmpty();
+    }
+
+    // Checks are merged by path, when they also agree on the result for documents without the path
+    @Value
+    private static class PathKey {
+        String path;
+        boolean defaultResult;
+        boolean numeric;
+
+        private PathKey(JsonPathBasedExpression expression) {
+            this(expression, true);
+        }
+
+        private PathKey(JsonPathBasedExpression expression, boolean numeric) {
+            this.path = expression.getPath();
+            this.defaultResult = expression.isDefaultResult();
+            this.numeric = numeric;
+        }
+    }
+}
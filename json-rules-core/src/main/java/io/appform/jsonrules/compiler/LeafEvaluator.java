@@ -0,0 +1,28 @@
+package io.appform.jsonrules.compiler;
+
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+
+/**
+ * Reads the path of a {@link JsonPathBasedExpression} from its {@link PathTable} slot and hands the value
+ * over to the expression for comparison
+ */
+final class LeafEvaluator implements Evaluator {
+    private final JsonPathBasedExpression expression;
+    private final int slot;
+    private final boolean defaultResult;
+
+    LeafEvaluator(JsonPathBasedExpression expression, int slot) {
+        this.expression = expression;
+        this.slot = slot;
+        this.defaultResult = expression.isDefaultResult();
+    }
+
+    @Override
+    public boolean evaluate(EvaluationState state) {
+        final Object value = state.read(slot);
+        if (value == PathTable.MISSING) {
+            return defaultResult;
+        }
+        return expression.evaluateResolved(state.getContext(), value);
+    }
+}
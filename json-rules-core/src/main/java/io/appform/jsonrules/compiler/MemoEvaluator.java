@@ -0,0 +1,20 @@
+package io.appform.jsonrules.compiler;
+
+/**
+ * Evaluates a subexpression shared by several rules at most once per document, keeping its result in a slot of the
+ * {@link EvaluationState}, see {@link SharedSubexpressions}
+ */
+final class MemoEvaluator implements Evaluator {
+    private final Evaluator evaluator;
+    private final int slot;
+
+    MemoEvaluator(Evaluator evaluator, int slot) {
+        this.evaluator = evaluator;
+        this.slot = slot;
+    }
+
+    @Override
+    public boolean evaluate(EvaluationState state) {
+        return state.memoized(slot, evaluator);
+    }
+}
@@ -0,0 +1,285 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.appform.jsonrules.OptionKeys;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Evaluates a {@link CompiledRule} over every record of a newline delimited json file.
+ * <p>
+ * The file is split into chunks of about {@link Builder#chunkSize(int)} bytes, ending on line boundaries, that are
+ * memory mapped and scanned in parallel on a {@link ForkJoinPool}. The mapped bytes of a chunk are copied a block at a
+ * time into a reused array, and records are parsed from that block without being copied into strings or arrays of
+ * their own. Only the parts of them the rule needs are read, see {@link CompiledRule#evaluate(byte[])}. Only a few
+ * chunks per worker are in flight at any time.
+ * <p>
+ * Lines are separated by {@code \n}, a trailing {@code \r} is ignored, and empty lines are skipped. Line numbers start
+ * at 1 and offsets are the positions in bytes of the first byte of a record. A scanner is thread safe.
+ */
+public final class NdjsonScanner {
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int PENDING_CHUNKS_PER_WORKER = 4;
+    private static final int BOUNDARY_READ_SIZE = 8 * 1024;
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Receives the matching records of a scan, in file order, on the thread that started the scan
+     */
+    @FunctionalInterface
+    public interface MatchListener {
+        void onMatch(long line, long offset);
+    }
+
+    private final CompiledRule rule;
+    private final Map<OptionKeys, Object> options;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    private NdjsonScanner(CompiledRule rule, Map<OptionKeys, Object> options, ForkJoinPool pool, int chunkSize) {
+        this.rule = rule;
+        this.options = options;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Number of records matching the rule
+     * @throws IOException If the file can't be read or a record is not valid json
+     */
+    public long count(Path file) throws IOException {
+        final long[] matches = new long[1];
+        scan(file, (line, offset) -> matches[0]++);
+        return matches[0];
+    }
+
+    /**
+     * Scans a file, calling the listener for every record matching the rule
+     *
+     * @throws IOException If the file can't be read or a record is not valid json
+     */
+    public void scan(Path file, MatchListener listener) throws IOException {
+        final Deque<ForkJoinTask<ChunkMatches>> pending = new ArrayDeque<>();
+        final int maxPending = Math.max(2, pool.getParallelism() * PENDING_CHUNKS_PER_WORKER);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            long linesBefore = 0;
+            long start = 0;
+            while (start < size) {
+                final long end = nextLineStart(channel, Math.min(size, start + chunkSize), size);
+                if (end - start > Integer.MAX_VALUE) {
+                    throw new IOException("Record too large at offset " + start);
+                }
+                pending.add(pool.submit(ForkJoinTask.adapt(new ChunkTask(channel, start, (int) (end - start)))));
+                if (pending.size() >= maxPending) {
+                    linesBefore = report(pending.poll().join(), linesBefore, listener);
+                }
+                start = end;
+            }
+            while (!pending.isEmpty()) {
+                linesBefore = report(pending.poll().join(), linesBefore, listener);
+            }
+        } catch (UncheckedIOException e) {
+            pending.forEach(task -> task.cancel(false));
+            throw e.getCause();
+        } catch (RuntimeException | Error e) {
+            pending.forEach(task -> task.cancel(false));
+            throw e;
+        }
+    }
+
+    private static long report(ChunkMatches matches, long linesBefore, MatchListener listener) {
+        for (int i = 0; i < matches.count; i++) {
+            listener.onMatch(linesBefore + matches.lines[i] + 1, matches.offsets[i]);
+        }
+        return linesBefore + matches.lineCount;
+    }
+
+    // Start of the first line at or after the position
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position >= size) {
+            return size;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_READ_SIZE);
+        long current = position - 1;
+        while (current < size) {
+            // Called on Buffer, as the ByteBuffer override of clear doesn't exist on Java 8
+            ((Buffer) buffer).clear();
+            final int read = channel.read(buffer, current);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return current + i + 1;
+                }
+            }
+            current += read;
+        }
+        return size;
+    }
+
+    /**
+     * Matching records of a chunk, lines are relative to the start of the chunk
+     */
+    private static final class ChunkMatches {
+        private int[] lines = new int[16];
+        private long[] offsets = new long[16];
+        private int count;
+        private int lineCount;
+
+        private void add(int line, long offset) {
+            if (count == lines.length) {
+                lines = Arrays.copyOf(lines, 2 * count);
+                offsets = Arrays.copyOf(offsets, 2 * count);
+            }
+            lines[count] = line;
+            offsets[count] = offset;
+            count++;
+        }
+    }
+
+    private final class ChunkTask implements Callable<ChunkMatches> {
+        private final FileChannel channel;
+        private final long start;
+        private final int length;
+
+        private ChunkTask(FileChannel channel, long start, int length) {
+            this.channel = channel;
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public ChunkMatches call() {
+            final MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            final EvaluationSession session = new EvaluationSession(options);
+            final ChunkMatches matches = new ChunkMatches();
+            // Mapped bytes are copied in blocks, records are parsed from the block. Records that don't fit in a block
+            // are moved to its start, and the block grows if they don't fit in it at all.
+            byte[] block = new byte[Math.min(BLOCK_SIZE, length)];
+            long blockOffset = start;
+            int filled = 0;
+            int recordStart = 0;
+            int copied = 0;
+            while (true) {
+                final int read = Math.min(block.length - filled, length - copied);
+                buffer.get(block, filled, read);
+                copied += read;
+                for (int i = filled; i < filled + read; i++) {
+                    if (block[i] == '\n') {
+                        evaluate(session, block, recordStart, i, blockOffset, matches);
+                        recordStart = i + 1;
+                    }
+                }
+                filled += read;
+                if (copied == length) {
+                    if (recordStart < filled) {
+                        evaluate(session, block, recordStart, filled, blockOffset, matches);
+                    }
+                    return matches;
+                }
+                final int remaining = filled - recordStart;
+                if (remaining == block.length) {
+                    block = Arrays.copyOf(block, 2 * block.length);
+                } else {
+                    System.arraycopy(block, recordStart, block, 0, remaining);
+                }
+                blockOffset += recordStart;
+                filled = remaining;
+                recordStart = 0;
+            }
+        }
+
+        private void evaluate(EvaluationSession session,
+                              byte[] block,
+                              int recordStart,
+                              int recordEnd,
+                              long blockOffset,
+                              ChunkMatches matches) {
+            if (recordEnd > recordStart && block[recordEnd - 1] == '\r') {
+                recordEnd--;
+            }
+            if (recordEnd > recordStart) {
+                final JsonNode node;
+                try {
+                    node = rule.getProjection().read(block, recordStart, recordEnd - recordStart);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(
+                            new IOException("Invalid record at offset " + (blockOffset + recordStart), e));
+                }
+                if (session.evaluate(rule, node)) {
+                    matches.add(matches.lineCount, blockOffset + recordStart);
+                }
+            }
+            matches.lineCount++;
+        }
+    }
+
+    public static final class Builder {
+        private CompiledRule rule;
+        private Map<OptionKeys, Object> options = Collections.emptyMap();
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+        private Builder() {
+        }
+
+        public Builder rule(CompiledRule rule) {
+            this.rule = rule;
+            return this;
+        }
+
+        public Builder options(Map<OptionKeys, Object> options) {
+            this.options = options;
+            return this;
+        }
+
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Size in bytes of the chunks the file is split into, each chunk is scanned by one task
+         */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public NdjsonScanner build() {
+            if (null == rule || null == pool) {
+                throw new IllegalArgumentException("Rule and fork join pool are required");
+            }
+            if (chunkSize <= 0) {
+                throw new IllegalArgumentException("Chunk size must be positive");
+            }
+            return new NdjsonScanner(rule, options, pool, chunkSize);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.appform.jsonrules.compiler;
+
+/**
+ * True if none of the children are true, stops at the first true child
+ */
+final class NotEvaluator implements Evaluator {
+    private final Evaluator[] children;
+
+    NotEvaluator(Evaluator[] children) {
+        this.children = children;
+    }
+
+    @Override
+    public boolean evaluate(EvaluationState state) {
+        for (Evaluator child : children) {
+            if (child.evaluate(state)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
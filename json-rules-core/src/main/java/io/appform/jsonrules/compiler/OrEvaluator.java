@@ -0,0 +1,22 @@
+package io.appform.jsonrules.compiler;
+
+/**
+ * True if any child is true, stops at the first true child
+ */
+final class OrEvaluator implements Evaluator {
+    private final Evaluator[] children;
+
+    OrEvaluator(Evaluator[] children) {
+        this.children = children;
+    }
+
+    @Override
+    public boolean evaluate(EvaluationState state) {
+        for (Evaluator child : children) {
+            if (child.evaluate(state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
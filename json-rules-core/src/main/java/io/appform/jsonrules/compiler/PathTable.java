@@ -0,0 +1,133 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import io.appform.jsonrules.jsonpath.resolvers.PathResolver;
+import io.appform.jsonrules.jsonpath.resolvers.SimplePathResolver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns a slot to every distinct json path read by a rule, so that each path is resolved at most once per
+ * evaluation no matter how many leaves read it.
+ * <p>
+ * Simple paths are arranged in a trie, with one slot per node, so that shared prefixes like {@code $.fees} in
+ * {@code $.fees.totalAmount} and {@code $.fees.currency} are navigated once as well. Other paths get a slot per
+ * distinct path and are read by their own resolver. Slots are resolved lazily, so paths that are only read by
+ * short-circuited branches never touch the document.
+ */
+final class PathTable {
+    // Value of a slot for a path that doesn't exist in the document
+    static final Object MISSING = PathResolver.MISSING;
+    // Stored for paths resolving to java null, to tell them apart from unresolved slots
+    private static final Object NULL = new Object();
+    private static final int ROOT = 0;
+
+    private final Slot[] slots;
+
+    private PathTable(Slot[] slots) {
+        this.slots = slots;
+    }
+
+    int size() {
+        return slots.length;
+    }
+
+    /**
+     * Value of a path in the same form the path resolver would have returned it, or {@link #MISSING}
+     */
+    Object read(EvaluationState state, int slot) {
+        final Object value = value(state, slot);
+        if (value == MISSING) {
+            final Slot entry = slots[slot];
+            // Simple paths ending in an out of range index read as null
+            if (entry.parent >= 0 && null == entry.name) {
+                final Object parent = value(state, entry.parent);
+                if (parent != MISSING && ((JsonNode) parent).isArray()) {
+                    return NullNode.getInstance();
+                }
+            }
+        }
+        return value;
+    }
+
+    private Object value(EvaluationState state, int slot) {
+        final Object value = state.values[slot];
+        if (null != value) {
+            return value == NULL ? null : value;
+        }
+        final Object resolved = resolve(state, slot);
+        state.values[slot] = null == resolved ? NULL : resolved;
+        return resolved;
+    }
+
+    private Object resolve(EvaluationState state, int slot) {
+        final JsonNode node = state.getContext().getNode();
+        if (slot == ROOT) {
+            return node;
+        }
+        final Slot entry = slots[slot];
+        if (null != entry.resolver) {
+            return entry.resolver.readIfPresent(node);
+        }
+        final Object parent = value(state, entry.parent);
+        if (parent == MISSING) {
+            return MISSING;
+        }
+        final JsonNode child = SimplePathResolver.step((JsonNode) parent, entry.name, entry.index);
+        return null == child ? MISSING : child;
+    }
+
+    private static final class Slot {
+        // Trie parent of a simple path segment, -1 for the root and for paths read by a resolver
+        private final int parent;
+        private final String name;
+        private final int index;
+        private final PathResolver resolver;
+        private final Map<Object, Integer> children = new HashMap<>();
+
+        private Slot(int parent, String name, int index, PathResolver resolver) {
+            this.parent = parent;
+            this.name = name;
+            this.index = index;
+            this.resolver = resolver;
+        }
+    }
+
+    static final class Builder {
+        private final List<Slot> slots = new ArrayList<>();
+        private final Map<String, Integer> resolved = new HashMap<>();
+
+        Builder() {
+            slots.add(new Slot(-1, null, 0, null));
+        }
+
+        int slotFor(PathResolver resolver) {
+            if (!(resolver instanceof SimplePathResolver)) {
+                return resolved.computeIfAbsent(resolver.getPath(), path -> add(new Slot(-1, null, 0, resolver)));
+            }
+            final SimplePathResolver simplePath = (SimplePathResolver) resolver;
+            int current = ROOT;
+            for (int i = 0; i < simplePath.getDepth(); i++) {
+                final String name = simplePath.getName(i);
+                final int index = simplePath.getIndex(i);
+                final int parent = current;
+                current = slots.get(parent).children.computeIfAbsent(null != name ? name : Integer.valueOf(index),
+                                                                     key -> add(new Slot(parent, name, index, null)));
+            }
+            return current;
+        }
+
+        PathTable build() {
+            return new PathTable(slots.toArray(new Slot[0]));
+        }
+
+        private int add(Slot slot) {
+            slots.add(slot);
+            return slots.size() - 1;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.config.JacksonConfiguration;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+import io.appform.jsonrules.expressions.composite.CompositeExpression;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The json paths a set of expressions reads from documents: the path of every leaf, and the path its comparison value
+ * is read from when the value is extracted from the document, like {@code value} with {@code extractValueFromPath} or
+ * {@code valuesPath} with {@code extractValues}.
+ * <p>
+ * Used to trim documents down to the parts the expressions can read, before parsing them or sending them elsewhere.
+ * Documents parsed through {@link #filter(JsonParser)} evaluate exactly like the full documents. Paths other than
+ * simple ones, see {@link io.appform.jsonrules.jsonpath.resolvers.SimplePathResolver}, and expressions of types that
+ * are not based on json paths, need the full document.
+ */
+public final class ReferencedPaths {
+    /**
+     * Paths read by the expressions, in the order they appear in
+     */
+    @Getter
+    private final Set<String> paths;
+    /**
+     * Whether all paths are known. Expressions that are not based on json paths may read any part of a document.
+     */
+    @Getter
+    private final boolean complete;
+    private final TokenFilter filter;
+
+    private ReferencedPaths(Set<String> paths, boolean complete, TokenFilter filter) {
+        this.paths = paths;
+        this.complete = complete;
+        this.filter = filter;
+    }
+
+    public static ReferencedPaths of(Expression expression) {
+        return of(Collections.singletonList(expression));
+    }
+
+    public static ReferencedPaths of(Iterable<? extends Expression> expressions) {
+        final Set<String> paths = new LinkedHashSet<>();
+        final DocumentProjection.Builder projection = new DocumentProjection.Builder();
+        boolean complete = true;
+        for (Expression expression : expressions) {
+            complete &= add(expression, paths, projection);
+        }
+        return new ReferencedPaths(Collections.unmodifiableSet(paths),
+                                   complete,
+                                   projection.build(JacksonConfiguration.getInstance().getObjectMapper())
+                                           .tokenFilter());
+    }
+
+    /**
+     * @return Whether the expressions may read any part of documents, so that nothing can be filtered out
+     */
+    public boolean needsFullDocument() {
+        return filter == TokenFilter.INCLUDE_ALL;
+    }
+
+    /**
+     * Filter keeping the parts of a document the expressions can read, along with the objects on the way to them.
+     * To be used with {@link TokenFilter.Inclusion#INCLUDE_ALL_AND_PATH}. Arrays read at an index are kept in full, and
+     * objects without any of the paths read are left out, as are documents without any of them.
+     */
+    public TokenFilter tokenFilter() {
+        return filter;
+    }
+
+    /**
+     * Wraps a parser so that it only returns the tokens of the parts of the document the expressions can read
+     *
+     * @param parser Parser of a single document, or of a sequence of root level documents
+     * @return A parser to read documents from, for example with
+     * {@link com.fasterxml.jackson.databind.ObjectMapper#readTree(JsonParser)}
+     */
+    public JsonParser filter(JsonParser parser) {
+        return needsFullDocument()
+               ? parser
+               : new FilteringParserDelegate(parser, filter, TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true);
+    }
+
+    // Adds the paths of an expression, returns false if it contains expressions without known paths
+    private static boolean add(Expression expression, Set<String> paths, DocumentProjection.Builder projection) {
+        if (expression instanceof CompositeExpression) {
+            final List<Expression> children = ((CompositeExpression) expression).getChildren();
+            boolean known = true;
+            if (null != children) {
+                for (Expression child : children) {
+                    known &= add(child, paths, projection);
+                }
+            }
+            return known;
+        }
+        if (expression instanceof JsonPathBasedExpression) {
+            final JsonPathBasedExpression leaf = (JsonPathBasedExpression) expression;
+            paths.add(leaf.getPath());
+            projection.add(leaf.getPath());
+            leaf.accept(ValuePathVisitor.INSTANCE, null).ifPresent(path -> {
+                paths.add(path);
+                projection.add(path);
+            });
+            return true;
+        }
+        projection.fullDocument();
+        return false;
+    }
+}
@@ -0,0 +1,217 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+import io.appform.jsonrules.expressions.composite.CompositeExpression;
+import io.appform.jsonrules.expressions.preoperation.PreOperation;
+import io.appform.jsonrules.expressions.preoperation.date.DiffFromCurrentEpochOperation;
+import io.appform.jsonrules.utils.CacheUtils;
+import io.appform.jsonrules.utils.JsonPathUtils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size bounded cache of evaluation results, keyed by the values of all the paths the cached rules read from a
+ * document. Documents that only differ in fields no rule reads, like timestamps or request ids, reuse the result of
+ * the first of them that was evaluated.
+ * <p>
+ * Only rules made of the expression and preoperation types declared by {@link Expression} and {@link PreOperation}
+ * can be cached, as their results depend on nothing but the values at their paths. Rules that compare against the
+ * current time, see {@link DiffFromCurrentEpochOperation}, are never cached. Results are only cached when the
+ * evaluation succeeds. Values read from documents are copied into the cache, so documents can be modified afterwards.
+ */
+final class ResultCache<T> {
+    // Rough sizes of the objects making up an entry on a 64 bit JVM with compressed pointers
+    private static final long ENTRY_BYTES = 96;
+    private static final long NODE_BYTES = 24;
+    private static final long REFERENCE_BYTES = 4;
+
+    private final int[] slots;
+    private final long maximumSize;
+    private final ToLongFunction<T> resultBytes;
+    private final Cache<Key, Entry<T>> cache;
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder bypasses = new LongAdder();
+
+    /**
+     * @param slots       Slots of the paths read by the cached rules
+     * @param maximumSize Largest number of results kept
+     * @param resultBytes Estimated size of a result in bytes
+     */
+    ResultCache(int[] slots, long maximumSize, ToLongFunction<T> resultBytes) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size of the cache must be positive");
+        }
+        this.slots = slots;
+        this.maximumSize = maximumSize;
+        this.resultBytes = resultBytes;
+        this.cache = CacheUtils.newBoundedBuilder(maximumSize)
+                .recordStats()
+                .<Key, Entry<T>>removalListener(notification -> bytes.add(-notification.getValue().bytes))
+                .build();
+    }
+
+    /**
+     * Adds the slots of all the paths an expression reads
+     *
+     * @return Whether the result of the expression only depends on the values of those paths
+     */
+    static boolean addSlots(Expression expression, PathTable.Builder paths, BitSet slots) {
+        if (!SharedSubexpressions.isKnownType(expression)) {
+            return false;
+        }
+        if (expression instanceof CompositeExpression) {
+            final Iterable<Expression> children = ((CompositeExpression) expression).getChildren();
+            if (null != children) {
+                for (Expression child : children) {
+                    if (!addSlots(child, paths, slots)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        if (!(expression instanceof JsonPathBasedExpression)) {
+            return false;
+        }
+        final JsonPathBasedExpression leaf = (JsonPathBasedExpression) expression;
+        final PreOperation<?> preoperation = leaf.getPreoperation();
+        if (null != preoperation
+                && (!SharedSubexpressions.isKnownType(preoperation)
+                || preoperation instanceof DiffFromCurrentEpochOperation)) {
+            return false;
+        }
+        try {
+            slots.set(paths.slotFor(JsonPathUtils.compile(leaf.getPath())));
+            leaf.accept(ValuePathVisitor.INSTANCE, null)
+                    .ifPresent(path -> slots.set(paths.slotFor(JsonPathUtils.compile(path))));
+        } catch (RuntimeException e) {
+            // Invalid paths fail when evaluated
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Result for the values the document in the state has at the cached paths, evaluated on a miss
+     */
+    T evaluate(EvaluationState state, Function<EvaluationState, T> evaluation) {
+        final Key key;
+        try {
+            key = key(state);
+        } catch (RuntimeException e) {
+            // Paths that fail to resolve may not be read by the evaluation at all
+            bypasses.increment();
+            return evaluation.apply(state);
+        }
+        final Entry<T> cached = cache.getIfPresent(key);
+        if (null != cached) {
+            return cached.result;
+        }
+        final T result = evaluation.apply(state);
+        final Key copy = key.copy();
+        final Entry<T> entry = new Entry<>(result, copy.bytes() + resultBytes.applyAsLong(result));
+        if (null == cache.asMap().putIfAbsent(copy, entry)) {
+            bytes.add(entry.bytes);
+        }
+        return result;
+    }
+
+    ResultCacheStatistics stats() {
+        final CacheStats stats = cache.stats();
+        return ResultCacheStatistics.builder()
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .bypassCount(bypasses.sum())
+                .size(cache.size())
+                .maximumSize(maximumSize)
+                .estimatedBytes(bytes.sum())
+                .build();
+    }
+
+    private Key key(EvaluationState state) {
+        final Object[] values = new Object[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            values[i] = state.read(slots[i]);
+        }
+        return new Key(values);
+    }
+
+    private static final class Entry<T> {
+        private final T result;
+        private final long bytes;
+
+        private Entry(T result, long bytes) {
+            this.result = result;
+            this.bytes = bytes;
+        }
+    }
+
+    // Values of the cached paths, PathTable.MISSING for paths that don't exist in the document
+    private static final class Key {
+        private final Object[] values;
+        private final int hash;
+
+        private Key(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        private Key copy() {
+            final Object[] copies = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                copies[i] = values[i] instanceof JsonNode && ((JsonNode) values[i]).isContainerNode()
+                            ? ((JsonNode) values[i]).deepCopy()
+                            : values[i];
+            }
+            return new Key(copies);
+        }
+
+        private long bytes() {
+            long total = ENTRY_BYTES + REFERENCE_BYTES * values.length;
+            for (Object value : values) {
+                total += value instanceof JsonNode ? bytes((JsonNode) value) : 0;
+            }
+            return total;
+        }
+
+        private static long bytes(JsonNode node) {
+            if (node.isObject()) {
+                long total = NODE_BYTES * 2;
+                for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+                    final Map.Entry<String, JsonNode> field = fields.next();
+                    total += NODE_BYTES * 2 + field.getKey().length() + bytes(field.getValue());
+                }
+                return total;
+            }
+            if (node.isArray()) {
+                long total = NODE_BYTES * 2;
+                for (JsonNode element : node) {
+                    total += REFERENCE_BYTES + bytes(element);
+                }
+                return total;
+            }
+            return node.isTextual() ? NODE_BYTES * 2 + node.textValue().length() : NODE_BYTES;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || (other instanceof Key && Arrays.equals(values, ((Key) other).values));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package io.appform.jsonrules.compiler;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Point in time statistics of the result cache of a {@link CompiledRule} or {@link RuleSet}
+ */
+@Value
+@Builder
+public class ResultCacheStatistics {
+    long hitCount;
+    long missCount;
+    long evictionCount;
+    // Evaluations that skipped the cache because a path read by the rules couldn't be resolved
+    long bypassCount;
+    long size;
+    long maximumSize;
+    // Rough estimate of the memory held by the cached values and results
+    long estimatedBytes;
+
+    public double hitRate() {
+        final long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+}
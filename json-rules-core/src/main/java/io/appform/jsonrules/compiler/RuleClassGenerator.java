@@ -0,0 +1,374 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.ExpressionEvaluationContext;
+import io.appform.jsonrules.compiler.internal.GeneratedEvaluator;
+import io.appform.jsonrules.compiler.internal.GeneratedState;
+import io.appform.jsonrules.compiler.internal.RuleClassLoader;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+import io.appform.jsonrules.expressions.composite.CompositeExpression;
+import io.appform.jsonrules.expressions.numeric.BetweenExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanExpression;
+import io.appform.jsonrules.expressions.numeric.NumericJsonPathBasedExpression;
+import io.appform.jsonrules.utils.JsonPathUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.objectweb.asm.ClassTooLargeException;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates a class evaluating one rule as straight line code.
+ * <p>
+ * And, or and not become jumps, so short-circuiting costs a branch instead of a loop over children. Every leaf reads
+ * its path from its {@link PathTable} slot and calls its expression, held in a static final field typed with the class
+ * of the expression, so that the JIT sees constants and a call site of its own for each leaf instead of the shared,
+ * megamorphic call sites of the evaluator tree. Numeric comparisons against literal numbers, without preoperation, are
+ * inlined with the literals as constants of the code. Expressions the compiler doesn't know about are called as they
+ * are, see {@link DelegatingEvaluator}.
+ * <p>
+ * Each class is defined by a class loader of its own, and is unloaded once its rule is no longer reachable.
+ */
+@Slf4j
+final class RuleClassGenerator {
+    private static final String PACKAGE = "io/appform/jsonrules/compiler/generated/";
+    private static final String BASE = Type.getInternalName(GeneratedEvaluator.class);
+    private static final String JSON_NODE = Type.getInternalName(JsonNode.class);
+    private static final String STATE_TYPE = Type.getInternalName(GeneratedState.class);
+    private static final String READ = Type.getMethodDescriptor(Type.getType(Object.class), Type.INT_TYPE);
+    private static final String CONTEXT = Type.getMethodDescriptor(Type.getType(ExpressionEvaluationContext.class));
+    private static final String EVALUATE = Type.getMethodDescriptor(Type.BOOLEAN_TYPE,
+                                                                    Type.getType(ExpressionEvaluationContext.class));
+    private static final String EVALUATE_RESOLVED = Type.getMethodDescriptor(
+            Type.BOOLEAN_TYPE, Type.getType(ExpressionEvaluationContext.class), Type.getType(Object.class));
+    // Locals of the generated evaluation method
+    private static final int STATE = 1;
+    private static final int VALUE = 2;
+    private static final AtomicLong CLASSES = new AtomicLong();
+
+    private final String name = PACKAGE + "Rule$" + CLASSES.incrementAndGet();
+    private final PathTable.Builder paths;
+    private final List<Object> constants = new ArrayList<>();
+    private final List<Class<?>> constantTypes = new ArrayList<>();
+    private MethodVisitor method;
+
+    private RuleClassGenerator(PathTable.Builder paths) {
+        this.paths = paths;
+    }
+
+    /**
+     * @return Evaluator of a generated class, or null if the rule is too large for the code of a single method
+     */
+    static Evaluator generate(Expression expression, PathTable.Builder paths) {
+        return new RuleClassGenerator(paths).generate(expression);
+    }
+
+    private Evaluator generate(Expression expression) {
+        final byte[] bytes;
+        try {
+            bytes = generateClass(expression);
+        } catch (MethodTooLargeException | ClassTooLargeException e) {
+            log.warn("Rule is too large to generate a class for, using the evaluator tree: {}", e.getMessage());
+            return null;
+        }
+        final RuleClassLoader loader = new RuleClassLoader(constants.toArray());
+        try {
+            final GeneratedEvaluator generated = loader.define(name.replace('/', '.'), bytes)
+                    .getConstructor()
+                    .newInstance();
+            return generated::evaluate;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not instantiate generated rule class " + name, e);
+        }
+    }
+
+    private byte[] generateClass(Expression expression) {
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            // Only locals of the same type meet at jumps, no class needs to be loaded to merge them
+            @Override
+            protected String getCommonSuperClass(String first, String second) {
+                return Type.getInternalName(Object.class);
+            }
+        };
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, name, null, BASE, null);
+
+        final MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, BASE, "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        method = writer.visitMethod(Opcodes.ACC_PUBLIC, "evaluate",
+                                    Type.getMethodDescriptor(Type.BOOLEAN_TYPE, Type.getObjectType(STATE_TYPE)),
+                                    null, null);
+        method.visitCode();
+        final Label isTrue = new Label();
+        final Label isFalse = new Label();
+        generate(expression, isTrue, isFalse);
+        method.visitLabel(isTrue);
+        method.visitInsn(Opcodes.ICONST_1);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitLabel(isFalse);
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        final MethodVisitor initializer = writer.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+        initializer.visitCode();
+        initializer.visitLdcInsn(Type.getObjectType(name));
+        initializer.visitMethodInsn(Opcodes.INVOKESTATIC, BASE, "constants",
+                                    Type.getMethodDescriptor(Type.getType(Object[].class), Type.getType(Class.class)),
+                                    false);
+        for (int i = 0; i < constants.size(); i++) {
+            final String type = Type.getInternalName(constantTypes.get(i));
+            writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, constant(i),
+                              Type.getObjectType(type).getDescriptor(), null, null).visitEnd();
+            initializer.visitInsn(Opcodes.DUP);
+            initializer.visitLdcInsn(i);
+            initializer.visitInsn(Opcodes.AALOAD);
+            initializer.visitTypeInsn(Opcodes.CHECKCAST, type);
+            initializer.visitFieldInsn(Opcodes.PUTSTATIC, name, constant(i), Type.getObjectType(type).getDescriptor());
+        }
+        initializer.visitInsn(Opcodes.POP);
+        initializer.visitInsn(Opcodes.RETURN);
+        initializer.visitMaxs(0, 0);
+        initializer.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    // Jumps to isTrue or isFalse depending on the result of the expression, same tree as ExpressionCompiler builds
+    private void generate(Expression expression, Label isTrue, Label isFalse) {
+        if (expression instanceof JsonPathBasedExpression) {
+            generateLeaf((JsonPathBasedExpression) expression, isTrue, isFalse);
+            return;
+        }
+        if (!(expression instanceof CompositeExpression)) {
+            generateDelegate(expression, isTrue, isFalse);
+            return;
+        }
+        final List<Expression> children = ((CompositeExpression) expression).getChildren();
+        if (null == children) {
+            method.visitJumpInsn(Opcodes.GOTO, isFalse);
+            return;
+        }
+        switch (expression.getType()) {
+            case and:
+                for (Expression child : children) {
+                    final Label next = new Label();
+                    generate(child, next, isFalse);
+                    method.visitLabel(next);
+                }
+                method.visitJumpInsn(Opcodes.GOTO, isTrue);
+                break;
+            case or:
+                for (Expression child : children) {
+                    final Label next = new Label();
+                    generate(child, isTrue, next);
+                    method.visitLabel(next);
+                }
+                method.visitJumpInsn(Opcodes.GOTO, isFalse);
+                break;
+            case not:
+                for (Expression child : children) {
+                    final Label next = new Label();
+                    generate(child, isFalse, next);
+                    method.visitLabel(next);
+                }
+                method.visitJumpInsn(Opcodes.GOTO, isTrue);
+                break;
+            default:
+                generateDelegate(expression, isTrue, isFalse);
+                break;
+        }
+    }
+
+    private void generateLeaf(JsonPathBasedExpression expression, Label isTrue, Label isFalse) {
+        final int slot = paths.slotFor(JsonPathUtils.compile(expression.getPath()));
+        method.visitVarInsn(Opcodes.ALOAD, STATE);
+        method.visitLdcInsn(slot);
+        method.visitMethodInsn(Opcodes.INVOKEINTERFACE, STATE_TYPE, "read", READ, true);
+        method.visitVarInsn(Opcodes.ASTORE, VALUE);
+        method.visitVarInsn(Opcodes.ALOAD, VALUE);
+        method.visitFieldInsn(Opcodes.GETSTATIC, BASE, "MISSING", Type.getDescriptor(Object.class));
+        method.visitJumpInsn(Opcodes.IF_ACMPEQ, expression.isDefaultResult() ? isTrue : isFalse);
+        if (null == expression.getPreoperation()) {
+            if (expression.getClass() == BetweenExpression.class) {
+                generateBetween((BetweenExpression) expression, isTrue, isFalse);
+            } else if (isComparisonWithLiteral(expression)) {
+                generateComparison((NumericJsonPathBasedExpression) expression, isTrue, isFalse);
+            }
+        }
+        final Class<?> type = visibleType(expression.getClass(), JsonPathBasedExpression.class);
+        method.visitFieldInsn(Opcodes.GETSTATIC, name, constant(expression, type), Type.getDescriptor(type));
+        method.visitVarInsn(Opcodes.ALOAD, STATE);
+        method.visitMethodInsn(Opcodes.INVOKEINTERFACE, STATE_TYPE, "getContext", CONTEXT, true);
+        method.visitVarInsn(Opcodes.ALOAD, VALUE);
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(type), "evaluateResolved",
+                               EVALUATE_RESOLVED, false);
+        branch(isTrue, isFalse);
+    }
+
+    private void generateDelegate(Expression expression, Label isTrue, Label isFalse) {
+        final Class<?> type = visibleType(expression.getClass(), Expression.class);
+        method.visitFieldInsn(Opcodes.GETSTATIC, name, constant(expression, type), Type.getDescriptor(type));
+        method.visitVarInsn(Opcodes.ALOAD, STATE);
+        method.visitMethodInsn(Opcodes.INVOKEINTERFACE, STATE_TYPE, "getContext", CONTEXT, true);
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(type), "evaluate", EVALUATE, false);
+        branch(isTrue, isFalse);
+    }
+
+    // Exact classes only, subclasses may compare differently
+    private static boolean isComparisonWithLiteral(JsonPathBasedExpression expression) {
+        final Class<?> type = expression.getClass();
+        if (type != GreaterThanExpression.class && type != GreaterThanEqualsExpression.class
+                && type != LessThanExpression.class && type != LessThanEqualsExpression.class) {
+            return false;
+        }
+        final NumericJsonPathBasedExpression comparison = (NumericJsonPathBasedExpression) expression;
+        return !comparison.isExtractValueFromPath() && comparison.getValue() instanceof Number;
+    }
+
+    /*
+     * Same as NumericJsonPathBasedExpression for json nodes: numbers are compared as longs or doubles, anything else
+     * is false. Values that aren't json nodes fall through to the expression.
+     */
+    private void generateComparison(NumericJsonPathBasedExpression expression, Label isTrue, Label isFalse) {
+        final Number literal = (Number) expression.getValue();
+        final int matches = comparisonJump(expression);
+        final Label floatingPoint = new Label();
+        final Label notNode = new Label();
+        generateNumberCheck(isFalse, floatingPoint, notNode);
+        method.visitLdcInsn(literal.longValue());
+        method.visitInsn(Opcodes.LCMP);
+        method.visitJumpInsn(matches, isTrue);
+        method.visitJumpInsn(Opcodes.GOTO, isFalse);
+        method.visitLabel(floatingPoint);
+        loadNode();
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, JSON_NODE, "asDouble", "()D", false);
+        method.visitLdcInsn(literal.doubleValue());
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(Double.class), "compare", "(DD)I", false);
+        method.visitJumpInsn(matches, isTrue);
+        method.visitJumpInsn(Opcodes.GOTO, isFalse);
+        method.visitLabel(notNode);
+    }
+
+    // Same as BetweenExpression for json nodes, see generateComparison
+    private void generateBetween(BetweenExpression expression, Label isTrue, Label isFalse) {
+        final Number lower = expression.getLowerBound();
+        final Number upper = expression.getUpperBound();
+        if (null == lower || null == upper) {
+            return;
+        }
+        final Label floatingPoint = new Label();
+        final Label notNode = new Label();
+        generateNumberCheck(isFalse, floatingPoint, notNode);
+        method.visitVarInsn(Opcodes.LSTORE, VALUE + 1);
+        method.visitVarInsn(Opcodes.LLOAD, VALUE + 1);
+        method.visitLdcInsn(lower.longValue());
+        method.visitInsn(Opcodes.LCMP);
+        method.visitJumpInsn(expression.isIncludeLowerBound() ? Opcodes.IFLT : Opcodes.IFLE, isFalse);
+        method.visitVarInsn(Opcodes.LLOAD, VALUE + 1);
+        method.visitLdcInsn(upper.longValue());
+        method.visitInsn(Opcodes.LCMP);
+        method.visitJumpInsn(expression.isIncludeUpperBound() ? Opcodes.IFGT : Opcodes.IFGE, isFalse);
+        method.visitJumpInsn(Opcodes.GOTO, isTrue);
+        method.visitLabel(floatingPoint);
+        loadNode();
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, JSON_NODE, "doubleValue", "()D", false);
+        method.visitVarInsn(Opcodes.DSTORE, VALUE + 1);
+        // Comparisons with NaN are false on both bounds
+        method.visitVarInsn(Opcodes.DLOAD, VALUE + 1);
+        method.visitLdcInsn(lower.doubleValue());
+        method.visitInsn(Opcodes.DCMPL);
+        method.visitJumpInsn(expression.isIncludeLowerBound() ? Opcodes.IFLT : Opcodes.IFLE, isFalse);
+        method.visitVarInsn(Opcodes.DLOAD, VALUE + 1);
+        method.visitLdcInsn(upper.doubleValue());
+        method.visitInsn(Opcodes.DCMPG);
+        method.visitJumpInsn(expression.isIncludeUpperBound() ? Opcodes.IFGT : Opcodes.IFGE, isFalse);
+        method.visitJumpInsn(Opcodes.GOTO, isTrue);
+        method.visitLabel(notNode);
+    }
+
+    /*
+     * Jumps to notNode for values that aren't json nodes and to isFalse for nodes that aren't numbers. Falls through
+     * with the long value of integral numbers on the stack, and jumps to floatingPoint for other numbers.
+     */
+    private void generateNumberCheck(Label isFalse, Label floatingPoint, Label notNode) {
+        method.visitVarInsn(Opcodes.ALOAD, VALUE);
+        method.visitTypeInsn(Opcodes.INSTANCEOF, JSON_NODE);
+        method.visitJumpInsn(Opcodes.IFEQ, notNode);
+        loadNode();
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, JSON_NODE, "isNumber", "()Z", false);
+        method.visitJumpInsn(Opcodes.IFEQ, isFalse);
+        loadNode();
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, JSON_NODE, "isIntegralNumber", "()Z", false);
+        method.visitJumpInsn(Opcodes.IFEQ, floatingPoint);
+        loadNode();
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, JSON_NODE, "asLong", "()J", false);
+    }
+
+    private void loadNode() {
+        method.visitVarInsn(Opcodes.ALOAD, VALUE);
+        method.visitTypeInsn(Opcodes.CHECKCAST, JSON_NODE);
+    }
+
+    // Jump taken on the result of comparing the value with the literal when the comparison matches
+    private static int comparisonJump(NumericJsonPathBasedExpression expression) {
+        if (expression instanceof GreaterThanExpression) {
+            return Opcodes.IFGT;
+        }
+        if (expression instanceof GreaterThanEqualsExpression) {
+            return Opcodes.IFGE;
+        }
+        if (expression instanceof LessThanExpression) {
+            return Opcodes.IFLT;
+        }
+        return Opcodes.IFLE;
+    }
+
+    private void branch(Label isTrue, Label isFalse) {
+        method.visitJumpInsn(Opcodes.IFNE, isTrue);
+        method.visitJumpInsn(Opcodes.GOTO, isFalse);
+    }
+
+    private String constant(Object value, Class<?> type) {
+        constants.add(value);
+        constantTypes.add(type);
+        return constant(constants.size() - 1);
+    }
+
+    private static String constant(int index) {
+        return "expression" + index;
+    }
+
+    // Classes of user defined expressions may not be accessible from generated classes
+    private static Class<?> visibleType(Class<?> type, Class<?> fallback) {
+        if (!Modifier.isPublic(type.getModifiers()) || null != type.getEnclosingClass()) {
+            return fallback;
+        }
+        try {
+            return Class.forName(type.getName(), false, GeneratedEvaluator.class.getClassLoader()) == type
+                   ? type
+                   : fallback;
+        } catch (ClassNotFoundException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.NumericNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+import io.appform.jsonrules.expressions.array.InExpression;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.numeric.BetweenExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanExpression;
+import io.appform.jsonrules.expressions.numeric.NumericJsonPathBasedExpression;
+import io.appform.jsonrules.utils.ComparisonUtils;
+import io.appform.jsonrules.utils.JsonPathUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the rules of a {@link RuleSet} that can possibly match a document, without evaluating all of them.
+ * <p>
+ * A rule is indexed on the first leaf it evaluates, that is the rule itself or the first child of a chain of
+ * {@link AndExpression}s, when that leaf is an {@link EqualsExpression}, {@link InExpression} or a numeric
+ * comparison against literal values. If that leaf is false, the rule is false without evaluating anything else, so
+ * such rules can be skipped based on a lookup of the value at the path of the leaf:
+ * <ul>
+ *     <li>Equality leaves are looked up in hash indices per path, with separate keys for text, boolean, integral and
+ *     floating point values that follow the comparison rules of {@link ComparisonUtils#compare(JsonNode, Object)}</li>
+ *     <li>Numeric comparisons are looked up in an interval index per path</li>
+ * </ul>
+ * Rules that are not indexed, and rules whose outcome can't be decided from the index (for example because the
+ * comparison would fail), are always candidates and are evaluated in full.
+ */
+final class RuleIndex {
+    private final PathIndex[] paths;
+    private final BitSet unindexed;
+
+    private RuleIndex(PathIndex[] paths, BitSet unindexed) {
+        this.paths = paths;
+        this.unindexed = unindexed;
+    }
+
+    /**
+     * @return Rules that may match the document, as a new bit set
+     */
+    BitSet candidates(EvaluationState state) {
+        final BitSet candidates = (BitSet) unindexed.clone();
+        for (PathIndex path : paths) {
+            path.addCandidates(state, candidates);
+        }
+        return candidates;
+    }
+
+    private static final class PathIndex {
+        private final int slot;
+        private final int[] equalityRules;
+        private final int[] rangeRules;
+        private final int[] defaultTrueRules;
+        private final Map<String, int[]> byText;
+        private final int[] trueRules;
+        private final int[] falseRules;
+        private final Map<Long, int[]> byIntegral;
+        private final Map<Double, int[]> byFloatingPoint;
+        // Equality rules whose comparison fails on numbers
+        private final int[] numericFailureRules;
+        private final RangeIndex integralRanges;
+        private final RangeIndex floatingPointRanges;
+
+        private PathIndex(PathIndexBuilder builder) {
+            this.slot = builder.slot;
+            this.equalityRules = toArray(builder.equalityRules);
+            this.rangeRules = toArray(builder.rangeRules);
+            this.defaultTrueRules = toArray(builder.defaultTrueRules);
+            this.byText = freeze(builder.byText);
+            this.trueRules = toArray(builder.trueRules);
+            this.falseRules = toArray(builder.falseRules);
+            this.byIntegral = freeze(builder.byIntegral);
+            this.byFloatingPoint = freeze(builder.byFloatingPoint);
+            this.numericFailureRules = toArray(builder.numericFailureRules);
+            this.integralRanges = new RangeIndex(builder.integralRanges);
+            this.floatingPointRanges = new RangeIndex(builder.floatingPointRanges);
+        }
+
+        private void addCandidates(EvaluationState state, BitSet candidates) {
+            final Object value = state.read(slot);
+            if (value == PathTable.MISSING) {
+                set(candidates, defaultTrueRules);
+                return;
+            }
+            if (!(value instanceof JsonNode)) {
+                set(candidates, equalityRules);
+                set(candidates, rangeRules);
+                return;
+            }
+            final JsonNode node = (JsonNode) value;
+            if (ComparisonUtils.isNodeMissingOrNull(node)) {
+                return;
+            }
+            if (node.isTextual()) {
+                set(candidates, byText.get(node.asText()));
+            } else if (node.isBoolean()) {
+                set(candidates, node.booleanValue() ? trueRules : falseRules);
+            } else if (node.isIntegralNumber()) {
+                final long number = node.asLong();
+                set(candidates, byIntegral.get(number));
+                set(candidates, numericFailureRules);
+                integralRanges.addCandidates(number, candidates);
+            } else if (node.isFloatingPointNumber()) {
+                final double number = node.asDouble();
+                set(candidates, byFloatingPoint.get(number));
+                set(candidates, numericFailureRules);
+                if (Double.isNaN(number) || number == 0.0) {
+                    // Comparisons differ between expressions for these, let the rules decide
+                    set(candidates, rangeRules);
+                } else {
+                    floatingPointRanges.addCandidates(sortable(number), candidates);
+                }
+            } else if (!node.isNumber()) {
+                // Objects fail comparisons and other nodes compare as equal to everything
+                set(candidates, equalityRules);
+            }
+        }
+    }
+
+    /**
+     * Finds the intervals containing a point. Intervals are sorted by lower bound, a segment tree over the upper
+     * bounds is used to skip the ones ending before the point.
+     */
+    private static final class RangeIndex {
+        private final long[] lowerBounds;
+        private final int[] rules;
+        private final long[] maxUpperBounds;
+        private final int leaves;
+
+        private RangeIndex(List<Range> ranges) {
+            final List<Range> sorted = new ArrayList<>(ranges);
+            sorted.sort(Comparator.comparingLong(range -> range.lowerBound));
+            this.lowerBounds = new long[sorted.size()];
+            this.rules = new int[sorted.size()];
+            int size = 1;
+            while (size < sorted.size()) {
+                size <<= 1;
+            }
+            this.leaves = size;
+            this.maxUpperBounds = new long[2 * size];
+            Arrays.fill(maxUpperBounds, Long.MIN_VALUE);
+            for (int i = 0; i < sorted.size(); i++) {
+                lowerBounds[i] = sorted.get(i).lowerBound;
+                rules[i] = sorted.get(i).rule;
+                maxUpperBounds[size + i] = sorted.get(i).upperBound;
+            }
+            for (int i = size - 1; i > 0; i--) {
+                maxUpperBounds[i] = Math.max(maxUpperBounds[2 * i], maxUpperBounds[2 * i + 1]);
+            }
+        }
+
+        private void addCandidates(long point, BitSet candidates) {
+            if (rules.length == 0) {
+                return;
+            }
+            // Number of intervals starting at or before the point
+            int low = 0;
+            int high = lowerBounds.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (lowerBounds[middle] <= point) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            addCandidates(1, 0, leaves, low, point, candidates);
+        }
+
+        private void addCandidates(int node, int from, int to, int limit, long point, BitSet candidates) {
+            if (from >= limit || maxUpperBounds[node] < point) {
+                return;
+            }
+            if (to - from == 1) {
+                candidates.set(rules[from]);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            addCandidates(2 * node, from, middle, limit, point, candidates);
+            addCandidates(2 * node + 1, middle, to, limit, point, candidates);
+        }
+    }
+
+    private static final class Range {
+        private final long lowerBound;
+        private final long upperBound;
+        private final int rule;
+
+        private Range(long lowerBound, long upperBound, int rule) {
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.rule = rule;
+        }
+    }
+
+    private static final class PathIndexBuilder {
+        private final int slot;
+        private final List<Integer> equalityRules = new ArrayList<>();
+        private final List<Integer> rangeRules = new ArrayList<>();
+        private final List<Integer> defaultTrueRules = new ArrayList<>();
+        private final Map<String, List<Integer>> byText = new HashMap<>();
+        private final List<Integer> trueRules = new ArrayList<>();
+        private final List<Integer> falseRules = new ArrayList<>();
+        private final Map<Long, List<Integer>> byIntegral = new HashMap<>();
+        private final Map<Double, List<Integer>> byFloatingPoint = new HashMap<>();
+        private final List<Integer> numericFailureRules = new ArrayList<>();
+        private final List<Range> integralRanges = new ArrayList<>();
+        private final List<Range> floatingPointRanges = new ArrayList<>();
+
+        private PathIndexBuilder(int slot) {
+            this.slot = slot;
+        }
+
+        private void addEquality(int rule, Collection<?> values) {
+            equalityRules.add(rule);
+            boolean numericFailure = false;
+            for (Object value : values) {
+                addOnce(byText, value instanceof TextNode ? ((TextNode) value).asText() : String.valueOf(value), rule);
+                final boolean booleanValue = value instanceof BooleanNode
+                                             ? ((BooleanNode) value).booleanValue()
+                                             : Boolean.parseBoolean(value.toString());
+                addOnce(booleanValue ? trueRules : falseRules, rule);
+                final Number number = value instanceof NumericNode
+                                      ? ((NumericNode) value).numberValue()
+                                      : value instanceof Number ? (Number) value : null;
+                if (null == number) {
+                    numericFailure = true;
+                } else {
+                    addOnce(byIntegral, number.longValue(), rule);
+                    addOnce(byFloatingPoint, number.doubleValue(), rule);
+                }
+            }
+            if (numericFailure) {
+                numericFailureRules.add(rule);
+            }
+        }
+
+        private void addRange(int rule, Bound integralLower, Bound integralUpper,
+                              Bound floatingPointLower, Bound floatingPointUpper) {
+            rangeRules.add(rule);
+            addRange(integralRanges, rule, integralLower, integralUpper);
+            addRange(floatingPointRanges, rule, floatingPointLower, floatingPointUpper);
+        }
+
+        private static void addRange(List<Range> ranges, int rule, Bound lower, Bound upper) {
+            if ((!lower.inclusive && lower.value == Long.MAX_VALUE)
+                    || (!upper.inclusive && upper.value == Long.MIN_VALUE)) {
+                return;
+            }
+            final long lowerBound = lower.inclusive ? lower.value : lower.value + 1;
+            final long upperBound = upper.inclusive ? upper.value : upper.value - 1;
+            if (lowerBound <= upperBound) {
+                ranges.add(new Range(lowerBound, upperBound, rule));
+            }
+        }
+    }
+
+    private static final class Bound {
+        private static final Bound MIN = new Bound(Long.MIN_VALUE, true);
+        private static final Bound MAX = new Bound(Long.MAX_VALUE, true);
+
+        private final long value;
+        private final boolean inclusive;
+
+        private Bound(long value, boolean inclusive) {
+            this.value = value;
+            this.inclusive = inclusive;
+        }
+    }
+
+    static final class Builder {
+        private final PathTable.Builder paths;
+        private final Map<Integer, PathIndexBuilder> pathIndices = new LinkedHashMap<>();
+        private final BitSet unindexed = new BitSet();
+
+        Builder(PathTable.Builder paths) {
+            this.paths = paths;
+        }
+
+        void add(int rule, Expression expression) {
+            Expression first = expression;
+            while (first instanceof AndExpression
+                    && null != ((AndExpression) first).getChildren()
+                    && !((AndExpression) first).getChildren().isEmpty()) {
+                first = ((AndExpression) first).getChildren().get(0);
+            }
+            if (!(first instanceof JsonPathBasedExpression) || !add(rule, (JsonPathBasedExpression) first)) {
+                unindexed.set(rule);
+            }
+        }
+
+        RuleIndex build() {
+            return new RuleIndex(pathIndices.values().stream().map(PathIndex::new).toArray(PathIndex[]::new),
+                                 unindexed);
+        }
+
+        private boolean add(int rule, JsonPathBasedExpression leaf) {
+            if (null != leaf.getPreoperation()) {
+                return false;
+            }
+            if (leaf instanceof EqualsExpression) {
+                final EqualsExpression equals = (EqualsExpression) leaf;
+                if (equals.isExtractValueFromPath() || null == equals.getValue()) {
+                    return false;
+                }
+                pathIndex(rule, leaf).addEquality(rule, Collections.singletonList(equals.getValue()));
+                return true;
+            }
+            if (leaf instanceof InExpression) {
+                final InExpression in = (InExpression) leaf;
+                if (in.isExtractValues() || null == in.getValues() || in.getValues().isEmpty()
+                        || in.getValues().contains(null)) {
+                    return false;
+                }
+                pathIndex(rule, leaf).addEquality(rule, in.getValues());
+                return true;
+            }
+            if (leaf instanceof NumericJsonPathBasedExpression) {
+                return addComparison(rule, (NumericJsonPathBasedExpression) leaf);
+            }
+            if (leaf instanceof BetweenExpression) {
+                final BetweenExpression between = (BetweenExpression) leaf;
+                final Number lower = between.getLowerBound();
+                final Number upper = between.getUpperBound();
+                if (!isIndexable(lower) || !isIndexable(upper)) {
+                    return false;
+                }
+                final boolean includeLower = between.isIncludeLowerBound();
+                final boolean includeUpper = between.isIncludeUpperBound();
+                pathIndex(rule, leaf).addRange(rule,
+                                               new Bound(lower.longValue(), includeLower),
+                                               new Bound(upper.longValue(), includeUpper),
+                                               new Bound(sortable(lower.doubleValue()), includeLower),
+                                               new Bound(sortable(upper.doubleValue()), includeUpper));
+                return true;
+            }
+            return false;
+        }
+
+        private boolean addComparison(int rule, NumericJsonPathBasedExpression comparison) {
+            if (comparison.isExtractValueFromPath() || !(comparison.getValue() instanceof Number)) {
+                return false;
+            }
+            final Number value = (Number) comparison.getValue();
+            if (!isIndexable(value) || !isKnownComparison(comparison)) {
+                return false;
+            }
+            final boolean inclusive = comparison instanceof GreaterThanEqualsExpression
+                    || comparison instanceof LessThanEqualsExpression;
+            final Bound integral = new Bound(value.longValue(), inclusive);
+            final Bound floatingPoint = new Bound(sortable(value.doubleValue()), inclusive);
+            final PathIndexBuilder pathIndex = pathIndex(rule, comparison);
+            if (comparison instanceof GreaterThanExpression || comparison instanceof GreaterThanEqualsExpression) {
+                pathIndex.addRange(rule, integral, Bound.MAX, floatingPoint, Bound.MAX);
+            } else {
+                pathIndex.addRange(rule, Bound.MIN, integral, Bound.MIN, floatingPoint);
+            }
+            return true;
+        }
+
+        private static boolean isKnownComparison(NumericJsonPathBasedExpression comparison) {
+            return comparison instanceof GreaterThanExpression
+                    || comparison instanceof GreaterThanEqualsExpression
+                    || comparison instanceof LessThanExpression
+                    || comparison instanceof LessThanEqualsExpression;
+        }
+
+        private PathIndexBuilder pathIndex(int rule, JsonPathBasedExpression leaf) {
+            final int slot = paths.slotFor(JsonPathUtils.compile(leaf.getPath()));
+            final PathIndexBuilder pathIndex = pathIndices.computeIfAbsent(slot, PathIndexBuilder::new);
+            if (leaf.isDefaultResult()) {
+                pathIndex.defaultTrueRules.add(rule);
+            }
+            return pathIndex;
+        }
+    }
+
+    private static boolean isIndexable(Number number) {
+        return null != number && !Double.isNaN(number.doubleValue());
+    }
+
+    /**
+     * Maps a double to a long with the same ordering, adjacent doubles map to adjacent longs
+     */
+    private static long sortable(double value) {
+        final long bits = Double.doubleToLongBits(value);
+        return bits < 0 ? bits ^ Long.MAX_VALUE : bits;
+    }
+
+    private static <K> void addOnce(Map<K, List<Integer>> index, K key, int rule) {
+        addOnce(index.computeIfAbsent(key, k -> new ArrayList<>()), rule);
+    }
+
+    private static void addOnce(List<Integer> rules, int rule) {
+        if (rules.isEmpty() || rules.get(rules.size() - 1) != rule) {
+            rules.add(rule);
+        }
+    }
+
+    private static <K> Map<K, int[]> freeze(Map<K, List<Integer>> index) {
+        final Map<K, int[]> frozen = new HashMap<>();
+        index.forEach((key, rules) -> frozen.put(key, toArray(rules)));
+        return frozen;
+    }
+
+    private static int[] toArray(List<Integer> rules) {
+        return rules.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void set(BitSet candidates, int[] rules) {
+        if (null == rules) {
+            return;
+        }
+        for (int rule : rules) {
+            candidates.set(rule);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.ExpressionEvaluationContext;
+import io.appform.jsonrules.OptionKeys;
+import io.appform.jsonrules.config.JacksonConfiguration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * A set of expressions, keyed by id, compiled together so that they can be evaluated against a document in one go.
+ * <p>
+ * All json paths are shared across the rules of the set: every distinct path is read from the document at most once
+ * per evaluation, no matter how many rules use it. Evaluation returns the indices of the matching rules as a
+ * {@link BitSet}, rules are indexed in the order they were added to the {@link Builder}. Likewise, subexpressions that
+ * appear in several rules are evaluated at most once per evaluation, see {@link SharedSubexpressions}.
+ * <p>
+ * Rules that start with an equality, set membership or numeric comparison against literal values are indexed on the
+ * path of that check, so that only the rules that can possibly match a document are evaluated. See {@link RuleIndex}.
+ * <p>
+ * With a result cache, see {@link Builder#resultCache(long)}, the results of the rules that can be cached are reused
+ * for documents with the same values at all the paths those rules read. Other rules are evaluated for every document.
+ * <p>
+ * A rule set is immutable and thread safe as long as the source expressions are not modified after building it.
+ */
+public final class RuleSet {
+    private final List<String> ids;
+    private final Map<String, Integer> indices;
+    private final PathTable paths;
+    private final DocumentProjection projection;
+    private final RuleIndex index;
+    private final Evaluator[] evaluators;
+    // Subexpressions shared by several rules, evaluated once per document
+    private final int memoSlots;
+    // Null unless built with a result cache and at least one rule can be cached
+    private final ResultCache<BitSet> cache;
+    // Rules whose results are in the cache, and all other rules
+    private final BitSet cached;
+    private final BitSet uncached;
+    private final ReferencedPaths referencedPaths;
+
+    private RuleSet(List<String> ids,
+                    Map<String, Integer> indices,
+                    PathTable paths,
+                    DocumentProjection projection,
+                    RuleIndex index,
+                    Evaluator[] evaluators,
+                    int memoSlots,
+                    ResultCache<BitSet> cache,
+                    BitSet cached,
+                    ReferencedPaths referencedPaths) {
+        this.ids = ids;
+        this.indices = indices;
+        this.paths = paths;
+        this.projection = projection;
+        this.index = index;
+        this.evaluators = evaluators;
+        this.memoSlots = memoSlots;
+        this.cache = cache;
+        this.cached = cached;
+        this.uncached = (BitSet) cached.clone();
+        this.uncached.flip(0, evaluators.length);
+        this.referencedPaths = referencedPaths;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return evaluators.length;
+    }
+
+    /**
+     * @return Ids of all rules, in index order
+     */
+    public List<String> getIds() {
+        return ids;
+    }
+
+    /**
+     * @return Json paths read by the rules, and a filter keeping the parts of documents they need
+     */
+    public ReferencedPaths getReferencedPaths() {
+        return referencedPaths;
+    }
+
+    public String getId(int index) {
+        return ids.get(index);
+    }
+
+    /**
+     * @return Index of the rule with the given id, or -1 if there is no such rule
+     */
+    public int indexOf(String id) {
+        return indices.getOrDefault(id, -1);
+    }
+
+    /**
+     * @return Ids of the rules set in the result of an evaluation
+     */
+    public List<String> ids(BitSet matches) {
+        final List<String> matchingIds = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            matchingIds.add(ids.get(i));
+        }
+        return matchingIds;
+    }
+
+    public BitSet evaluate(JsonNode node) {
+        return evaluate(node, Collections.emptyMap());
+    }
+
+    public BitSet evaluate(JsonNode node, Map<OptionKeys, Object> options) {
+        return evaluate(ExpressionEvaluationContext.builder()
+                .node(null == node ? MissingNode.getInstance() : node)
+                .options(options)
+                .build());
+    }
+
+    /**
+     * Evaluates a serialized json document, parsing only the parts of it that are read by the rules.
+     * See {@link CompiledRule#evaluate(byte[])}.
+     */
+    public BitSet evaluate(byte[] document) throws IOException {
+        return evaluate(document, Collections.emptyMap());
+    }
+
+    public BitSet evaluate(byte[] document, Map<OptionKeys, Object> options) throws IOException {
+        return evaluate(projection.read(document), options);
+    }
+
+    public BitSet evaluate(InputStream document) throws IOException {
+        return evaluate(document, Collections.emptyMap());
+    }
+
+    public BitSet evaluate(InputStream document, Map<OptionKeys, Object> options) throws IOException {
+        return evaluate(projection.read(document), options);
+    }
+
+    public BitSet evaluate(ExpressionEvaluationContext context) {
+        return evaluate(new EvaluationState(context, paths, memoSlots));
+    }
+
+    /**
+     * @return Statistics of the result cache, if the rule set was built with one and has rules that can be cached
+     */
+    public Optional<ResultCacheStatistics> getResultCacheStatistics() {
+        return null == cache ? Optional.empty() : Optional.of(cache.stats());
+    }
+
+    /**
+     * Evaluates a batch of documents in parallel on the common {@link ForkJoinPool}.
+     * See {@link CompiledRule#evaluateAll(List)}.
+     *
+     * @param nodes Documents to evaluate
+     * @return Positions of the matching documents in the batch, for every rule in index order
+     */
+    public BitSet[] evaluateAll(List<? extends JsonNode> nodes) {
+        return evaluateAll(nodes, ForkJoinPool.commonPool());
+    }
+
+    public BitSet[] evaluateAll(List<? extends JsonNode> nodes, ForkJoinPool pool) {
+        return evaluateAll(nodes, Collections.emptyMap(), pool);
+    }
+
+    public BitSet[] evaluateAll(List<? extends JsonNode> nodes, Map<OptionKeys, Object> options, ForkJoinPool pool) {
+        return evaluateAll(nodes.iterator(), options, pool);
+    }
+
+    public BitSet[] evaluateAll(Stream<? extends JsonNode> nodes) {
+        return evaluateAll(nodes, ForkJoinPool.commonPool());
+    }
+
+    public BitSet[] evaluateAll(Stream<? extends JsonNode> nodes, ForkJoinPool pool) {
+        return evaluateAll(nodes, Collections.emptyMap(), pool);
+    }
+
+    public BitSet[] evaluateAll(Stream<? extends JsonNode> nodes,
+                                Map<OptionKeys, Object> options,
+                                ForkJoinPool pool) {
+        return evaluateAll(nodes.iterator(), options, pool);
+    }
+
+    private BitSet[] evaluateAll(Iterator<? extends JsonNode> nodes,
+                                 Map<OptionKeys, Object> options,
+                                 ForkJoinPool pool) {
+        return new BatchEvaluation(size(), options, pool, BatchEvaluation.byDocument(
+                (session, node, document, matches) -> {
+                    final BitSet rules = session.evaluate(this, node);
+                    for (int i = rules.nextSetBit(0); i >= 0; i = rules.nextSetBit(i + 1)) {
+                        matches.set(i, document);
+                    }
+                })).evaluate(nodes);
+    }
+
+    // Evaluates with the reusable state of a session
+    BitSet evaluate(EvaluationState state, ExpressionEvaluationContext context) {
+        try {
+            return evaluate(state.reset(context, paths, memoSlots));
+        } finally {
+            state.clear();
+        }
+    }
+
+    private BitSet evaluate(EvaluationState state) {
+        if (null == cache) {
+            return evaluateRules(state, null);
+        }
+        final BitSet cachedMatches = cache.evaluate(state, missed -> evaluateRules(missed, cached));
+        // Cached results are shared, the caller may modify the returned one
+        final BitSet matches = (BitSet) cachedMatches.clone();
+        if (!uncached.isEmpty()) {
+            matches.or(evaluateRules(state, uncached));
+        }
+        return matches;
+    }
+
+    // Evaluates the candidate rules for the document among the given ones, or among all rules if null
+    private BitSet evaluateRules(EvaluationState state, BitSet rules) {
+        final BitSet matches = index.candidates(state);
+        if (null != rules) {
+            matches.and(rules);
+        }
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            if (!evaluators[i].evaluate(state)) {
+                matches.clear(i);
+            }
+        }
+        return matches;
+    }
+
+    public static final class Builder {
+        private final Map<String, Expression> rules = new LinkedHashMap<>();
+        private long cacheSize;
+
+        private Builder() {
+        }
+
+        public Builder rule(String id, Expression expression) {
+            if (null == id || null == expression) {
+                throw new IllegalArgumentException("Rule id and expression are required");
+            }
+            if (null != rules.putIfAbsent(id, expression)) {
+                throw new IllegalArgumentException("Duplicate rule id: " + id);
+            }
+            return this;
+        }
+
+        public Builder rules(Map<String, ? extends Expression> rules) {
+            rules.forEach(this::rule);
+            return this;
+        }
+
+        /**
+         * Caches the results of the rules by the values they read from documents, see {@link ResultCache}
+         *
+         * @param maximumSize Largest number of results kept
+         */
+        public Builder resultCache(long maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("Maximum size of the cache must be positive");
+            }
+            this.cacheSize = maximumSize;
+            return this;
+        }
+
+        public RuleSet build() {
+            final PathTable.Builder paths = new PathTable.Builder();
+            final DocumentProjection.Builder projection = new DocumentProjection.Builder();
+            final RuleIndex.Builder index = new RuleIndex.Builder(paths);
+            final List<String> ids = new ArrayList<>(rules.size());
+            final Map<String, Integer> indices = new HashMap<>();
+            final Evaluator[] evaluators = new Evaluator[rules.size()];
+            final SharedSubexpressions shared = new SharedSubexpressions();
+            rules.values().forEach(shared::count);
+            final BitSet cached = new BitSet();
+            final BitSet cachedSlots = new BitSet();
+            for (Map.Entry<String, Expression> rule : rules.entrySet()) {
+                indices.put(rule.getKey(), ids.size());
+                evaluators[ids.size()] = ExpressionCompiler.toEvaluator(rule.getValue(), paths, projection, shared);
+                index.add(ids.size(), rule.getValue());
+                if (cacheSize > 0) {
+                    final BitSet ruleSlots = new BitSet();
+                    if (ResultCache.addSlots(rule.getValue(), paths, ruleSlots)) {
+                        cached.set(ids.size());
+                        cachedSlots.or(ruleSlots);
+                    }
+                }
+                ids.add(rule.getKey());
+            }
+            final ResultCache<BitSet> cache = cached.isEmpty()
+                                              ? null
+                                              : new ResultCache<>(cachedSlots.stream().toArray(),
+                                                                  cacheSize,
+                                                                  matches -> matches.size() / Byte.SIZE);
+            return new RuleSet(Collections.unmodifiableList(ids),
+                               indices,
+                               paths.build(),
+                               projection.build(JacksonConfiguration.getInstance().getObjectMapper()),
+                               index.build(),
+                               evaluators,
+                               shared.slots(),
+                               cache,
+                               cached,
+                               ReferencedPaths.of(rules.values()));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.appform.jsonrules.Expression;
+import io.appform.jsonrules.config.JacksonConfiguration;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
+import io.appform.jsonrules.expressions.composite.CompositeExpression;
+import io.appform.jsonrules.expressions.preoperation.PreOperation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Finds subexpressions that appear more than once across the rules compiled together, so that each of them is
+ * evaluated at most once per document, see {@link MemoEvaluator}.
+ * <p>
+ * Subexpressions are identified by a canonical form: the json form of leaves with properties in name order, and the
+ * type of composites followed by the forms of their children. Collection values and children keep their declared
+ * order, which decides the comparisons reached and so whether an evaluation fails. Numbers keep their type unless they
+ * are integral, as texts compare with their string form. Only the expression
+ * and preoperation types declared by {@link Expression} and {@link PreOperation} have a canonical form, subclasses of
+ * them may evaluate differently.
+ */
+final class SharedSubexpressions {
+    static final SharedSubexpressions NONE = new SharedSubexpressions();
+
+    private static final Set<Class<?>> KNOWN_TYPES = knownTypes();
+
+    private final Map<Expression, String> forms = new IdentityHashMap<>();
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Map<String, Evaluator> evaluators = new HashMap<>();
+    private int slots;
+
+    /**
+     * Counts the subexpressions of a rule. All rules must be counted before any of them is compiled.
+     */
+    void count(Expression expression) {
+        final String form = canonicalForm(expression);
+        if (null != form) {
+            counts.merge(form, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Evaluator of a subexpression, built once and memoized when the subexpression appears more than once
+     *
+     * @param expression Subexpression being compiled
+     * @param compiler   Builds the evaluator of the subexpression
+     */
+    Evaluator evaluator(Expression expression, Supplier<Evaluator> compiler) {
+        final String form = forms.get(expression);
+        if (null == form || counts.getOrDefault(form, 0) < 2) {
+            return compiler.get();
+        }
+        Evaluator evaluator = evaluators.get(form);
+        if (null == evaluator) {
+            evaluator = new MemoEvaluator(compiler.get(), slots++);
+            evaluators.put(form, evaluator);
+        }
+        return evaluator;
+    }
+
+    /**
+     * @return Number of memoized subexpressions, each needs a slot in the state of an evaluation
+     */
+    int slots() {
+        return slots;
+    }
+
+    // Canonical form of an expression and of all its subexpressions, counting every one of them
+    private String canonicalForm(Expression expression) {
+        String form;
+        if (expression instanceof CompositeExpression && KNOWN_TYPES.contains(expression.getClass())) {
+            form = compositeForm((CompositeExpression) expression);
+        } else if (expression instanceof JsonPathBasedExpression && KNOWN_TYPES.contains(expression.getClass())
+                && isKnown(((JsonPathBasedExpression) expression).getPreoperation())) {
+            form = leafForm((JsonPathBasedExpression) expression);
+        } else {
+            form = null;
+        }
+        if (null != form) {
+            forms.put(expression, form);
+        }
+        return form;
+    }
+
+    private String compositeForm(CompositeExpression expression) {
+        final List<Expression> children = expression.getChildren();
+        if (null == children) {
+            return expression.getType() + "(null)";
+        }
+        final StringBuilder form = new StringBuilder().append(expression.getType()).append('(');
+        boolean known = true;
+        for (Expression child : children) {
+            // Children are counted even when the composite can't be shared
+            final String childForm = canonicalForm(child);
+            if (null != childForm) {
+                counts.merge(childForm, 1, Integer::sum);
+            }
+            known &= null != childForm;
+            form.append(childForm).append(',');
+        }
+        return known ? form.append(')').toString() : null;
+    }
+
+    private static String leafForm(JsonPathBasedExpression expression) {
+        final ObjectMapper mapper = JacksonConfiguration.getInstance().getObjectMapper();
+        final JsonNode node;
+        try {
+            node = mapper.valueToTree(expression);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        final StringBuilder form = new StringBuilder();
+        append(form, node);
+        return form.toString();
+    }
+
+    private static void append(StringBuilder form, JsonNode node) {
+        if (node.isObject()) {
+            final List<String> names = new ArrayList<>();
+            node.fieldNames().forEachRemaining(names::add);
+            Collections.sort(names);
+            form.append('{');
+            for (String name : names) {
+                form.append(name).append(':');
+                append(form, node.get(name));
+                form.append(',');
+            }
+            form.append('}');
+        } else if (node.isArray()) {
+            form.append('[');
+            for (JsonNode element : node) {
+                append(form, element);
+                form.append(',');
+            }
+            form.append(']');
+        } else if (node.isIntegralNumber()) {
+            form.append(node.bigIntegerValue());
+        } else if (node.isNumber()) {
+            form.append(node.numberType()).append(':').append(node.asText());
+        } else {
+            form.append(node);
+        }
+    }
+
+    private static boolean isKnown(PreOperation<?> preoperation) {
+        return null == preoperation || isKnownType(preoperation);
+    }
+
+    /**
+     * @return Whether an expression or preoperation is of one of the types declared by {@link Expression} and
+     * {@link PreOperation}, and not of a subclass of them
+     */
+    static boolean isKnownType(Object value) {
+        return KNOWN_TYPES.contains(value.getClass());
+    }
+
+    private static Set<Class<?>> knownTypes() {
+        final Set<Class<?>> types = new HashSet<>();
+        for (Class<?> base : Arrays.asList(Expression.class, PreOperation.class)) {
+            for (JsonSubTypes.Type type : base.getAnnotation(JsonSubTypes.class).value()) {
+                types.add(type.value());
+            }
+        }
+        return types;
+    }
+}
@@ -0,0 +1,161 @@
+package io.appform.jsonrules.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.appform.jsonrules.ExpressionVisitor;
+import io.appform.jsonrules.expressions.array.CollectionJsonPathBasedExpression;
+import io.appform.jsonrules.expressions.array.ContainsAllExpression;
+import io.appform.jsonrules.expressions.array.ContainsAnyExpression;
+import io.appform.jsonrules.expressions.array.InExpression;
+import io.appform.jsonrules.expressions.array.NotInExpression;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.composite.NotExpression;
+import io.appform.jsonrules.expressions.composite.OrExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.equality.NotEqualsExpression;
+import io.appform.jsonrules.expressions.meta.ExistsExpression;
+import io.appform.jsonrules.expressions.meta.NotExistsExpression;
+import io.appform.jsonrules.expressions.numeric.*;
+import io.appform.jsonrules.expressions.string.*;
+
+import java.util.Optional;
+
+/**
+ * Finds the path a leaf expression reads its comparison value from, when the value is extracted from the document
+ * instead of being a literal
+ */
+final class ValuePathVisitor implements ExpressionVisitor<Optional<String>> {
+    static final ValuePathVisitor INSTANCE = new ValuePathVisitor();
+
+    private ValuePathVisitor() {
+    }
+
+    @Override
+    public Optional<String> visit(AndExpression expression, JsonNode node) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> visit(OrExpression expression, JsonNode node) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> visit(NotExpression expression, JsonNode node) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> visit(ExistsExpression expression, JsonNode node) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> visit(NotExistsExpression expression, JsonNode node) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> visit(GreaterThanExpression expression, JsonNode node) {
+        return numeric(expression);
+    }
+
+    @Override
+    public Optional<String> visit(GreaterThanEqualsExpression expression, JsonNode node) {
+        return numeric(expression);
+    }
+
+    @Override
+    public Optional<String> visit(LessThanExpression expression, JsonNode node) {
+        return numeric(expression);
+    }
+
+    @Override
+    public Optional<String> visit(LessThanEqualsExpression expression, JsonNode node) {
+        return numeric(expression);
+    }
+
+    @Override
+    public Optional<String> visit(EqualsExpression expression, JsonNode node) {
+        return equality(expression.isExtractValueFromPath(), expression.getValue());
+    }
+
+    @Override
+    public Optional<String> visit(NotEqualsExpression expression, JsonNode node) {
+        return equality(expression.isExtractValueFromPath(), expression.getValue());
+    }
+
+    @Override
+    public Optional<String> visit(EmptyExpression expression, JsonNode node) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> visit(NotEmptyExpression expression, JsonNode node) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> visit(StartsWithExpression expression, JsonNode node) {
+        return string(expression);
+    }
+
+    @Override
+    public Optional<String> visit(EndsWithExpression expression, JsonNode node) {
+        return string(expression);
+    }
+
+    @Override
+    public Optional<String> visit(MatchesExpression expression, JsonNode node) {
+        return string(expression);
+    }
+
+    @Override
+    public Optional<String> visit(InExpression expression, JsonNode node) {
+        return collection(expression);
+    }
+
+    @Override
+    public Optional<String> visit(NotInExpression expression, JsonNode node) {
+        return collection(expression);
+    }
+
+    @Override
+    public Optional<String> visit(ContainsAnyExpression expression, JsonNode node) {
+        return collection(expression);
+    }
+
+    @Override
+    public Optional<String> visit(ContainsAllExpression expression, JsonNode node) {
+        return collection(expression);
+    }
+
+    @Override
+    public Optional<String> visit(BetweenExpression expression, JsonNode node) {
+        return Optional.empty();
+    }
+
+    private static Optional<String> numeric(NumericJsonPathBasedExpression expression) {
+        return expression.isExtractValueFromPath()
+               ? Optional.of(String.valueOf(expression.getValue()))
+               : Optional.empty();
+    }
+
+    private static Optional<String> equality(boolean extractValueFromPath, Object value) {
+        // Json node values are used as they are, without reading the document
+        return extractValueFromPath && !(value instanceof JsonNode)
+               ? Optional.of(String.valueOf(value))
+               : Optional.empty();
+    }
+
+    private static Optional<String> string(StringJsonPathBasedExpression expression) {
+        return expression.isExtractValueFromPath()
+               ? Optional.of(String.valueOf(expression.getValue()))
+               : Optional.empty();
+    }
+
+    private static Optional<String> collection(CollectionJsonPathBasedExpression expression) {
+        return expression.isExtractValues()
+               ? Optional.of(String.valueOf(expression.getValuesPath()))
+               : Optional.empty();
+    }
+}
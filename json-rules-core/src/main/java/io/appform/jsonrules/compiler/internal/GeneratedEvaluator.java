@@ -0,0 +1,31 @@
+package io.appform.jsonrules.compiler.internal;
+
+import io.appform.jsonrules.jsonpath.resolvers.PathResolver;
+
+/**
+ * Base class of the classes generated for compiled rules.
+ * <p>
+ * Internal to json-rules, not for use outside the library: public only because generated classes are defined in a
+ * package of their own, and it may change or go away in any release.
+ */
+public abstract class GeneratedEvaluator {
+    protected static final Object MISSING = PathResolver.MISSING;
+
+    protected GeneratedEvaluator() {
+    }
+
+    public abstract boolean evaluate(GeneratedState state);
+
+    /**
+     * Expressions evaluated by a generated class, read once by its static initializer
+     *
+     * @throws IllegalArgumentException if the class was not defined by a {@link RuleClassLoader}
+     */
+    protected static Object[] constants(Class<?> generated) {
+        final ClassLoader loader = generated.getClassLoader();
+        if (!(loader instanceof RuleClassLoader)) {
+            throw new IllegalArgumentException("Not a generated rule class: " + generated.getName());
+        }
+        return ((RuleClassLoader) loader).constants;
+    }
+}
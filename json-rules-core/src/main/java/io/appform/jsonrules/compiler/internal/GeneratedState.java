@@ -0,0 +1,18 @@
+package io.appform.jsonrules.compiler.internal;
+
+import io.appform.jsonrules.ExpressionEvaluationContext;
+
+/**
+ * State of an evaluation, as seen by the classes generated for compiled rules.
+ * <p>
+ * Internal to json-rules, not for use outside the library: public only because generated classes are defined in a
+ * package of their own, and it may change or go away in any release.
+ */
+public interface GeneratedState {
+    /**
+     * @return Value of the path in a slot, or {@link GeneratedEvaluator#MISSING} if it doesn't exist in the document
+     */
+    Object read(int slot);
+
+    ExpressionEvaluationContext getContext();
+}
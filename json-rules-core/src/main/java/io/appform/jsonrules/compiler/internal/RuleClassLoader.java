@@ -0,0 +1,21 @@
+package io.appform.jsonrules.compiler.internal;
+
+/**
+ * Defines the class generated for one compiled rule, along with the expressions it evaluates.
+ * <p>
+ * Internal to json-rules, not for use outside the library: public only so that the compiler can define generated
+ * classes, and it may change or go away in any release.
+ */
+public final class RuleClassLoader extends ClassLoader {
+    // Read once by the static initializer of the generated class, see GeneratedEvaluator#constants
+    final Object[] constants;
+
+    public RuleClassLoader(Object[] constants) {
+        super(GeneratedEvaluator.class.getClassLoader());
+        this.constants = constants;
+    }
+
+    public Class<? extends GeneratedEvaluator> define(String name, byte[] bytes) {
+        return defineClass(name, bytes, 0, bytes.length).asSubclass(GeneratedEvaluator.class);
+    }
+}
@@ -2,10 +2,13 @@ package io.appform.jsonrules.config;
 
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.cache.Cache;
 import com.jayway.jsonpath.spi.cache.CacheProvider;
 import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
 import com.jayway.jsonpath.spi.json.JsonProvider;
 import com.jayway.jsonpath.spi.mapper.MappingProvider;
+import io.appform.jsonrules.jsonpath.caches.BoundedCache;
+import io.appform.jsonrules.jsonpath.caches.CacheStatistics;
 import io.appform.jsonrules.jsonpath.caches.UnboundedCache;
 import io.appform.jsonrules.jsonpath.providers.OptimizedJacksonJsonNodeJsonProvider;
 import lombok.Getter;
@@ -13,6 +16,7 @@ import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 
 import java.util.HashSet;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -21,6 +25,12 @@ public class JsonRulesConfiguration {
     @Getter
     private static Configuration configuration;
     private static JacksonConfiguration defaultJacksonConfiguration = JacksonConfiguration.getInstance();
+    @Getter
+    private static volatile boolean nativeResolutionForSimplePathsEnabled;
+    @Getter
+    private static volatile boolean adaptiveChildOrderingEnabled;
+    @Getter
+    private static volatile boolean columnarBatchEvaluationEnabled;
 
     static {
         synchronized (JsonRulesConfiguration.class) {
@@ -37,10 +47,31 @@ public class JsonRulesConfiguration {
             CacheProvider.setCache(new UnboundedCache());
             configuration.jsonProvider(new OptimizedJacksonJsonNodeJsonProvider(
                     JacksonConfiguration.getInstance().options()));
+            enableNativeResolutionForSimplePaths(true);
+        }
+        if (performanceSafetyPreference == PerformanceSafetyPreference.BALANCED) {
+            useBoundedJsonPathCache(BoundedCache.DEFAULT_MAXIMUM_SIZE);
+            enableNativeResolutionForSimplePaths(true);
         }
         // if performanceSafetyPreference is set to SAFETY, we don't override the cache implementation provided by jsonpath library
     }
 
+    // Cache up to maximumSize compiled JSONPath expressions, least recently used ones are evicted first. Once the cache
+    // is full, only paths that keep missing it are admitted.
+    // Must be called before any JSONPath expression is evaluated, as the cache can only be installed once.
+    public static void useBoundedJsonPathCache(final long maximumSize) {
+        log.info("Using a bounded cache of size {} for JSONPath evaluations.", maximumSize);
+        CacheProvider.setCache(new BoundedCache(maximumSize));
+    }
+
+    // Statistics of the JSONPath cache, if the bounded cache is in use
+    public static Optional<CacheStatistics> getJsonPathCacheStatistics() {
+        final Cache cache = CacheProvider.getCache();
+        return cache instanceof BoundedCache
+               ? Optional.of(((BoundedCache) cache).stats())
+               : Optional.empty();
+    }
+
     // Enable support for complex JSONPath expressions like UDFs, filter expressions, etc.
     // See supported operators here - https://github.com/json-path/JsonPath?tab=readme-ov-file#operators
     // See supported UDFs here - https://github.com/json-path/JsonPath?tab=readme-ov-file#functions
@@ -56,8 +87,35 @@ public class JsonRulesConfiguration {
         }
     }
 
+    // Resolve definite paths made of property names and array indices (like $.a.b[0]) directly on the JsonNode
+    // instead of going through JsonPath. Other paths are always evaluated by JsonPath.
+    // Takes effect for expressions that are evaluated or compiled for the first time after this call.
+    public static void enableNativeResolutionForSimplePaths(final boolean flag) {
+        log.info("{} native resolution for simple JSONPath expressions", flag ? "Enabling" : "Disabling");
+        nativeResolutionForSimplePathsEnabled = flag;
+    }
+
+    // Let compiled rules reorder the children of and, or and not expressions based on how long each child takes to
+    // evaluate and how often it decides the result, starting from a static cost estimate. Results don't change.
+    // Takes effect for rules compiled after this call.
+    public static void enableAdaptiveChildOrdering(final boolean flag) {
+        log.info("{} adaptive ordering of composite expression children", flag ? "Enabling" : "Disabling");
+        adaptiveChildOrderingEnabled = flag;
+    }
+
+    // Let compiled rules evaluate batches of documents a column at a time: each path is read for the documents of a
+    // chunk that reach it, and numbers and repeated values are compared without going through the expression for
+    // every document. Pays off for rules with costly leaves over documents sharing values. Results don't change.
+    // Takes effect for rules compiled after this call.
+    public static void enableColumnarBatchEvaluation(final boolean flag) {
+        log.info("{} columnar evaluation of document batches", flag ? "Enabling" : "Disabling");
+        columnarBatchEvaluationEnabled = flag;
+    }
+
     public enum PerformanceSafetyPreference {
         SPEED,
+        // Bounded cache, for applications that use a large or unbounded number of json paths
+        BALANCED,
         SAFETY
     }
 
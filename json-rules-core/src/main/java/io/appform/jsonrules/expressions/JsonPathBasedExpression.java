@@ -18,15 +18,24 @@
 package io.appform.jsonrules.expressions;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.LongNode;
 import com.fasterxml.jackson.databind.node.MissingNode;
-import com.jayway.jsonpath.PathNotFoundException;
+import com.fasterxml.jackson.databind.node.TextNode;
 import io.appform.jsonrules.Expression;
 import io.appform.jsonrules.ExpressionEvaluationContext;
 import io.appform.jsonrules.ExpressionType;
+import io.appform.jsonrules.config.JsonRulesConfiguration;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
+import io.appform.jsonrules.jsonpath.resolvers.PathResolver;
+import io.appform.jsonrules.jsonpath.resolvers.SimplePathResolver;
+import io.appform.jsonrules.utils.CachedValue;
+import io.appform.jsonrules.utils.ComparisonUtils;
 import io.appform.jsonrules.utils.JsonPathUtils;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.ToString;
 import lombok.val;
 
@@ -45,6 +54,18 @@ public abstract class JsonPathBasedExpression extends Expression {
     private PreOperation<?> preoperation;
     private boolean defaultResult;
 
+    // Compiled lazily on first evaluation and reset whenever the path changes
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient CachedValue<String, PathResolver> pathResolver = new CachedValue<>();
+
+    // Path of the last comparison value read through readValuePath, recompiled when a different path is read
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient CachedValue<String, ValuePath> valuePath = new CachedValue<>();
+
     protected JsonPathBasedExpression(ExpressionType type) {
         super(type);
     }
@@ -57,35 +78,114 @@ public abstract class JsonPathBasedExpression extends Expression {
         this.defaultResult = defaultResult;
     }
 
+    public void setPath(String path) {
+        this.path = path;
+        this.pathResolver.reset();
+    }
+
     @Override
     public final boolean evaluate(ExpressionEvaluationContext context) {
-        JsonNode nodeAtPath = null;
-        try {
-            Object value = JsonPathUtils.read(context.getNode(), path);
-            if (value instanceof JsonNode) {
-                nodeAtPath = (JsonNode) value;
-            } else {
-                // convert value to a json node
-                // this might happen because of the usage of UDFs supported by json path library used
-                // See more here: https://github.com/json-path/JsonPath?tab=readme-ov-file#functions
-                nodeAtPath = mapper.valueToTree(value);
-            }
-            // If nodeAtPath is null, then we use MissingNode instead
-            nodeAtPath = nodeAtPath == null ? MissingNode.getInstance() : nodeAtPath;
-        } catch (PathNotFoundException exception) {
+        final Object value = pathResolver().readIfPresent(context.getNode());
+        if (value == PathResolver.MISSING) {
             // Using default result when the 'path' doesn't exist
             return defaultResult;
         }
+        return evaluateResolved(context, value);
+    }
 
-        JsonNode evaluatedNode = applyPreoperation(context, nodeAtPath);
-        return evaluate(context, path, evaluatedNode);
+    /**
+     * Reads the value at {@link #getPath()} the same way evaluation does, through the resolver compiled for the path.
+     *
+     * @param node Document to read from
+     * @return Value at the path, or {@link PathResolver#MISSING} if the path doesn't exist in the document
+     */
+    public final Object readPath(JsonNode node) {
+        return pathResolver().readIfPresent(node);
     }
 
-    private JsonNode applyPreoperation(ExpressionEvaluationContext globalContext, JsonNode nodeAtPath) {
+    /**
+     * Evaluates this expression against a value that has already been read from {@link #getPath()}.
+     * Used by compiled rules that resolve paths on their own.
+     *
+     * @param context Evaluation context for the whole document
+     * @param value   Value read at the path of this expression
+     * @return Result of the evaluation
+     */
+    public final boolean evaluateResolved(ExpressionEvaluationContext context, Object value) {
+        JsonNode nodeAtPath;
+        if (value instanceof JsonNode) {
+            nodeAtPath = (JsonNode) value;
+        } else {
+            // convert value to a json node
+            // this might happen because of the usage of UDFs supported by json path library used
+            // See more here: https://github.com/json-path/JsonPath?tab=readme-ov-file#functions
+            nodeAtPath = mapper.valueToTree(value);
+        }
+        // If nodeAtPath is null, then we use MissingNode instead
+        nodeAtPath = nodeAtPath == null ? MissingNode.getInstance() : nodeAtPath;
+
+        return evaluateAtPath(context, nodeAtPath);
+    }
+
+    private boolean evaluateAtPath(ExpressionEvaluationContext context, JsonNode nodeAtPath) {
         if (null == preoperation) {
-            return nodeAtPath;
+            return evaluate(context, path, nodeAtPath);
+        }
+        switch (preoperation.resultType(nodeAtPath)) {
+            case INTEGRAL:
+                return evaluateComputed(context, preoperation.computeLong(context, nodeAtPath));
+            case FLOATING_POINT:
+                return evaluateComputed(context, preoperation.computeDouble(context, nodeAtPath));
+            case TEXT:
+                return evaluateComputed(context, preoperation.computeText(context, nodeAtPath));
+            default:
+                return evaluate(context, path, applyPreoperation(context, nodeAtPath));
         }
+    }
+
+    /**
+     * Evaluates an integral result of the preoperation. Comparisons override this to use the result as it is, instead
+     * of wrapping it in a node.
+     *
+     * @param context       Evaluation context for the whole document
+     * @param computedValue Result of the preoperation on the node at the path of this expression
+     * @return Result of the evaluation
+     */
+    protected boolean evaluateComputed(ExpressionEvaluationContext context, long computedValue) {
+        return evaluate(context, path, LongNode.valueOf(computedValue));
+    }
+
+    /**
+     * Evaluates a floating point result of the preoperation, see {@link #evaluateComputed(ExpressionEvaluationContext,
+     * long)}
+     */
+    protected boolean evaluateComputed(ExpressionEvaluationContext context, double computedValue) {
+        return evaluate(context, path, DoubleNode.valueOf(computedValue));
+    }
+
+    /**
+     * Evaluates a text result of the preoperation, see {@link #evaluateComputed(ExpressionEvaluationContext, long)}
+     */
+    protected boolean evaluateComputed(ExpressionEvaluationContext context, String computedValue) {
+        return evaluate(context, path, TextNode.valueOf(computedValue));
+    }
+
+    private PathResolver pathResolver() {
+        return pathResolver.get(path, JsonPathUtils::compile);
+    }
 
+    /**
+     * Reads a comparison value from another path of the document being evaluated, directly on the document node.
+     *
+     * @param context   Evaluation context for the whole document
+     * @param valuePath Json path of the comparison value
+     * @return Node at the path, or null if the path doesn't exist
+     */
+    protected final JsonNode readValuePath(ExpressionEvaluationContext context, String valuePath) {
+        return this.valuePath.get(valuePath, ValuePath::isOf, ValuePath::new).read(context.getNode());
+    }
+
+    private JsonNode applyPreoperation(ExpressionEvaluationContext globalContext, JsonNode nodeAtPath) {
         val newContext = ExpressionEvaluationContext.builder()
                 .node(nodeAtPath)
                 .options(globalContext.getOptions())
@@ -96,4 +196,29 @@ public abstract class JsonPathBasedExpression extends Expression {
     }
 
     protected abstract boolean evaluate(ExpressionEvaluationContext context, final String path, JsonNode evaluatedNode);
+
+    private static final class ValuePath {
+        private final String path;
+        private final SimplePathResolver simplePath;
+
+        private ValuePath(String path) {
+            this.path = path;
+            this.simplePath = JsonRulesConfiguration.isNativeResolutionForSimplePathsEnabled()
+                              ? SimplePathResolver.compile(path).orElse(null)
+                              : null;
+        }
+
+        private boolean isOf(String path) {
+            return Objects.equals(this.path, path);
+        }
+
+        private JsonNode read(JsonNode document) {
+            if (null != simplePath) {
+                final Object value = simplePath.readIfPresent(document);
+                return value == PathResolver.MISSING ? null : (JsonNode) value;
+            }
+            final Object value = JsonPathUtils.read(ComparisonUtils.SUPPRESS_EXCEPTION_CONFIG, document, path);
+            return null == value || value instanceof JsonNode ? (JsonNode) value : mapper.valueToTree(value);
+        }
+    }
 }
@@ -19,18 +19,21 @@ package io.appform.jsonrules.expressions.array;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.jayway.jsonpath.JsonPath;
 import io.appform.jsonrules.ExpressionEvaluationContext;
 import io.appform.jsonrules.ExpressionType;
 import io.appform.jsonrules.expressions.JsonPathBasedExpression;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
-import io.appform.jsonrules.utils.ComparisonUtils;
+import io.appform.jsonrules.utils.CachedValue;
 import io.appform.jsonrules.utils.JsonUtils;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.Singular;
 import lombok.ToString;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -44,6 +47,12 @@ public abstract class CollectionJsonPathBasedExpression extends JsonPathBasedExp
     private boolean extractValues;
     private String valuesPath;
 
+    // Lookup structure for the literal values, built once per set of values
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient CachedValue<Set<Object>, ValueSet> valueSet = new CachedValue<>();
+
     protected CollectionJsonPathBasedExpression(ExpressionType type) {
         super(type);
     }
@@ -56,21 +65,24 @@ public abstract class CollectionJsonPathBasedExpression extends JsonPathBasedExp
                                                 boolean defaultResult,
                                                 PreOperation<?> preoperation) {
         super(type, path, defaultResult, preoperation);
-        this.values = values;
+        this.values = unmodifiableCopy(values);
         this.extractValues = extractValues;
         this.valuesPath = valuesPath;
     }
 
     public void setValues(final Set<Object> values) {
-        this.values = JsonUtils.convertToJsonNode(values);
+        this.values = unmodifiableCopy(JsonUtils.convertToJsonNode(values));
+    }
+
+    // Literal values are looked up through a structure built from them, so they can't be modified in place
+    private static Set<Object> unmodifiableCopy(Set<Object> values) {
+        return null == values ? null : Collections.unmodifiableSet(new LinkedHashSet<>(values));
     }
 
     @Override
     protected final boolean evaluate(ExpressionEvaluationContext context, String path, JsonNode evaluatedNode) {
         if (extractValues) {
-            JsonNode jsonNode = JsonPath.using(ComparisonUtils.SUPPRESS_EXCEPTION_CONFIG)
-                    .parse(context.getNode())
-                    .read(String.valueOf(valuesPath));
+            JsonNode jsonNode = readValuePath(context, String.valueOf(valuesPath));
             if (jsonNode == null || !jsonNode.isArray()) {
                 return false;
             }
@@ -86,4 +98,16 @@ public abstract class CollectionJsonPathBasedExpression extends JsonPathBasedExp
 
     protected abstract boolean evaluate(JsonNode evaluatedNode, Set<Object> values);
 
+    /**
+     * Checks if any of the values compares as equal to the node. Literal values are looked up in hash sets built on
+     * first use. The values can't be modified in place, set new values instead. Values read from the document are
+     * scanned.
+     */
+    protected final boolean anyMatch(JsonNode evaluatedNode, Set<Object> values) {
+        if (values != this.values) {
+            return ValueSet.scan(evaluatedNode, values);
+        }
+        return valueSet.get(values, ValueSet::isOf, ValueSet::new).anyMatch(evaluatedNode);
+    }
+
 }
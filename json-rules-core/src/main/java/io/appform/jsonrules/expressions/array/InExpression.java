@@ -52,7 +52,7 @@ public class InExpression extends CollectionJsonPathBasedExpression {
     @Override
     protected boolean evaluate(JsonNode evaluatedNode, Set<Object> values) {
         return !ComparisonUtils.isNodeMissingOrNull(evaluatedNode)
-                && values.stream().anyMatch(value -> ComparisonUtils.compare(evaluatedNode, value) == 0);
+                && anyMatch(evaluatedNode, values);
     }
 
     @Override
@@ -53,7 +53,7 @@ public class NotInExpression extends CollectionJsonPathBasedExpression {
     @Override
     protected boolean evaluate(JsonNode evaluatedNode, Set<Object> values) {
         return (ComparisonUtils.isNodeMissingOrNull(evaluatedNode)
-                || values.stream().allMatch(value -> ComparisonUtils.compare(evaluatedNode, value) != 0));
+                || !anyMatch(evaluatedNode, values));
     }
 
     @Override
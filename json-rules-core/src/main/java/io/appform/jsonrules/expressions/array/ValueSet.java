@@ -0,0 +1,170 @@
+package io.appform.jsonrules.expressions.array;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.NumericNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.appform.jsonrules.utils.ComparisonUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Literal values of a collection expression, partitioned by the type of node they are compared with, so that finding
+ * a value equal to a node is a hash lookup instead of a scan over all values.
+ * <p>
+ * Keys follow {@link ComparisonUtils#compare(JsonNode, Object)}: integral nodes match values with the same long value
+ * (so 20 matches 20.0 and 20.5), floating point nodes match values with the same double value, boolean nodes match
+ * values that parse as the same boolean and text nodes match values with the same string form. Lookups that would
+ * fail on some of the values, like numbers looked up among non numeric values or objects, scan the values in order
+ * instead, so that they fail in the same way.
+ * <p>
+ * Immutable once built, as required by {@link io.appform.jsonrules.utils.CachedValue}.
+ */
+final class ValueSet {
+    private final Set<Object> values;
+    private final boolean exact;
+    private final boolean numeric;
+    private final Set<String> texts = new HashSet<>();
+    private final LongSet integrals;
+    private final LongSet floatingPoints;
+    private final boolean anyTrue;
+    private final boolean anyFalse;
+
+    ValueSet(Set<Object> values) {
+        this.values = values;
+        this.integrals = new LongSet(values.size());
+        this.floatingPoints = new LongSet(values.size());
+        boolean allJsonNodes = true;
+        boolean allNumeric = true;
+        boolean foundTrue = false;
+        boolean foundFalse = false;
+        for (Object value : values) {
+            if (!(value instanceof JsonNode)) {
+                allJsonNodes = false;
+                break;
+            }
+            texts.add(value instanceof TextNode ? ((TextNode) value).asText() : value.toString());
+            final boolean booleanValue = value instanceof BooleanNode
+                                         ? ((BooleanNode) value).booleanValue()
+                                         : Boolean.parseBoolean(value.toString());
+            foundTrue |= booleanValue;
+            foundFalse |= !booleanValue;
+            if (value instanceof NumericNode) {
+                final Number number = ((NumericNode) value).numberValue();
+                integrals.add(number.longValue());
+                floatingPoints.add(Double.doubleToLongBits(number.doubleValue()));
+            } else {
+                allNumeric = false;
+            }
+        }
+        this.exact = allJsonNodes;
+        this.numeric = allNumeric;
+        this.anyTrue = foundTrue;
+        this.anyFalse = foundFalse;
+    }
+
+    boolean isOf(Set<Object> values) {
+        return this.values == values;
+    }
+
+    /**
+     * @return True if any value compares as equal to the node
+     */
+    boolean anyMatch(JsonNode node) {
+        if (!exact || values.isEmpty()) {
+            return scan(node, values);
+        }
+        if (node.isIntegralNumber() && numeric) {
+            return integrals.contains(node.asLong());
+        }
+        if (node.isFloatingPointNumber() && numeric) {
+            return floatingPoints.contains(Double.doubleToLongBits(node.asDouble()));
+        }
+        if (node.isBoolean()) {
+            return node.booleanValue() ? anyTrue : anyFalse;
+        }
+        if (node.isTextual()) {
+            return texts.contains(node.asText());
+        }
+        return scan(node, values);
+    }
+
+    static boolean scan(JsonNode node, Set<Object> values) {
+        for (Object value : values) {
+            if (ComparisonUtils.compare(node, value) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Open addressing hash set of primitive longs
+     */
+    private static final class LongSet {
+        private long[] keys;
+        // Zero marks empty slots, so it is tracked separately
+        private boolean containsZero;
+        private int size;
+
+        private LongSet(int expectedSize) {
+            keys = new long[capacityFor(expectedSize)];
+        }
+
+        private void add(long key) {
+            if (key == 0) {
+                containsZero = true;
+                return;
+            }
+            if (2 * (size + 1) > keys.length) {
+                final long[] old = keys;
+                keys = new long[old.length * 2];
+                size = 0;
+                for (long oldKey : old) {
+                    if (oldKey != 0) {
+                        add(oldKey);
+                    }
+                }
+            }
+            final int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            size++;
+        }
+
+        private boolean contains(long key) {
+            if (key == 0) {
+                return containsZero;
+            }
+            final int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        private static int slot(long key, int mask) {
+            final long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private static int capacityFor(int expectedSize) {
+            int capacity = 4;
+            while (capacity < 2 * expectedSize) {
+                capacity <<= 1;
+            }
+            return capacity;
+        }
+    }
+}
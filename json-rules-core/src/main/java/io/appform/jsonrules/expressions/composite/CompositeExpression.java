@@ -20,10 +20,15 @@ package io.appform.jsonrules.expressions.composite;
 import io.appform.jsonrules.Expression;
 import io.appform.jsonrules.ExpressionEvaluationContext;
 import io.appform.jsonrules.ExpressionType;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.ToString;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -35,19 +40,43 @@ import java.util.List;
 public abstract class CompositeExpression extends Expression {
     private List<Expression> children;
 
+    // Children as an array, to evaluate them without iterators. Set along with the children.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Expression[] childArray;
+
     protected CompositeExpression(ExpressionType type) {
         super(type);
     }
 
     protected CompositeExpression(ExpressionType type, List<Expression> children) {
         this(type);
-        this.children = children;
+        setChildren(children);
+    }
+
+    /**
+     * Sets the children of this expression. An unmodifiable copy of the list is kept, set a new list to change them.
+     */
+    public void setChildren(List<Expression> children) {
+        this.children = null == children ? null : Collections.unmodifiableList(new ArrayList<>(children));
+        this.childArray = null == children ? null : this.children.toArray(new Expression[0]);
     }
 
     @Override
     public final boolean evaluate(ExpressionEvaluationContext context) {
-        return null != children
-                && evaluate(context, children);
+        final Expression[] expressions = childArray;
+        return null != expressions
+                && evaluate(context, expressions);
+    }
+
+    /**
+     * Evaluates the children as an array, so that they can be looped over without iterators. Defaults to
+     * {@link #evaluate(ExpressionEvaluationContext, List)}, operators override it to evaluate without allocating.
+     */
+    protected boolean evaluate(ExpressionEvaluationContext context, Expression[] children) {
+        return evaluate(context, this.children);
     }
 
     protected abstract boolean evaluate(ExpressionEvaluationContext context, List<Expression> children);
@@ -25,7 +25,6 @@ import io.appform.jsonrules.ExpressionVisitor;
 import lombok.*;
 
 import java.util.List;
-import java.util.function.Predicate;
 
 /**
  * And operator
@@ -45,9 +44,17 @@ public class OrExpression extends CompositeExpression {
 
     @Override
     protected boolean evaluate(ExpressionEvaluationContext context, List<Expression> children) {
-        return children.stream()
-                .map(expression -> expression.evaluate(context))
-                .anyMatch(Predicate.isEqual(true));
+        return evaluate(context, children.toArray(new Expression[0]));
+    }
+
+    @Override
+    protected boolean evaluate(ExpressionEvaluationContext context, Expression[] children) {
+        for (Expression child : children) {
+            if (child.evaluate(context)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
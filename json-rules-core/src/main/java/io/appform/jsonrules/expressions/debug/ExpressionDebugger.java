@@ -18,10 +18,10 @@
 package io.appform.jsonrules.expressions.debug;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.jayway.jsonpath.PathNotFoundException;
 import io.appform.jsonrules.Expression;
 import io.appform.jsonrules.ExpressionType;
 import io.appform.jsonrules.ExpressionVisitor;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
 import io.appform.jsonrules.expressions.array.ContainsAllExpression;
 import io.appform.jsonrules.expressions.array.ContainsAnyExpression;
 import io.appform.jsonrules.expressions.array.InExpression;
@@ -35,7 +35,7 @@ import io.appform.jsonrules.expressions.meta.ExistsExpression;
 import io.appform.jsonrules.expressions.meta.NotExistsExpression;
 import io.appform.jsonrules.expressions.numeric.*;
 import io.appform.jsonrules.expressions.string.*;
-import io.appform.jsonrules.utils.JsonPathUtils;
+import io.appform.jsonrules.jsonpath.resolvers.PathResolver;
 import io.appform.jsonrules.utils.JsonUtils;
 import lombok.Builder;
 import lombok.Data;
@@ -90,7 +90,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(ExistsExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -100,7 +100,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(NotExistsExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -110,7 +110,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(GreaterThanExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -123,7 +123,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(GreaterThanEqualsExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -136,7 +136,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(LessThanExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -149,7 +149,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(LessThanEqualsExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -162,7 +162,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(EqualsExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -175,7 +175,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(NotEqualsExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -188,7 +188,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(EmptyExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -198,7 +198,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(NotEmptyExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -208,7 +208,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(StartsWithExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -221,7 +221,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(EndsWithExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -234,7 +234,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(MatchesExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -247,7 +247,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(InExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -257,7 +257,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(NotInExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -267,7 +267,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(ContainsAnyExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -277,7 +277,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(ContainsAllExpression expression, JsonNode node) {
-        final val value = fetchValue(node, expression.getPath());
+        final val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -287,7 +287,7 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
 
     @Override
     public FailureDetail visit(BetweenExpression expression, JsonNode node) {
-        val value = fetchValue(node, expression.getPath());
+        val value = fetchValue(node, expression);
         return generateDetails(expression.getType(),
                 expression.getPath(),
                 value,
@@ -334,13 +334,11 @@ public class ExpressionDebugger implements ExpressionVisitor<FailureDetail> {
                 .build();
     }
 
-    private Object fetchValue(JsonNode jsonNode, String path) {
-        if (jsonNode != null && path != null) {
-            try {
-                return JsonPathUtils.read(jsonNode, path);
-            } catch (PathNotFoundException e) {
-                // ignore
-            }
+    // Read through the resolver the expression evaluates with, null if the path doesn't exist
+    private Object fetchValue(JsonNode jsonNode, JsonPathBasedExpression expression) {
+        if (jsonNode != null && expression.getPath() != null) {
+            final Object value = expression.readPath(jsonNode);
+            return value == PathResolver.MISSING ? null : value;
         }
         return null;
     }
@@ -61,6 +61,30 @@ public class NotEqualsExpression extends JsonPathBasedExpression {
                 || ComparisonUtils.compare(evaluatedNode, value) != 0;
     }
 
+    @Override
+    protected boolean evaluateComputed(ExpressionEvaluationContext context, long computedValue) {
+        if (extractValueFromPath) {
+            return super.evaluateComputed(context, computedValue);
+        }
+        return value == null || ComparisonUtils.compare(computedValue, value) != 0;
+    }
+
+    @Override
+    protected boolean evaluateComputed(ExpressionEvaluationContext context, double computedValue) {
+        if (extractValueFromPath) {
+            return super.evaluateComputed(context, computedValue);
+        }
+        return value == null || ComparisonUtils.compare(computedValue, value) != 0;
+    }
+
+    @Override
+    protected boolean evaluateComputed(ExpressionEvaluationContext context, String computedValue) {
+        if (extractValueFromPath) {
+            return super.evaluateComputed(context, computedValue);
+        }
+        return value == null || ComparisonUtils.compare(computedValue, value) != 0;
+    }
+
     @Override
     public <T> T accept(ExpressionVisitor<T> visitor, JsonNode jsonNode) {
         return visitor.visit(this, jsonNode);
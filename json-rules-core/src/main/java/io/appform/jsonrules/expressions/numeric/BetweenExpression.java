@@ -23,9 +23,12 @@ import io.appform.jsonrules.ExpressionType;
 import io.appform.jsonrules.ExpressionVisitor;
 import io.appform.jsonrules.expressions.JsonPathBasedExpression;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
+import io.appform.jsonrules.utils.CachedValue;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.ToString;
 
 @Data
@@ -37,6 +40,12 @@ public class BetweenExpression extends JsonPathBasedExpression {
     private boolean includeLowerBound;
     private boolean includeUpperBound;
 
+    // Bounds decoded to primitives, decoded again whenever either bound changes
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient CachedValue<BetweenExpression, Bounds> bounds = new CachedValue<>();
+
     public BetweenExpression() {
         super(ExpressionType.between);
     }
@@ -56,24 +65,68 @@ public class BetweenExpression extends JsonPathBasedExpression {
         this.includeUpperBound = includeUpperBound;
     }
 
+    @Override
+    protected boolean evaluateComputed(ExpressionEvaluationContext context, long computedValue) {
+        return isBetween(computedValue);
+    }
+
+    @Override
+    protected boolean evaluateComputed(ExpressionEvaluationContext context, double computedValue) {
+        return isBetween(computedValue);
+    }
+
+    // Text computed by preoperations is not a number
+    @Override
+    protected boolean evaluateComputed(ExpressionEvaluationContext context, String computedValue) {
+        return false;
+    }
+
     @Override
     protected boolean evaluate(ExpressionEvaluationContext context, String path, JsonNode evaluatedNode) {
         if (null == evaluatedNode || !evaluatedNode.isNumber()) {
             return false;
         }
-        boolean finalResult = false;
-        if (evaluatedNode.isIntegralNumber()) {
-            finalResult = includeLowerBound ? evaluatedNode.asLong() >= lowerBound.longValue()
-                    : evaluatedNode.asLong() > lowerBound.longValue();
-            finalResult &= includeUpperBound ? evaluatedNode.asLong() <= upperBound.longValue()
-                    : evaluatedNode.asLong() < upperBound.longValue();
-        } else if (evaluatedNode.isFloatingPointNumber()) {
-            finalResult = includeLowerBound ? evaluatedNode.doubleValue() >= lowerBound.doubleValue()
-                    : evaluatedNode.doubleValue() > lowerBound.doubleValue();
-            finalResult &= includeUpperBound ? evaluatedNode.doubleValue() <= upperBound.doubleValue()
-                    : evaluatedNode.doubleValue() < upperBound.doubleValue();
+        return evaluatedNode.isIntegralNumber()
+               ? isBetween(evaluatedNode.asLong())
+               : isBetween(evaluatedNode.doubleValue());
+    }
+
+    private boolean isBetween(long value) {
+        final Bounds current = bounds();
+        return (includeLowerBound ? value >= current.lowerLong : value > current.lowerLong)
+                && (includeUpperBound ? value <= current.upperLong : value < current.upperLong);
+    }
+
+    private boolean isBetween(double value) {
+        final Bounds current = bounds();
+        return (includeLowerBound ? value >= current.lowerDouble : value > current.lowerDouble)
+                && (includeUpperBound ? value <= current.upperDouble : value < current.upperDouble);
+    }
+
+    private Bounds bounds() {
+        return bounds.get(this, Bounds::isOf, Bounds::new);
+    }
+
+    private static final class Bounds {
+        private final Number lowerBound;
+        private final Number upperBound;
+        private final long lowerLong;
+        private final long upperLong;
+        private final double lowerDouble;
+        private final double upperDouble;
+
+        private Bounds(BetweenExpression expression) {
+            this.lowerBound = expression.lowerBound;
+            this.upperBound = expression.upperBound;
+            this.lowerLong = lowerBound.longValue();
+            this.upperLong = upperBound.longValue();
+            this.lowerDouble = lowerBound.doubleValue();
+            this.upperDouble = upperBound.doubleValue();
+        }
+
+        private boolean isOf(BetweenExpression expression) {
+            return lowerBound == expression.lowerBound && upperBound == expression.upperBound;
         }
-        return finalResult;
     }
 
     @Override
@@ -18,18 +18,17 @@
 package io.appform.jsonrules.expressions.numeric;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.jayway.jsonpath.JsonPath;
 import io.appform.jsonrules.ExpressionEvaluationContext;
 import io.appform.jsonrules.ExpressionType;
 import io.appform.jsonrules.expressions.JsonPathBasedExpression;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
-import io.appform.jsonrules.utils.ComparisonUtils;
+import io.appform.jsonrules.utils.CachedValue;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.ToString;
 
-import static io.appform.jsonrules.utils.ComparisonUtils.mapper;
-
 /**
  * All numeric binary expressions
  */
@@ -40,6 +39,12 @@ public abstract class NumericJsonPathBasedExpression extends JsonPathBasedExpres
     private Object value;
     private boolean extractValueFromPath;
 
+    // Literal value decoded to primitives, decoded again whenever the value changes
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient CachedValue<Object, NumericValue> literal = new CachedValue<>();
+
     protected NumericJsonPathBasedExpression(ExpressionType type) {
         super(type);
     }
@@ -51,40 +56,79 @@ public abstract class NumericJsonPathBasedExpression extends JsonPathBasedExpres
         this.extractValueFromPath = extractValueFromPath;
     }
 
+    @Override
+    protected final boolean evaluateComputed(ExpressionEvaluationContext context, long computedValue) {
+        return compare(context, computedValue);
+    }
+
+    @Override
+    protected final boolean evaluateComputed(ExpressionEvaluationContext context, double computedValue) {
+        return compare(context, computedValue);
+    }
+
+    // Text computed by preoperations is not a number
+    @Override
+    protected final boolean evaluateComputed(ExpressionEvaluationContext context, String computedValue) {
+        return false;
+    }
+
     @Override
     protected final boolean evaluate(ExpressionEvaluationContext context, String path, JsonNode evaluatedNode) {
         if (null == evaluatedNode || !evaluatedNode.isNumber()) {
             return false;
         }
+        return evaluatedNode.isIntegralNumber()
+               ? compare(context, evaluatedNode.asLong())
+               : compare(context, evaluatedNode.asDouble());
+    }
 
-        Number numericalValue;
-        if (extractValueFromPath) {
-            JsonNode jsonNode = mapper.valueToTree(JsonPath.using(ComparisonUtils.SUPPRESS_EXCEPTION_CONFIG)
-                    .parse(context.getNode().toString()).read(String.valueOf(value)));
-            if (jsonNode == null) {
-                return false;
-            }
-            if (jsonNode.isIntegralNumber()) {
-                numericalValue = jsonNode.asLong();
-            } else if (jsonNode.isFloatingPointNumber()) {
-                numericalValue = jsonNode.asDouble();
-            } else {
-                // If node @value path is missing or not a number, exception
-                // would be thrown.
-                return false;
-            }
-        } else {
-            numericalValue = (Number) value;
+    private boolean compare(ExpressionEvaluationContext context, long number) {
+        if (!extractValueFromPath) {
+            return evaluate(context, Long.compare(number, literal().longValue));
         }
+        JsonNode jsonNode = readValuePath(context, String.valueOf(value));
+        if (jsonNode == null || !jsonNode.isNumber()) {
+            // If node @value path is missing or not a number, exception
+            // would be thrown.
+            return false;
+        }
+        final long numericalValue = jsonNode.isIntegralNumber() ? jsonNode.asLong() : (long) jsonNode.asDouble();
+        return evaluate(context, Long.compare(number, numericalValue));
+    }
 
-        int comparisonResult = 0;
-        if (evaluatedNode.isIntegralNumber()) {
-            comparisonResult = Long.compare(evaluatedNode.asLong(), numericalValue.longValue());
-        } else if (evaluatedNode.isFloatingPointNumber()) {
-            comparisonResult = Double.compare(evaluatedNode.asDouble(), numericalValue.doubleValue());
+    private boolean compare(ExpressionEvaluationContext context, double number) {
+        if (!extractValueFromPath) {
+            return evaluate(context, Double.compare(number, literal().doubleValue));
+        }
+        JsonNode jsonNode = readValuePath(context, String.valueOf(value));
+        if (jsonNode == null || !jsonNode.isNumber()) {
+            return false;
         }
-        return evaluate(context, comparisonResult);
+        final double numericalValue = jsonNode.isIntegralNumber() ? jsonNode.asLong() : jsonNode.asDouble();
+        return evaluate(context, Double.compare(number, numericalValue));
+    }
+
+    private NumericValue literal() {
+        return literal.get(value, NumericValue::isOf, NumericValue::new);
     }
 
     protected abstract boolean evaluate(ExpressionEvaluationContext context, int comparisonResult);
+
+    private static final class NumericValue {
+        private final Object value;
+        private final long longValue;
+        private final double doubleValue;
+
+        private NumericValue(Object value) {
+            // Comparisons with values that aren't numbers fail here
+            final Number number = (Number) value;
+            this.value = value;
+            this.longValue = number.longValue();
+            this.doubleValue = number.doubleValue();
+        }
+
+        private boolean isOf(Object value) {
+            return this.value == value;
+        }
+    }
 }
@@ -19,7 +19,10 @@ package io.appform.jsonrules.expressions.preoperation;
 
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import io.appform.jsonrules.ExpressionEvaluationContext;
+import io.appform.jsonrules.config.JacksonConfiguration;
 import io.appform.jsonrules.expressions.preoperation.array.SizeOperation;
 import io.appform.jsonrules.expressions.preoperation.date.DateTimeOperation;
 import io.appform.jsonrules.expressions.preoperation.date.DiffFromCurrentEpochOperation;
@@ -58,4 +61,58 @@ public abstract class PreOperation<T> {
 	private final PreOperationType operation;
 	
 	public abstract T compute(ExpressionEvaluationContext context);
+
+	/**
+	 * Type of the result of computing on a node. Expressions evaluate {@link ResultType#INTEGRAL},
+	 * {@link ResultType#FLOATING_POINT} and {@link ResultType#TEXT} results as they are, without building a context
+	 * for the node or converting the result back into a node.
+	 *
+	 * @param node Node at the path of the expression
+	 * @return Type of the result, {@link ResultType#OBJECT} if it is only computed by {@link #compute}
+	 */
+	public ResultType resultType(JsonNode node) {
+		return ResultType.OBJECT;
+	}
+
+	/**
+	 * Computes an {@link ResultType#INTEGRAL} result. Defaults to {@link #compute} on a context for the node, with the
+	 * result converted as by {@link JsonNode#asLong()}.
+	 *
+	 * @param context Evaluation context for the whole document
+	 * @param node    Node at the path of the expression
+	 */
+	public long computeLong(ExpressionEvaluationContext context, JsonNode node) {
+		return computeNode(context, node).asLong();
+	}
+
+	/**
+	 * Computes a {@link ResultType#FLOATING_POINT} result. Defaults to {@link #compute} on a context for the node, with
+	 * the result converted as by {@link JsonNode#asDouble()}.
+	 *
+	 * @param context Evaluation context for the whole document
+	 * @param node    Node at the path of the expression
+	 */
+	public double computeDouble(ExpressionEvaluationContext context, JsonNode node) {
+		return computeNode(context, node).asDouble();
+	}
+
+	/**
+	 * Computes a {@link ResultType#TEXT} result. Defaults to {@link #compute} on a context for the node, with the result
+	 * converted as by {@link JsonNode#asText()}.
+	 *
+	 * @param context Evaluation context for the whole document
+	 * @param node    Node at the path of the expression
+	 */
+	public String computeText(ExpressionEvaluationContext context, JsonNode node) {
+		return computeNode(context, node).asText();
+	}
+
+	private JsonNode computeNode(ExpressionEvaluationContext context, JsonNode node) {
+		final T value = compute(ExpressionEvaluationContext.builder()
+				.node(node)
+				.options(context.getOptions())
+				.build());
+		final JsonNode computed = JacksonConfiguration.getInstance().getObjectMapper().valueToTree(value);
+		return null == computed ? MissingNode.getInstance() : computed;
+	}
 }
@@ -0,0 +1,15 @@
+package io.appform.jsonrules.expressions.preoperation;
+
+/**
+ * Types of results computed by pre-operations, see {@link PreOperation#resultType}
+ */
+public enum ResultType {
+	// Computed by PreOperation#computeLong
+	INTEGRAL,
+	// Computed by PreOperation#computeDouble
+	FLOATING_POINT,
+	// Computed by PreOperation#computeText
+	TEXT,
+	// Only computed by PreOperation#compute
+	OBJECT
+}
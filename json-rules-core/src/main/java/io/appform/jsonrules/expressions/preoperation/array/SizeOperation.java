@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import io.appform.jsonrules.ExpressionEvaluationContext;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
 import io.appform.jsonrules.expressions.preoperation.PreOperationType;
+import io.appform.jsonrules.expressions.preoperation.ResultType;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -37,7 +38,20 @@ public class SizeOperation extends PreOperation<Number> {
 
     @Override
     public Number compute(ExpressionEvaluationContext context) {
-        JsonNode node = context.getNode();
+        return size(context.getNode());
+    }
+
+    @Override
+    public ResultType resultType(JsonNode node) {
+        return ResultType.INTEGRAL;
+    }
+
+    @Override
+    public long computeLong(ExpressionEvaluationContext context, JsonNode node) {
+        return size(node);
+    }
+
+    private static int size(JsonNode node) {
         if (node.isArray()) {
             return ((ArrayNode) node).size();
         }
@@ -21,10 +21,19 @@ import com.fasterxml.jackson.databind.JsonNode;
 import io.appform.jsonrules.ExpressionEvaluationContext;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
 import io.appform.jsonrules.expressions.preoperation.PreOperationType;
+import io.appform.jsonrules.expressions.preoperation.ResultType;
+import io.appform.jsonrules.utils.CachedValue;
+import io.appform.jsonrules.utils.PreOperationUtils;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.ToString;
 
+import java.time.DateTimeException;
+import java.time.ZoneOffset;
+import java.util.Objects;
+
 /**
  * All Date related pre-operations
  */
@@ -36,6 +45,12 @@ public abstract class CalendarOperation extends PreOperation<Number> {
 	private String zoneOffSet;
 	private String pattern;
 
+	// Zone offset of the last computation, parsed again when a different offset is used
+	@Getter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private final transient CachedValue<String, Offset> offset = new CachedValue<>();
+
 	protected CalendarOperation(PreOperationType type) {
 		super(type);
 	}
@@ -64,6 +79,53 @@ public abstract class CalendarOperation extends PreOperation<Number> {
 		JsonNode node = context.getNode();
 		return compute(node);
 	}
+
+	// Calendar fields are whole numbers
+	@Override
+	public ResultType resultType(JsonNode node) {
+		return ResultType.INTEGRAL;
+	}
+
+	@Override
+	public long computeLong(ExpressionEvaluationContext context, JsonNode node) {
+		return compute(node).longValue();
+	}
 	protected abstract Number compute(JsonNode evaluatedNode, String operand, String zoneOffSet, String pattern);
 
+	/**
+	 * Parses the zone offset once, and reuses it as long as the same offset is used
+	 *
+	 * @param zoneOffSet Zone offset, UTC if empty
+	 * @return Parsed offset
+	 * @throws IllegalArgumentException if the offset is not valid
+	 */
+	protected ZoneOffset zoneOffset(String zoneOffSet) {
+		final Offset current = offset.get(zoneOffSet, Offset::isOf, Offset::new);
+		if (null == current.offset) {
+			throw new IllegalArgumentException("Operand doesnot represent a valid date");
+		}
+		return current.offset;
+	}
+
+	private static final class Offset {
+		private final String zoneOffSet;
+		// Null if the offset is not valid
+		private final ZoneOffset offset;
+
+		private Offset(String zoneOffSet) {
+			ZoneOffset parsed;
+			try {
+				parsed = PreOperationUtils.getZoneOffset(zoneOffSet);
+			} catch (DateTimeException e) {
+				parsed = null;
+			}
+			this.zoneOffSet = zoneOffSet;
+			this.offset = parsed;
+		}
+
+		private boolean isOf(String zoneOffSet) {
+			return Objects.equals(this.zoneOffSet, zoneOffSet);
+		}
+	}
+
 }
@@ -25,8 +25,6 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
-import java.time.OffsetDateTime;
-
 @Data
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
@@ -47,8 +45,8 @@ public class DateTimeOperation extends CalendarOperation {
 	@Override
 	public Number compute(JsonNode evaluatedNode, String operand, String zoneOffset, String pattern) {
 		try {
-			final OffsetDateTime dateTime = PreOperationUtils.getDateTime(evaluatedNode.asText(), zoneOffset, pattern);
-			return PreOperationUtils.getFromDateTime(dateTime, operand);
+			final long epochSecond = PreOperationUtils.getEpochSecond(evaluatedNode.asText(), pattern);
+			return PreOperationUtils.getFromEpochSecond(epochSecond, zoneOffset(zoneOffset), operand);
 		} catch (Exception e) {
 			throw new IllegalArgumentException("Operand doesnot represent a valid date");
 		}
@@ -5,6 +5,7 @@ import io.appform.jsonrules.ExpressionEvaluationContext;
 import io.appform.jsonrules.OptionKeys;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
 import io.appform.jsonrules.expressions.preoperation.PreOperationType;
+import io.appform.jsonrules.expressions.preoperation.ResultType;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -23,7 +24,7 @@ public class DiffFromCurrentEpochOperation extends PreOperation<Number> {
     }
 
 
-    private Number compute(JsonNode evaluatedNode, long currentEpoch) {
+    private long compute(JsonNode evaluatedNode, long currentEpoch) {
         if (evaluatedNode.isLong()) {
             return currentEpoch - evaluatedNode.asLong();
         }
@@ -32,9 +33,19 @@ public class DiffFromCurrentEpochOperation extends PreOperation<Number> {
 
     @Override
     public Number compute(ExpressionEvaluationContext context) {
+        return computeLong(context, context.getNode());
+    }
+
+    @Override
+    public ResultType resultType(JsonNode node) {
+        return ResultType.INTEGRAL;
+    }
+
+    @Override
+    public long computeLong(ExpressionEvaluationContext context, JsonNode node) {
         try {
             long currentEpoch = (long)(context.getOptions().getOrDefault(OptionKeys.SYSTEM_TIME, System.currentTimeMillis()));
-            return compute(context.getNode(), currentEpoch);
+            return compute(node, currentEpoch);
         } catch (Exception e) {
             throw new IllegalArgumentException("Operands does not represent a valid epoch", e);
         }
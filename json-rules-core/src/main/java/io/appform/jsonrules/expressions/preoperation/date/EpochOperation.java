@@ -25,8 +25,6 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
-import java.time.OffsetDateTime;
-
 @Data
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
@@ -49,7 +47,7 @@ public class EpochOperation extends CalendarOperation {
 		/**
 		 * Patten cant be used with epoch
 		 */
-		final OffsetDateTime dateTime = PreOperationUtils.getDateTime(evaluatedNode.asLong(), zoneOffSet);
-		return PreOperationUtils.getFromDateTime(dateTime, operand);
+		final long epochSecond = PreOperationUtils.getEpochSecond(evaluatedNode.asLong());
+		return PreOperationUtils.getFromEpochSecond(epochSecond, zoneOffset(zoneOffSet), operand);
 	}
 }
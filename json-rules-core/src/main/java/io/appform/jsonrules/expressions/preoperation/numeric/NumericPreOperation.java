@@ -21,6 +21,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import io.appform.jsonrules.ExpressionEvaluationContext;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
 import io.appform.jsonrules.expressions.preoperation.PreOperationType;
+import io.appform.jsonrules.expressions.preoperation.ResultType;
 import io.appform.jsonrules.utils.PreOperationUtils;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -45,18 +46,36 @@ public abstract class NumericPreOperation extends PreOperation<Number> {
 	}
 
 	public Number compute(JsonNode evaluatedNode) {
-		if (evaluatedNode.isNumber()) {
-			if (evaluatedNode.isIntegralNumber()) {
-				return compute(evaluatedNode.asLong(), operand.longValue());
-			} else {
-				return compute(evaluatedNode.asDouble(), operand.doubleValue());
-			}
-        } else if (PreOperationUtils.isNumericRepresentation(evaluatedNode)) {
-            // For extending pre-operation to numbers represented as text.
-            return compute(Double.parseDouble(evaluatedNode.asText()), operand.doubleValue());
-        } else {
-            throw new IllegalArgumentException("Non numeric operations are not supported");
-        }
+		if (resultType(evaluatedNode) == ResultType.INTEGRAL) {
+			return compute(evaluatedNode.asLong(), operand.longValue());
+		}
+		return computeDouble(evaluatedNode);
+	}
+
+	@Override
+	public ResultType resultType(JsonNode node) {
+		if (node.isNumber()) {
+			return node.isIntegralNumber() ? ResultType.INTEGRAL : ResultType.FLOATING_POINT;
+		} else if (PreOperationUtils.isNumericRepresentation(node)) {
+			// For extending pre-operation to numbers represented as text.
+			return ResultType.FLOATING_POINT;
+		}
+		throw new IllegalArgumentException("Non numeric operations are not supported");
+	}
+
+	@Override
+	public long computeLong(ExpressionEvaluationContext context, JsonNode node) {
+		return compute(node.asLong(), operand.longValue());
+	}
+
+	@Override
+	public double computeDouble(ExpressionEvaluationContext context, JsonNode node) {
+		return computeDouble(node);
+	}
+
+	private double computeDouble(JsonNode node) {
+		final double leftOperand = node.isNumber() ? node.asDouble() : Double.parseDouble(node.asText());
+		return compute(leftOperand, operand.doubleValue());
 	}
 
 	@Override
@@ -21,6 +21,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import io.appform.jsonrules.ExpressionEvaluationContext;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
 import io.appform.jsonrules.expressions.preoperation.PreOperationType;
+import io.appform.jsonrules.expressions.preoperation.ResultType;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -38,7 +39,20 @@ public class LengthOperation extends PreOperation<Number> {
 
     @Override
     public Number compute(ExpressionEvaluationContext context) {
-        JsonNode node = context.getNode();
+        return length(context.getNode());
+    }
+
+    @Override
+    public ResultType resultType(JsonNode node) {
+        return ResultType.INTEGRAL;
+    }
+
+    @Override
+    public long computeLong(ExpressionEvaluationContext context, JsonNode node) {
+        return length(node);
+    }
+
+    private static int length(JsonNode node) {
         if (node.isTextual()) {
             return node.asText(EMPTY_STRING).length();
         }
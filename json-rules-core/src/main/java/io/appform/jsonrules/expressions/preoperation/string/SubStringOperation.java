@@ -21,6 +21,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import io.appform.jsonrules.ExpressionEvaluationContext;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
 import io.appform.jsonrules.expressions.preoperation.PreOperationType;
+import io.appform.jsonrules.expressions.preoperation.ResultType;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -56,8 +57,21 @@ public class SubStringOperation extends PreOperation<String> {
 
     @Override
     public String compute(ExpressionEvaluationContext context) {
+        return substring(context.getNode());
+    }
+
+    @Override
+    public ResultType resultType(JsonNode node) {
+        return ResultType.TEXT;
+    }
+
+    @Override
+    public String computeText(ExpressionEvaluationContext context, JsonNode node) {
+        return substring(node);
+    }
+
+    private String substring(JsonNode node) {
         try {
-            final JsonNode node = context.getNode();
             if (node.isTextual()) {
                 final String nodeText = node.asText(EMPTY_STRING);
                 if (beginIndex >= 0 && beginIndex < nodeText.length()) {
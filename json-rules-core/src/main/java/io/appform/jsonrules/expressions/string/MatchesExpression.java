@@ -22,11 +22,17 @@ import com.google.common.base.Strings;
 import io.appform.jsonrules.ExpressionType;
 import io.appform.jsonrules.ExpressionVisitor;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
+import io.appform.jsonrules.utils.CachedValue;
+import io.appform.jsonrules.utils.PatternUtils;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.ToString;
 
+import java.util.regex.Pattern;
+
 /**
  * Check is string at json path matches with given value
  */
@@ -34,6 +40,11 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class MatchesExpression extends StringJsonPathBasedExpression {
+    // Pattern compiled from the literal value, recompiled only if the value or case sensitivity change
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient CachedValue<MatchesExpression, CompiledPattern> compiledPattern = new CachedValue<>();
 
     public MatchesExpression() {
         super(ExpressionType.matches);
@@ -48,16 +59,37 @@ public class MatchesExpression extends StringJsonPathBasedExpression {
     @Override
     protected boolean evaluate(String leftValue, String rightValue, boolean ignoreCase) {
         if (!Strings.isNullOrEmpty(leftValue) && !Strings.isNullOrEmpty(rightValue)) {
-            if (ignoreCase) {
-                return leftValue.toLowerCase().matches(rightValue.toLowerCase());
-            }
-            return leftValue.matches(rightValue);
+            return pattern(rightValue, ignoreCase).matcher(leftValue).matches();
         }
         return false;
     }
 
+    // Literal values are compared with the value and case sensitivity of the expression
+    private Pattern pattern(String regex, boolean ignoreCase) {
+        if (isExtractValueFromPath()) {
+            return PatternUtils.cached(regex, ignoreCase);
+        }
+        return compiledPattern.get(this, CompiledPattern::isOf, CompiledPattern::new).pattern;
+    }
+
     @Override
     public <T> T accept(ExpressionVisitor<T> visitor, JsonNode jsonNode) {
         return visitor.visit(this, jsonNode);
     }
+
+    private static final class CompiledPattern {
+        private final String regex;
+        private final boolean ignoreCase;
+        private final Pattern pattern;
+
+        private CompiledPattern(MatchesExpression expression) {
+            this.regex = expression.getValue();
+            this.ignoreCase = expression.isIgnoreCase();
+            this.pattern = PatternUtils.compile(regex, ignoreCase);
+        }
+
+        private boolean isOf(MatchesExpression expression) {
+            return ignoreCase == expression.isIgnoreCase() && regex.equals(expression.getValue());
+        }
+    }
 }
@@ -18,18 +18,14 @@
 package io.appform.jsonrules.expressions.string;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.jayway.jsonpath.JsonPath;
 import io.appform.jsonrules.ExpressionEvaluationContext;
 import io.appform.jsonrules.ExpressionType;
 import io.appform.jsonrules.expressions.JsonPathBasedExpression;
 import io.appform.jsonrules.expressions.preoperation.PreOperation;
-import io.appform.jsonrules.utils.ComparisonUtils;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
-import static io.appform.jsonrules.utils.ComparisonUtils.mapper;
-
 /**
  * All string operable expressions
  */
@@ -58,15 +54,34 @@ public abstract class StringJsonPathBasedExpression extends JsonPathBasedExpress
         if (!evaluatedNode.isTextual()) {
             return false;
         }
+        return evaluate(context, evaluatedNode.asText());
+    }
+
+    // Numbers computed by preoperations are not text
+    @Override
+    protected final boolean evaluateComputed(ExpressionEvaluationContext context, long computedValue) {
+        return false;
+    }
+
+    @Override
+    protected final boolean evaluateComputed(ExpressionEvaluationContext context, double computedValue) {
+        return false;
+    }
+
+    @Override
+    protected final boolean evaluateComputed(ExpressionEvaluationContext context, String computedValue) {
+        return evaluate(context, computedValue);
+    }
+
+    private boolean evaluate(ExpressionEvaluationContext context, String text) {
         if (extractValueFromPath) {
-            JsonNode jsonNode = mapper.valueToTree(JsonPath.using(ComparisonUtils.SUPPRESS_EXCEPTION_CONFIG)
-                    .parse(context.getNode().toString()).read(value));
+            JsonNode jsonNode = readValuePath(context, value);
             if (jsonNode == null || !jsonNode.isTextual()) {
                 return false;
             }
-            return evaluate(evaluatedNode.asText(), jsonNode.asText(), ignoreCase);
+            return evaluate(text, jsonNode.asText(), ignoreCase);
         }
-        return evaluate(evaluatedNode.asText(), value, ignoreCase);
+        return evaluate(text, value, ignoreCase);
     }
 
     protected abstract boolean evaluate(String leftValue, String rightValue, boolean ignoreCase);
@@ -0,0 +1,87 @@
+package io.appform.jsonrules.jsonpath.caches;
+
+import com.google.common.cache.CacheStats;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.spi.cache.Cache;
+import io.appform.jsonrules.utils.CacheUtils;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size bounded cache for compiled json paths that can be shared by many threads.
+ * <p>
+ * Entries are kept in a segmented LRU cache, so lookups don't contend on a single lock, and are evicted least recently
+ * used first. Frequency only decides admission: once the cache is full and has started evicting entries, a path is
+ * only admitted if it missed the cache at least {@link #ADMISSION_FREQUENCY} times recently, so that paths that are
+ * used only once (like paths with embedded values) don't evict frequently used ones.
+ * <p>
+ * Only misses are counted, hits don't touch the frequency counters, so frequently used paths don't contend on them.
+ */
+public class BoundedCache implements Cache {
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+    static final int ADMISSION_FREQUENCY = 2;
+
+    @Getter
+    private final long maximumSize;
+    private final com.google.common.cache.Cache<String, JsonPath> cache;
+    private final FrequencySketch sketch;
+    private final LongAdder rejections = new LongAdder();
+    private volatile boolean saturated;
+
+    public BoundedCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public BoundedCache(final long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size of the cache must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.cache = CacheUtils.newBoundedBuilder(maximumSize)
+                .recordStats()
+                .removalListener(notification -> {
+                    if (notification.wasEvicted()) {
+                        saturated = true;
+                    }
+                })
+                .build();
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    @Override
+    public JsonPath get(final String key) {
+        final JsonPath jsonPath = cache.getIfPresent(key);
+        if (null == jsonPath) {
+            sketch.increment(key);
+        }
+        return jsonPath;
+    }
+
+    @Override
+    public void put(final String key,
+                    final JsonPath jsonPath) {
+        if (saturated && sketch.frequency(key) < ADMISSION_FREQUENCY) {
+            rejections.increment();
+            return;
+        }
+        cache.asMap().putIfAbsent(key, jsonPath);
+    }
+
+    // Estimated number of recent misses of a path
+    int missFrequency(final String key) {
+        return sketch.frequency(key);
+    }
+
+    public CacheStatistics stats() {
+        final CacheStats stats = cache.stats();
+        return CacheStatistics.builder()
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .rejectionCount(rejections.sum())
+                .size(cache.size())
+                .maximumSize(maximumSize)
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package io.appform.jsonrules.jsonpath.caches;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Point in time statistics of a {@link BoundedCache}
+ */
+@Value
+@Builder
+public class CacheStatistics {
+    long hitCount;
+    long missCount;
+    long evictionCount;
+    // Paths that were compiled but not cached because they were not requested often enough
+    long rejectionCount;
+    long size;
+    long maximumSize;
+
+    public double hitRate() {
+        final long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+}
@@ -0,0 +1,76 @@
+package io.appform.jsonrules.jsonpath.caches;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Count-min sketch estimating how often a key was seen recently. Counters saturate at 15 and are halved
+ * periodically, so that keys that were popular a long time ago fade away.
+ * <p>
+ * Updates are not atomic across rows, which only makes estimates slightly less precise under contention.
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xb1e6c0d1, 0x8c3fe5a9, 0xd6e8feb3};
+
+    private final AtomicIntegerArray counters;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    FrequencySketch(long maximumSize) {
+        final int width = Integer.highestOneBit((int) Math.max(64, Math.min(maximumSize, 1 << 22)) * 2 - 1);
+        this.counters = new AtomicIntegerArray(width * DEPTH);
+        this.mask = width - 1;
+        this.sampleSize = width * 10;
+    }
+
+    /**
+     * Records an occurrence of the key
+     *
+     * @return Estimated frequency of the key including this occurrence
+     */
+    int increment(Object key) {
+        final int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            final int count = counters.getAndUpdate(index(hash, row), c -> c < MAX_COUNT ? c + 1 : c);
+            frequency = Math.min(frequency, Math.min(count + 1, MAX_COUNT));
+        }
+        if (additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+        return frequency;
+    }
+
+    int frequency(Object key) {
+        final int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters.get(index(hash, row)));
+        }
+        return frequency;
+    }
+
+    private synchronized void reset() {
+        if (additions.get() < sampleSize) {
+            return;
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, counters.get(i) >>> 1);
+        }
+        additions.set(sampleSize / 2);
+    }
+
+    private int index(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 16;
+        return row * (mask + 1) + (h & mask);
+    }
+
+    private static int spread(int hash) {
+        final int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 15);
+    }
+}
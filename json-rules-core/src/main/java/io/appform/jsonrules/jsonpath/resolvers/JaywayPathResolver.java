@@ -0,0 +1,33 @@
+package io.appform.jsonrules.jsonpath.resolvers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.JsonPath;
+import io.appform.jsonrules.config.JsonRulesConfiguration;
+import lombok.Getter;
+
+/**
+ * Reads a pre-compiled {@link JsonPath} directly, skipping the path cache lookup and the
+ * ParseContext/DocumentContext allocations done by {@code JsonPath.using(config).parse(node).read(path)}.
+ */
+public class JaywayPathResolver implements PathResolver {
+    @Getter
+    private final String path;
+    private final JsonPath jsonPath;
+
+    public JaywayPathResolver(final String path) {
+        this.path = path;
+        this.jsonPath = JsonPath.compile(path);
+    }
+
+    @Override
+    public <T> T read(final JsonNode node) {
+        // Configuration is looked up on every read so that changes made through JsonRulesConfiguration
+        // are honoured by resolvers that were compiled earlier
+        return jsonPath.read(node, JsonRulesConfiguration.getConfiguration());
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,49 @@
+package io.appform.jsonrules.jsonpath.resolvers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.PathNotFoundException;
+
+/**
+ * A json path that has been compiled once and can be read repeatedly against different documents.
+ * Implementations are immutable and safe to share across threads.
+ */
+public interface PathResolver {
+    /**
+     * Returned by {@link #readIfPresent(JsonNode)} for paths that don't exist in the document
+     */
+    Object MISSING = new Object() {
+        @Override
+        public String toString() {
+            return "MISSING";
+        }
+    };
+
+    /**
+     * @return The json path this resolver was compiled from
+     */
+    String getPath();
+
+    /**
+     * Reads the value at this path.
+     *
+     * @param node Document to read from
+     * @return Value at the path, with the same semantics as {@link com.jayway.jsonpath.JsonPath#read(Object, com.jayway.jsonpath.Configuration)}
+     * @throws PathNotFoundException if the path doesn't exist in the document
+     */
+    <T> T read(JsonNode node);
+
+    /**
+     * Reads the value at this path without failing when the path doesn't exist. Missing paths are common in rules
+     * over optional fields, resolvers that can tell without an exception override this.
+     *
+     * @param node Document to read from
+     * @return Value at the path, same as {@link #read(JsonNode)}, or {@link #MISSING} if the path doesn't exist
+     */
+    default Object readIfPresent(JsonNode node) {
+        try {
+            return read(node);
+        } catch (PathNotFoundException e) {
+            return MISSING;
+        }
+    }
+}
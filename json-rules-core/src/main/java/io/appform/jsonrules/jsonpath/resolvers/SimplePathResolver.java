@@ -0,0 +1,205 @@
+package io.appform.jsonrules.jsonpath.resolvers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.jayway.jsonpath.PathNotFoundException;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Resolves definite paths made up only of property names and fixed array indices (for example
+ * {@code $.fees.totalAmount}, {@code $.user.tags[0]} or {@code $['a b'][-1]}) with direct {@link JsonNode#get}
+ * calls, without going through the JsonPath engine.
+ * <p>
+ * Results are identical to the ones returned by JsonPath for such paths:
+ * <ul>
+ *     <li>A missing property, or a property/index applied to a node of the wrong type, is reported as
+ *     {@link PathNotFoundException}</li>
+ *     <li>An out of range index is reported as {@link PathNotFoundException} in the middle of the path,
+ *     but yields a {@link NullNode} when it is the last segment</li>
+ * </ul>
+ */
+public class SimplePathResolver implements PathResolver {
+    private static final int NOT_AN_INDEX = Integer.MIN_VALUE;
+
+    @Getter
+    private final String path;
+    // For every segment, either a property name or an array index. Names are interned so that repeated
+    // lookups of the same field across resolvers reuse the cached string hash.
+    private final String[] names;
+    private final int[] indices;
+
+    private SimplePathResolver(String path, String[] names, int[] indices) {
+        this.path = path;
+        this.names = names;
+        this.indices = indices;
+    }
+
+    /**
+     * Parses the path if it is simple enough to be resolved natively.
+     *
+     * @param path Json path
+     * @return A resolver for the path, or empty if the path has to be evaluated by JsonPath
+     */
+    public static Optional<SimplePathResolver> compile(final String path) {
+        if (null == path || path.isEmpty() || path.charAt(0) != '$') {
+            return Optional.empty();
+        }
+        final List<String> names = new ArrayList<>();
+        final List<Integer> indices = new ArrayList<>();
+        int position = 1;
+        final int length = path.length();
+        while (position < length) {
+            final char current = path.charAt(position);
+            if (current == '.') {
+                final int end = scanName(path, position + 1);
+                if (end == position + 1) {
+                    // Deep scans, wildcards, functions and trailing dots
+                    return Optional.empty();
+                }
+                names.add(path.substring(position + 1, end).intern());
+                indices.add(NOT_AN_INDEX);
+                position = end;
+            } else if (current == '[') {
+                final int close = path.indexOf(']', position);
+                if (close < 0) {
+                    return Optional.empty();
+                }
+                final String token = path.substring(position + 1, close);
+                if (isQuotedName(token)) {
+                    names.add(token.substring(1, token.length() - 1).intern());
+                    indices.add(NOT_AN_INDEX);
+                } else if (isIndex(token)) {
+                    names.add(null);
+                    indices.add(Integer.parseInt(token));
+                } else {
+                    // Filters, slices, wildcards and multi property selections
+                    return Optional.empty();
+                }
+                position = close + 1;
+            } else {
+                return Optional.empty();
+            }
+        }
+        final int[] indexArray = new int[indices.size()];
+        for (int i = 0; i < indexArray.length; i++) {
+            indexArray[i] = indices.get(i);
+        }
+        return Optional.of(new SimplePathResolver(path, names.toArray(new String[0]), indexArray));
+    }
+
+    /**
+     * Moves one segment down from a node.
+     *
+     * @param node  Node to move down from
+     * @param name  Property name, or null if the segment is an array index
+     * @param index Array index, negative indices count from the end of the array
+     * @return The child node, or null if there is no such property or index
+     */
+    public static JsonNode step(final JsonNode node, final String name, final int index) {
+        if (null != name) {
+            return node.isObject() ? node.get(name) : null;
+        }
+        if (!node.isArray()) {
+            return null;
+        }
+        final int size = node.size();
+        final int position = index < 0 ? size + index : index;
+        return position >= 0 && position < size ? node.get(position) : null;
+    }
+
+    public int getDepth() {
+        return names.length;
+    }
+
+    /**
+     * @return Property name of the segment, or null if the segment is an array index
+     */
+    public String getName(int segment) {
+        return names[segment];
+    }
+
+    public int getIndex(int segment) {
+        return indices[segment];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T read(final JsonNode node) {
+        final Object value = readIfPresent(node);
+        if (value == MISSING) {
+            throw new PathNotFoundException("No results for path: " + path);
+        }
+        return (T) value;
+    }
+
+    @Override
+    public Object readIfPresent(final JsonNode node) {
+        JsonNode current = node;
+        final int last = names.length - 1;
+        for (int i = 0; i <= last; i++) {
+            final JsonNode next = step(current, names[i], indices[i]);
+            if (null == next) {
+                if (i == last && null == names[i] && current.isArray()) {
+                    // JsonPath reads an out of range index at the end of the path as null
+                    return NullNode.getInstance();
+                }
+                return MISSING;
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private static int scanName(String path, int start) {
+        int position = start;
+        while (position < path.length()) {
+            final char c = path.charAt(position);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '$') {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isQuotedName(String token) {
+        if (token.length() < 2) {
+            return false;
+        }
+        final char quote = token.charAt(0);
+        if ((quote != '\'' && quote != '"') || token.charAt(token.length() - 1) != quote) {
+            return false;
+        }
+        for (int i = 1; i < token.length() - 1; i++) {
+            final char c = token.charAt(i);
+            if (c == '\'' || c == '"' || c == '\\' || c == ',') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIndex(String token) {
+        final int start = token.startsWith("-") ? 1 : 0;
+        // Keep clear of integer overflow, such indices can't be valid anyway
+        if (token.length() == start || token.length() - start > 9) {
+            return false;
+        }
+        for (int i = start; i < token.length(); i++) {
+            final char c = token.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+package io.appform.jsonrules.utils;
+
+import com.google.common.cache.CacheBuilder;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Builds the size bounded caches shared by all threads evaluating rules
+ */
+@UtilityClass
+public class CacheUtils {
+    private static final int CONCURRENCY_LEVEL = 16;
+    // Smallest number of entries per segment, as every segment evicts on its own
+    private static final int MINIMUM_SEGMENT_SIZE = 64;
+
+    /**
+     * @param maximumSize Largest number of entries kept
+     * @return Builder of a cache bounded to the size, split into as many segments as its size allows
+     */
+    public static CacheBuilder<Object, Object> newBoundedBuilder(long maximumSize) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .concurrencyLevel((int) Math.max(1, Math.min(CONCURRENCY_LEVEL, maximumSize / MINIMUM_SEGMENT_SIZE)));
+    }
+}
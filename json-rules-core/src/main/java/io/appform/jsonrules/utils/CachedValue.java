@@ -0,0 +1,56 @@
+package io.appform.jsonrules.utils;
+
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Value built from a key on first use, and built again whenever it is used with a key it was not built from. Used by
+ * expressions to keep what they derive from their fields, like compiled paths and decoded literals.
+ * <p>
+ * Values are cached without synchronization: racing threads may each build a value, any of them may be kept, and other
+ * threads may see it without a happens-before edge. That is only safe because cached values must be immutable, with
+ * all their fields final, so that they are seen fully built by every thread, and values built from the same key must
+ * be interchangeable. Never cache mutable values here.
+ * <p>
+ * Predicates and factories should not capture anything, so that using the cache doesn't allocate.
+ *
+ * @param <K> Key the value is built from
+ * @param <V> Immutable value
+ */
+public final class CachedValue<K, V> {
+    private V value;
+
+    /**
+     * @param key     Key the value should be built from
+     * @param isOf    Whether a cached value was built from the key
+     * @param factory Builds the value for a key
+     * @return Cached value if it was built from the key, a value built now otherwise
+     */
+    public V get(K key, BiPredicate<? super V, ? super K> isOf, Function<? super K, ? extends V> factory) {
+        V current = value;
+        if (null == current || !isOf.test(current, key)) {
+            current = factory.apply(key);
+            value = current;
+        }
+        return current;
+    }
+
+    /**
+     * @return Cached value, or a value built from the key if there is none since the last {@link #reset()}
+     */
+    public V get(K key, Function<? super K, ? extends V> factory) {
+        V current = value;
+        if (null == current) {
+            current = factory.apply(key);
+            value = current;
+        }
+        return current;
+    }
+
+    /**
+     * Drops the cached value, for values that can't tell which key they were built from
+     */
+    public void reset() {
+        value = null;
+    }
+}
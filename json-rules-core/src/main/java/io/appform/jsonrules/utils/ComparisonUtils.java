@@ -87,6 +87,24 @@ public class ComparisonUtils {
         return comparisonResult;
     }
 
+    // Comparisons of values computed by preoperations, same as comparing nodes holding them
+
+    public static int compare(long computedValue, Object value) {
+        return Long.compare(computedValue, toNumber(value).longValue());
+    }
+
+    public static int compare(double computedValue, Object value) {
+        return Double.compare(computedValue, toNumber(value).doubleValue());
+    }
+
+    public static int compare(String computedValue, Object value) {
+        return computedValue.compareTo(value instanceof TextNode ? ((TextNode) value).asText() : String.valueOf(value));
+    }
+
+    private static Number toNumber(Object value) {
+        return value instanceof NumericNode ? ((NumericNode) value).numberValue() : (Number) value;
+    }
+
     public static boolean compareForEquality(ExpressionEvaluationContext context,
                                              JsonNode evaluatedNode,
                                              Object value) {
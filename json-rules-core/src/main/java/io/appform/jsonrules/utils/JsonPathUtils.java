@@ -4,8 +4,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 import io.appform.jsonrules.config.JsonRulesConfiguration;
+import io.appform.jsonrules.jsonpath.resolvers.JaywayPathResolver;
+import io.appform.jsonrules.jsonpath.resolvers.PathResolver;
+import io.appform.jsonrules.jsonpath.resolvers.SimplePathResolver;
 import lombok.experimental.UtilityClass;
 
+import java.util.Optional;
+
 @UtilityClass
 public class JsonPathUtils {
 
@@ -22,4 +27,14 @@ public class JsonPathUtils {
                 .parse(node)
                 .read(path);
     }
+
+    public static PathResolver compile(final String path) {
+        if (JsonRulesConfiguration.isNativeResolutionForSimplePathsEnabled()) {
+            final Optional<SimplePathResolver> simplePathResolver = SimplePathResolver.compile(path);
+            if (simplePathResolver.isPresent()) {
+                return simplePathResolver.get();
+            }
+        }
+        return new JaywayPathResolver(path);
+    }
 }
@@ -0,0 +1,42 @@
+package io.appform.jsonrules.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.experimental.UtilityClass;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiles regular expressions for string matching, and caches the ones read from documents
+ */
+@UtilityClass
+public class PatternUtils {
+    private static final long MAXIMUM_CACHED_PATTERNS = 1_000;
+    private static final int CASE_INSENSITIVE = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+
+    private static final Cache<String, Pattern> CASE_SENSITIVE_PATTERNS = newCache();
+    private static final Cache<String, Pattern> CASE_INSENSITIVE_PATTERNS = newCache();
+
+    public static Pattern compile(final String regex, final boolean ignoreCase) {
+        return Pattern.compile(regex, ignoreCase ? CASE_INSENSITIVE : 0);
+    }
+
+    // Patterns that change from one evaluation to the next, like the ones extracted from the evaluated document, are
+    // kept in a bounded cache shared by all expressions
+    public static Pattern cached(final String regex, final boolean ignoreCase) {
+        final Cache<String, Pattern> cache = ignoreCase ? CASE_INSENSITIVE_PATTERNS : CASE_SENSITIVE_PATTERNS;
+        Pattern pattern = cache.getIfPresent(regex);
+        if (null == pattern) {
+            // Compiled outside the cache so that invalid patterns fail with the usual PatternSyntaxException
+            pattern = compile(regex, ignoreCase);
+            cache.put(regex, pattern);
+        }
+        return pattern;
+    }
+
+    private static Cache<String, Pattern> newCache() {
+        return CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_CACHED_PATTERNS)
+                .build();
+    }
+}
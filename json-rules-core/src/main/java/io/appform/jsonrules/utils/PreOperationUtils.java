@@ -19,13 +19,17 @@ package io.appform.jsonrules.utils;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.experimental.UtilityClass;
 
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoField;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @UtilityClass
 public class PreOperationUtils {
@@ -39,6 +43,22 @@ public class PreOperationUtils {
     private static final String MINUTE_OF_HOUR = "minute_of_hour";
     public static final String YEAR = "year";
 
+    private static final long SECONDS_PER_DAY = 86_400;
+    // Epochs with at least 12 digits are in milliseconds, see isEpochInMillis
+    private static final long MIN_POSITIVE_EPOCH_IN_MILLIS = 100_000_000_000L;
+    private static final long MAX_NEGATIVE_EPOCH_IN_MILLIS = -10_000_000_000L;
+    private static final int MAX_CACHED_DATE_FORMATS = 64;
+
+    // SimpleDateFormat is not thread safe, so formats are cached per thread. Formats keep the default time zone of
+    // the time they were created in.
+    private static final ThreadLocal<Map<String, SimpleDateFormat>> DATE_FORMATS = ThreadLocal.withInitial(
+            () -> new LinkedHashMap<String, SimpleDateFormat>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SimpleDateFormat> eldest) {
+                    return size() > MAX_CACHED_DATE_FORMATS;
+                }
+            });
+
     public static int getFromDateTime(OffsetDateTime dateTime, String field) {
         switch (field) {
         case MINUTE_OF_HOUR:
@@ -64,6 +84,69 @@ public class PreOperationUtils {
         throw new IllegalArgumentException("Operand does not represent a valid field");
     }
 
+    /**
+     * Same as {@link #getFromDateTime} for the date time at the epoch second, without creating the date time
+     */
+    public static int getFromEpochSecond(long epochSecond, ZoneOffset zoneOffset, String field) {
+        final long localSecond = epochSecond + zoneOffset.getTotalSeconds();
+        final long epochDay = Math.floorDiv(localSecond, SECONDS_PER_DAY);
+        final int secondOfDay = (int) Math.floorMod(localSecond, SECONDS_PER_DAY);
+        switch (field) {
+        case MINUTE_OF_HOUR:
+            return secondOfDay / 60 % 60;
+        case HOUR_OF_DAY:
+            return secondOfDay / 3600;
+        case DAY_OF_WEEK:
+            // 1970-01-01 was a Thursday
+            return (int) Math.floorMod(epochDay + 3, 7) + 1;
+        case DAY_OF_MONTH:
+            return LocalDate.ofEpochDay(epochDay).getDayOfMonth();
+        case DAY_OF_YEAR:
+            return LocalDate.ofEpochDay(epochDay).getDayOfYear();
+        case WEEK_OF_MONTH:
+            return (LocalDate.ofEpochDay(epochDay).getDayOfMonth() - 1) / 7 + 1;
+        case WEEK_OF_YEAR:
+            return (LocalDate.ofEpochDay(epochDay).getDayOfYear() - 1) / 7 + 1;
+        case MONTH_OF_YEAR:
+            return LocalDate.ofEpochDay(epochDay).getMonthValue();
+        case YEAR:
+            return LocalDate.ofEpochDay(epochDay).getYear();
+        default:
+        }
+        throw new IllegalArgumentException("Operand does not represent a valid field");
+    }
+
+    /**
+     * @return Epoch second of an epoch in seconds or milliseconds
+     */
+    public static long getEpochSecond(long epoch) {
+        return isEpochInMillis(epoch) ? Math.floorDiv(epoch, 1000) : epoch;
+    }
+
+    /**
+     * @return Epoch second of a date time formatted with the pattern, or in ISO-8601 format if there is no pattern
+     */
+    public static long getEpochSecond(String dateTimeStr, String pattern) throws ParseException {
+        if (pattern != null) {
+            final Date date = DATE_FORMATS.get()
+                    .computeIfAbsent(pattern, SimpleDateFormat::new)
+                    .parse(dateTimeStr);
+            return Math.floorDiv(date.getTime(), 1000);
+        }
+        return Instant.parse(dateTimeStr).getEpochSecond();
+    }
+
+    /**
+     * @return Offset represented by the string, UTC if it is empty
+     */
+    public static ZoneOffset getZoneOffset(String zoneOffSet) {
+        if (zoneOffSet != null && !zoneOffSet.trim()
+                .isEmpty()) {
+            return ZoneOffset.of(zoneOffSet);
+        }
+        return ZoneOffset.UTC;
+    }
+
     public static OffsetDateTime getDateTime(long epoch, String zoneOffSet) {
         try {
             Instant instant;
@@ -72,11 +155,7 @@ public class PreOperationUtils {
             } else {
                 instant = Instant.ofEpochSecond(epoch);
             }
-            if (zoneOffSet != null && !zoneOffSet.trim()
-                    .isEmpty()) {
-                return instant.atOffset(ZoneOffset.of(zoneOffSet));
-            }
-            return instant.atOffset(ZoneOffset.UTC);
+            return instant.atOffset(getZoneOffset(zoneOffSet));
         } catch (Exception e) {
             return throwInvalidDate();
         }
@@ -86,19 +165,16 @@ public class PreOperationUtils {
         try {
             Instant instant;
             if(pattern != null) {
-                SimpleDateFormat df = new SimpleDateFormat(pattern);
-                Date date = df.parse(dateTimeStr);
+                Date date = DATE_FORMATS.get()
+                        .computeIfAbsent(pattern, SimpleDateFormat::new)
+                        .parse(dateTimeStr);
                 long epoch = date.getTime();
                 instant = Instant.ofEpochMilli(epoch);
             }
             else {
                 instant = Instant.parse(dateTimeStr);
             }
-            if (zoneOffSet != null && !zoneOffSet.trim()
-                    .isEmpty()) {
-                return instant.atOffset(ZoneOffset.of(zoneOffSet));
-            }
-            return instant.atOffset(ZoneOffset.UTC);
+            return instant.atOffset(getZoneOffset(zoneOffSet));
         } catch (Exception e) {
             throwInvalidDate();
         }
@@ -132,9 +208,8 @@ public class PreOperationUtils {
 
     private static boolean isEpochInMillis(long epoch) {
         // Safe check to know if epoch is in milli seconds for all dates between 1973 to
-        // 5138
-        return String.valueOf(epoch)
-                .length() >= 12;
+        // 5138. Same as checking for at least 12 characters in the decimal representation, sign included.
+        return epoch >= MIN_POSITIVE_EPOCH_IN_MILLIS || epoch <= MAX_NEGATIVE_EPOCH_IN_MILLIS;
     }
 
 }
@@ -19,6 +19,8 @@ package io.appform.jsonrules;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.IntNode;
 import com.google.common.collect.Sets;
 import io.appform.jsonrules.expressions.array.ContainsAllExpression;
 import io.appform.jsonrules.expressions.array.ContainsAnyExpression;
@@ -26,12 +28,21 @@ import io.appform.jsonrules.expressions.array.InExpression;
 import io.appform.jsonrules.expressions.array.NotInExpression;
 import io.appform.jsonrules.expressions.composite.NotExpression;
 import io.appform.jsonrules.expressions.composite.OrExpression;
+import io.appform.jsonrules.utils.ComparisonUtils;
 import io.appform.jsonrules.utils.Rule;
 import io.appform.jsonrules.utils.TestUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 public class CollectionExpressionTest {
 
     private ExpressionEvaluationContext context;
@@ -426,6 +437,84 @@ public class CollectionExpressionTest {
         System.out.println(ruleRep);
         Assert.assertEquals("{\"type\":\"not\",\"children\":[{\"type\":\"or\",\"children\":[{\"type\":\"contains_any\",\"path\":\"$.felines\",\"defaultResult\":false,\"values\":[\"leopard\",\"panther\",\"lion\"],\"extractValues\":false},{\"type\":\"contains_all\",\"path\":\"$.integers\",\"defaultResult\":false,\"values\":[40,10,20,30],\"extractValues\":false}]}]}", ruleRep);
     }
-    
 
+    @Test
+    public void testInExpressionLookupMatchesComparison() throws Exception {
+        final Object[] values = {
+                "x", "20", "20.0", "true", "false", 20, 20L, 20.0, 20.5, 0, 0.0, -0.0, Double.NaN, true, false,
+                Long.MAX_VALUE, 1e20, Sets.newHashSet(1)
+        };
+        final List<JsonNode> nodes = new ArrayList<>();
+        for (String node : new String[]{
+                "\"x\"", "\"20\"", "\"20.0\"", "\"true\"", "20", "20.0", "20.5", "21", "0", "0.0", "-0.0", "true",
+                "false", "null", "{}", "[1]", "9223372036854775807", "1e20"}) {
+            nodes.add(mapper.readTree(node));
+        }
+        nodes.add(DoubleNode.valueOf(Double.NaN));
+        final Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            final Set<Object> literals = new LinkedHashSet<>();
+            final int size = 1 + random.nextInt(4);
+            for (int j = 0; j < size; j++) {
+                literals.add(values[random.nextInt(values.length)]);
+            }
+            final InExpression in = InExpression.builder().path("$").values(literals).build();
+            final NotInExpression notIn = NotInExpression.builder().path("$").values(literals).build();
+            for (JsonNode node : nodes) {
+                final Object expected = outcome(() -> in.getValues().stream()
+                        .anyMatch(value -> ComparisonUtils.compare(node, value) == 0));
+                final boolean missingOrNull = ComparisonUtils.isNodeMissingOrNull(node);
+                Assert.assertEquals(literals + " in " + node,
+                        missingOrNull ? false : expected, outcome(() -> in.evaluate(node)));
+                Assert.assertEquals(literals + " not in " + node,
+                        missingOrNull ? true : expected instanceof Boolean ? !(Boolean) expected : expected,
+                        outcome(() -> notIn.evaluate(node)));
+            }
+        }
+    }
+
+    @Test
+    public void testInExpressionWithLargeValueSets() throws Exception {
+        final Set<Object> ids = IntStream.range(0, 50_000).mapToObj(i -> "merchant-" + i).collect(Collectors.toSet());
+        final InExpression in = InExpression.builder().path("$.id").values(ids).build();
+        Assert.assertTrue(in.evaluate(mapper.readTree("{ \"id\": \"merchant-49999\" }")));
+        Assert.assertFalse(in.evaluate(mapper.readTree("{ \"id\": \"merchant-50000\" }")));
+
+        final Set<Object> numbers = IntStream.range(0, 50_000).mapToObj(i -> i * 3L).collect(Collectors.toSet());
+        final NotInExpression notIn = NotInExpression.builder().path("$.id").values(numbers).build();
+        Assert.assertFalse(notIn.evaluate(mapper.readTree("{ \"id\": 149997 }")));
+        Assert.assertFalse(notIn.evaluate(mapper.readTree("{ \"id\": 149997.0 }")));
+        Assert.assertTrue(notIn.evaluate(mapper.readTree("{ \"id\": 149998 }")));
+        Assert.assertTrue(notIn.evaluate(mapper.readTree("{ \"id\": 3.5 }")));
+
+        // Values set later replace the ones looked up so far
+        notIn.setValues(Sets.newHashSet(149998));
+        Assert.assertFalse(notIn.evaluate(mapper.readTree("{ \"id\": 149998 }")));
+
+        // Values can't be modified in place, where the lookup wouldn't see the change
+        try {
+            notIn.getValues().add(IntNode.valueOf(1));
+            Assert.fail("Values are modified in place");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        final Set<Object> literals = Sets.newHashSet(1);
+        final InExpression copied = InExpression.builder().path("$.id").values(literals).build();
+        copied.setValues(literals);
+        literals.add(2);
+        Assert.assertFalse(copied.evaluate(mapper.readTree("{ \"id\": 2 }")));
+        Assert.assertEquals(1, copied.getValues().size());
+    }
+
+    private static Object outcome(Evaluation evaluation) {
+        try {
+            return evaluation.evaluate();
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private interface Evaluation {
+        boolean evaluate();
+    }
 }
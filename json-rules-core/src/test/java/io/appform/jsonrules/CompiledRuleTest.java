@@ -0,0 +1,691 @@
+package io.appform.jsonrules;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.jayway.jsonpath.InvalidPathException;
+import io.appform.jsonrules.compiler.CompiledRule;
+import io.appform.jsonrules.compiler.EvaluationSession;
+import io.appform.jsonrules.compiler.RuleSet;
+import io.appform.jsonrules.config.JsonRulesConfiguration;
+import io.appform.jsonrules.expressions.array.InExpression;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.composite.NotExpression;
+import io.appform.jsonrules.expressions.composite.OrExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.equality.NotEqualsExpression;
+import io.appform.jsonrules.expressions.meta.ExistsExpression;
+import io.appform.jsonrules.expressions.meta.NotExistsExpression;
+import io.appform.jsonrules.expressions.numeric.BetweenExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanExpression;
+import io.appform.jsonrules.expressions.preoperation.date.DiffFromCurrentEpochOperation;
+import io.appform.jsonrules.expressions.preoperation.string.LengthOperation;
+import io.appform.jsonrules.expressions.string.MatchesExpression;
+import io.appform.jsonrules.expressions.string.StartsWithExpression;
+import io.appform.jsonrules.utils.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+public class CompiledRuleTest {
+    private static final String[] RULES = {
+            "/simple.rule", "/simple_rule_with_default.rule", "/complex.rule", "/notExists.rule",
+            "/emptyExpression.rule", "/notEmptyExpression.rule", "/matchesExpression.rule",
+            "/containsAnyExpression.rule", "/containsAllExpression.rule", "/lengthOperation.rule",
+            "/sizeOperation.rule", "/addOperation.rule", "/moduloOperation.rule"
+    };
+
+    private ObjectMapper mapper;
+    private List<JsonNode> documents;
+
+    @After
+    public void tearDown() {
+        JsonRulesConfiguration.enableNativeResolutionForSimplePaths(false);
+        JsonRulesConfiguration.enableAdaptiveChildOrdering(false);
+        JsonRulesConfiguration.enableColumnarBatchEvaluation(false);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mapper = new ObjectMapper();
+        documents = ImmutableList.of(
+                mapper.readTree("{ \"value\": 20, \"string\" : \"Hello\", \"kid\": null }"),
+                mapper.readTree("{ \"value\": 40, \"name\" : \"Hello\", \"s1\": \"Hello World\" }"),
+                mapper.readTree("{ \"value\": 11.5, \"string\" : \"\", \"arr\": [1, 2, 3], \"i\": 9 }"),
+                mapper.readTree("{ \"nested\": { \"value\": 20 }, \"values\": [\"a\", \"b\"] }"),
+                mapper.readTree("{}"));
+    }
+
+    @Test
+    public void testCompiledRulesMatchInterpretedEvaluation() throws Exception {
+        for (String rule : RULES) {
+            final Expression expression = mapper.readValue(TestUtils.read(rule), Expression.class);
+            final CompiledRule compiledRule = expression.compile();
+            for (JsonNode document : documents) {
+                Assert.assertEquals(rule + " on " + document,
+                        outcome(() -> expression.evaluate(document)),
+                        outcome(() -> compiledRule.evaluate(document)));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingEvaluationMatchesTreeEvaluation() throws Exception {
+        for (String rule : RULES) {
+            final Expression expression = mapper.readValue(TestUtils.read(rule), Expression.class);
+            final CompiledRule compiledRule = expression.compile();
+            for (JsonNode document : documents) {
+                final byte[] bytes = mapper.writeValueAsBytes(document);
+                Assert.assertEquals(rule + " on " + document,
+                        outcome(() -> expression.evaluate(document)),
+                        outcome(() -> compiledRule.evaluate(bytes)));
+                Assert.assertEquals(rule + " on " + document,
+                        outcome(() -> expression.evaluate(document)),
+                        outcome(() -> compiledRule.evaluate(new ByteArrayInputStream(bytes))));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingEvaluationOfPartialPaths() throws Exception {
+        final String json = "{ \"skip\": { \"o\": [1, 2] }, \"o\": { \"p\": 1, \"r\": \"x\", \"s\": [1, 2] }, "
+                + "\"arr\": [1, { \"p\": 2, \"q\": [3] }, { \"p\": 3 }, 4], \"n\": null, \"v\": 2, "
+                + "\"vs\": [1, 2], \"deep\": [[1, 2], [3, [4, 5]]], \"last\": \"x\" }";
+        final JsonNode document = mapper.readTree(json);
+        final String[] paths = {
+                "$", "$.o", "$.o.p", "$.o.s[1]", "$.o.s[7]", "$.o.s.x", "$.o[0]", "$.arr[1].p", "$.arr[1].q[0]",
+                "$.arr[3]", "$.arr[9]", "$.arr[9].p", "$.arr[-1]", "$.arr[-2].p", "$.arr[2000]", "$.n", "$.n.p",
+                "$.deep[1][1][0]", "$.deep[0]", "$.absent", "$.skip.o[1]", "$.last", "$..p"
+        };
+        for (boolean nativeResolution : new boolean[]{false, true}) {
+            JsonRulesConfiguration.enableNativeResolutionForSimplePaths(nativeResolution);
+            for (String path : paths) {
+                final List<Expression> rules = ImmutableList.of(
+                        ExistsExpression.builder().path(path).build(),
+                        EqualsExpression.builder().path(path).value(2).defaultResult(true).build(),
+                        EqualsExpression.builder().path(path).value("$.v").extractValueFromPath(true).build(),
+                        InExpression.builder().path(path).extractValues(true).valuesPath("$.vs").build(),
+                        AndExpression.builder()
+                                .child(ExistsExpression.builder().path("$.o.r").build())
+                                .child(ExistsExpression.builder().path(path).build())
+                                .build());
+                for (Expression rule : rules) {
+                    Assert.assertEquals(rule.toString(),
+                            outcome(() -> rule.evaluate(document)),
+                            outcome(() -> rule.compile().evaluate(json.getBytes(StandardCharsets.UTF_8))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingEvaluationOfEmptyAndTruncatedDocuments() throws Exception {
+        final CompiledRule rule = EqualsExpression.builder()
+                .path("$.a")
+                .value(1)
+                .defaultResult(true)
+                .build()
+                .compile();
+        Assert.assertTrue(rule.evaluate(new byte[0]));
+        Assert.assertTrue(rule.evaluate("{}".getBytes(StandardCharsets.UTF_8)));
+        for (String malformed : new String[]{"{ \"a\": 1, \"b\": [", "{ \"b\": [ \"a\": 1 }"}) {
+            try {
+                rule.evaluate(malformed.getBytes(StandardCharsets.UTF_8));
+                Assert.fail("Malformed document must not be evaluated: " + malformed);
+            } catch (IOException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingEvaluationOfDuplicateFields() throws Exception {
+        final String[] documents = {
+                "{ \"a\": 1, \"b\": 0, \"a\": 2 }", "{ \"a\": 2, \"a\": 1 }",
+                "{ \"o\": { \"a\": 1 }, \"o\": { \"a\": 2 } }",
+                "{ \"o\": { \"a\": 1, \"a\": 2 } }", "{ \"a\": [1], \"a\": 2 }"
+        };
+        final List<Expression> rules = ImmutableList.of(
+                EqualsExpression.builder().path("$.a").value(2).build(),
+                EqualsExpression.builder().path("$.o.a").value(2).build(),
+                AndExpression.builder()
+                        .child(ExistsExpression.builder().path("$.a").build())
+                        .child(EqualsExpression.builder().path("$.o.a").value(2).build())
+                        .build());
+        for (String json : documents) {
+            final JsonNode document = mapper.readTree(json);
+            for (Expression rule : rules) {
+                // The last of duplicate fields wins, as when reading a tree
+                Assert.assertEquals(json + " " + rule,
+                                    rule.evaluate(document),
+                                    rule.compile().evaluate(json.getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        Assert.assertFalse(EqualsExpression.builder().path("$.a").value(1).build().compile()
+                                   .evaluate("{ \"a\": 1, \"b\": 0, \"a\": 2 }".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testCompositeShortCircuits() throws Exception {
+        final JsonNode node = documents.get(0);
+        final CompiledRule rule = OrExpression.builder()
+                .child(AndExpression.builder()
+                        .child(GreaterThanExpression.builder().path("$.value").value(10).build())
+                        .child(LessThanExpression.builder().path("$.value").value(30).build())
+                        .build())
+                // Would fail evaluation if it were reached, since objects can't be compared
+                .child(InExpression.builder().path("$").value("x").build())
+                .build()
+                .compile();
+        Assert.assertTrue(rule.evaluate(node));
+
+        final CompiledRule notRule = NotExpression.builder()
+                .child(EqualsExpression.builder().path("$.string").value("Hello").build())
+                .child(MatchesExpression.builder().path("$.string").value("H.*").defaultResult(false).build())
+                .build()
+                .compile();
+        Assert.assertFalse(notRule.evaluate(node));
+        Assert.assertTrue(notRule.evaluate(documents.get(1)));
+    }
+
+    @Test
+    public void testDefaultResultAndPreOperation() {
+        final CompiledRule missing = EqualsExpression.builder()
+                .path("$.absent")
+                .value(1)
+                .defaultResult(true)
+                .build()
+                .compile();
+        Assert.assertTrue(missing.evaluate(documents.get(0)));
+        Assert.assertTrue(missing.evaluate((JsonNode) null));
+        Assert.assertTrue(NotExistsExpression.builder().path("$.kid").build().compile().evaluate(documents.get(0)));
+
+        final CompiledRule length = EqualsExpression.builder()
+                .path("$.string")
+                .value(5)
+                .preoperation(new LengthOperation())
+                .build()
+                .compile();
+        Assert.assertTrue(length.evaluate(documents.get(0)));
+        Assert.assertFalse(length.evaluate(documents.get(2)));
+    }
+
+    @Test
+    public void testCompositeWithoutChildren() {
+        Assert.assertFalse(new AndExpression().compile().evaluate(documents.get(0)));
+        Assert.assertFalse(new NotExpression().compile().evaluate(documents.get(0)));
+    }
+
+    @Test
+    public void testSharedPathsMatchInterpretedEvaluation() throws Exception {
+        final String[] paths = {
+                "$", "$.o", "$.o.p", "$.o.p.q", "$.o.r", "$.arr", "$.arr[1]", "$.arr[5]", "$.arr[5].p", "$.arr[-1].p",
+                "$.arr[-1]", "$.o.arr[0]", "$.o.arr[0].p", "$.n", "$.n.p", "$['o']['p']", "$..p", "$.arr[*].p"
+        };
+        final JsonNode document = mapper.readTree(
+                "{ \"o\": { \"p\": 1, \"r\": \"x\" }, \"arr\": [1, { \"p\": 2 }, { \"p\": 3 }], \"n\": null }");
+        final List<Expression> leaves = new ArrayList<>();
+        for (String path : paths) {
+            leaves.add(ExistsExpression.builder().path(path).build());
+            leaves.add(EqualsExpression.builder().path(path).value(2).defaultResult(true).build());
+        }
+        for (boolean nativeResolution : new boolean[]{false, true}) {
+            JsonRulesConfiguration.enableNativeResolutionForSimplePaths(nativeResolution);
+            final List<Expression> readAll = new ArrayList<>();
+            for (Expression leaf : leaves) {
+                Assert.assertEquals(leaf.toString(), outcome(() -> leaf.evaluate(document)),
+                                    outcome(() -> leaf.compile().evaluate(document)));
+                if (outcome(() -> leaf.evaluate(document)) instanceof Boolean) {
+                    // Always evaluates the leaf, so that following leaves read slots resolved by this one
+                    readAll.add(OrExpression.builder().child(leaf).child(NotExpression.builder().child(leaf).build())
+                                        .build());
+                }
+            }
+            for (Expression leaf : leaves) {
+                for (boolean leafFirst : new boolean[]{false, true}) {
+                    final List<Expression> children = new ArrayList<>(readAll);
+                    children.add(leafFirst ? 0 : children.size(), leaf);
+                    final Expression expression = AndExpression.builder().children(children).build();
+                    Assert.assertEquals(leaf.toString(), outcome(() -> expression.evaluate(document)),
+                                        outcome(() -> expression.compile().evaluate(document)));
+                }
+            }
+        }
+    }
+
+    @Test(expected = InvalidPathException.class)
+    public void testInvalidPathFailsCompilation() {
+        EqualsExpression.builder()
+                .path("$.[")
+                .value(1)
+                .build()
+                .compile();
+    }
+
+    @Test
+    public void testAdaptiveOrderingMatchesInterpretedEvaluation() throws Exception {
+        JsonRulesConfiguration.enableAdaptiveChildOrdering(true);
+        final List<Expression> expressions = new ArrayList<>();
+        for (String rule : RULES) {
+            expressions.add(mapper.readValue(TestUtils.read(rule), Expression.class));
+        }
+        // Fails on numbers unless the first child is false, the failure must surface whatever the order
+        expressions.add(AndExpression.builder()
+                                .child(GreaterThanExpression.builder().path("$.value").value(15).build())
+                                .child(EqualsExpression.builder().path("$.value").value("x").build())
+                                .build());
+        // The second child fails on numbers, and as neither child is known not to fail it is never moved ahead
+        expressions.add(AndExpression.builder()
+                                .child(new CountingExpression(false))
+                                .child(EqualsExpression.builder().path("$.value").value("x").build())
+                                .build());
+        expressions.add(OrExpression.builder()
+                                .child(LessThanExpression.builder().path("$.value").value(15).build())
+                                .child(MatchesExpression.builder()
+                                               .path("$.string")
+                                               .value("H.*")
+                                               .defaultResult(false)
+                                               .build())
+                                .child(ExistsExpression.builder().path("$.kid").build())
+                                .build());
+        for (Expression expression : expressions) {
+            final CompiledRule compiledRule = expression.compile();
+            for (int i = 0; i < 5000; i++) {
+                final JsonNode document = documents.get(i % documents.size());
+                Assert.assertEquals(expression + " on " + document,
+                        outcome(() -> expression.evaluate(document)),
+                        outcome(() -> compiledRule.evaluate(document)));
+            }
+        }
+    }
+
+    @Test
+    public void testAdaptiveOrderingKeepsChildrenThatMayFailInPlace() {
+        JsonRulesConfiguration.enableAdaptiveChildOrdering(true);
+        // The length of a number fails, the cheaper deciding child after it must not overtake it
+        final Expression failing = GreaterThanExpression.builder()
+                .path("$.value")
+                .value(5)
+                .preoperation(LengthOperation.builder().build())
+                .build();
+        final List<Expression> expressions = ImmutableList.of(
+                AndExpression.builder()
+                        .child(failing)
+                        .child(GreaterThanExpression.builder().path("$.value").value(100).build())
+                        .build(),
+                AndExpression.builder()
+                        .child(ExistsExpression.builder().path("$.value").build())
+                        .child(failing)
+                        .child(NotExistsExpression.builder().path("$.value").build())
+                        .child(GreaterThanExpression.builder().path("$.value").value(100).build())
+                        .build(),
+                OrExpression.builder()
+                        .child(NotExistsExpression.builder().path("$.value").build())
+                        .child(failing)
+                        .child(ExistsExpression.builder().path("$.value").build())
+                        .build());
+        final JsonNode document = documents.get(0);
+        for (Expression expression : expressions) {
+            final CompiledRule compiledRule = expression.compile();
+            for (int i = 0; i < 10_000; i++) {
+                Assert.assertEquals(expression.toString(),
+                        outcome(() -> expression.evaluate(document)),
+                        outcome(() -> compiledRule.evaluate(document)));
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluationSessionMatchesEvaluation() throws Exception {
+        final EvaluationSession session = new EvaluationSession();
+        final RuleSet.Builder ruleSet = RuleSet.builder();
+        final List<Expression> expressions = new ArrayList<>();
+        for (String rule : RULES) {
+            final Expression expression = mapper.readValue(TestUtils.read(rule), Expression.class);
+            ruleSet.rule(rule, expression);
+            expressions.add(expression);
+        }
+        final RuleSet rules = ruleSet.build();
+        // Rules of different sizes one after the other, some of them failing, on the same session
+        for (JsonNode document : documents) {
+            for (Expression expression : expressions) {
+                final CompiledRule compiledRule = expression.compile();
+                Assert.assertEquals(expression + " on " + document,
+                        outcome(() -> compiledRule.evaluate(document)),
+                        outcome(() -> session.evaluate(compiledRule, document)));
+                Assert.assertEquals(expression + " on " + document,
+                        outcome(() -> expression.evaluate(document)),
+                        outcome(() -> session.evaluate(expression, document)));
+            }
+            Object expected;
+            try {
+                expected = rules.evaluate(document);
+            } catch (Exception e) {
+                expected = e.getClass();
+            }
+            Object actual;
+            try {
+                actual = session.evaluate(rules, document);
+            } catch (Exception e) {
+                actual = e.getClass();
+            }
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testEvaluationSessionOptions() throws Exception {
+        final CompiledRule recent = LessThanExpression.builder()
+                .path("$.time")
+                .value(1000)
+                .preoperation(DiffFromCurrentEpochOperation.builder().build())
+                .build()
+                .compile();
+        final JsonNode document = mapper.readTree("{ \"time\": 1500000000000 }");
+        final Map<OptionKeys, Object> justAfter = Collections.singletonMap(OptionKeys.SYSTEM_TIME, 1500000000500L);
+        final Map<OptionKeys, Object> later = Collections.singletonMap(OptionKeys.SYSTEM_TIME, 1500000005000L);
+        final EvaluationSession session = new EvaluationSession(justAfter);
+        Assert.assertTrue(session.evaluate(recent, document));
+        Assert.assertFalse(session.evaluate(recent, document, later));
+        Assert.assertTrue(session.evaluate(recent, document));
+    }
+
+    @Test
+    public void testNestedEvaluationSessionUse() throws Exception {
+        final EvaluationSession session = new EvaluationSession();
+        final CompiledRule inner = ExistsExpression.builder().path("$.value").build().compile();
+        final CompiledRule outer = AndExpression.builder()
+                .child(new CountingExpression(true) {
+                    @Override
+                    public boolean evaluate(ExpressionEvaluationContext context) {
+                        return session.evaluate(inner, context.getNode());
+                    }
+                })
+                .child(ExistsExpression.builder().path("$.value").build())
+                .build()
+                .compile();
+        try {
+            session.evaluate(outer, documents.get(0));
+            Assert.fail("Sessions can't be used for nested evaluations");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertTrue(session.evaluate(inner, documents.get(0)));
+        Assert.assertFalse(session.evaluate(inner, documents.get(4)));
+    }
+
+    @Test
+    public void testBatchEvaluationMatchesEvaluation() throws Exception {
+        final Expression expression = AndExpression.builder()
+                .child(GreaterThanExpression.builder().path("$.value").value(30).build())
+                .child(InExpression.builder().path("$.string").values(ImmutableList.of("a", "c")).build())
+                .build();
+        final RuleSet rules = RuleSet.builder()
+                .rule("rule", expression)
+                .rule("never", EqualsExpression.builder().path("$.value").value(-1).build())
+                .rule("string", ExistsExpression.builder().path("$.string").build())
+                .build();
+        final CompiledRule compiledRule = expression.compile();
+        final Random random = new Random(42);
+        final List<JsonNode> batch = new ArrayList<>();
+        // Not a multiple of the chunk size, with a missing document
+        for (int i = 0; i < 5000; i++) {
+            batch.add(random.nextInt(50) == 0
+                      ? null
+                      : mapper.createObjectNode()
+                              .put("value", random.nextInt(100))
+                              .put("string", String.valueOf((char) ('a' + random.nextInt(4)))));
+        }
+        final BitSet expected = new BitSet();
+        final BitSet[] expectedRules = {new BitSet(), new BitSet(), new BitSet()};
+        for (int i = 0; i < batch.size(); i++) {
+            expected.set(i, expression.evaluate(batch.get(i)));
+            final BitSet matches = rules.evaluate(batch.get(i));
+            for (int rule = 0; rule < rules.size(); rule++) {
+                expectedRules[rule].set(i, matches.get(rule));
+            }
+        }
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            Assert.assertEquals(expected, compiledRule.evaluateAll(batch, pool));
+            Assert.assertEquals(expected, compiledRule.evaluateAll(batch.stream(), pool));
+            Assert.assertEquals(expected, expression.evaluateAll(batch));
+            Assert.assertArrayEquals(expectedRules, rules.evaluateAll(batch, pool));
+            Assert.assertArrayEquals(expectedRules, rules.evaluateAll(batch.stream(), pool));
+            Assert.assertEquals(expected.get(0, 100), compiledRule.evaluateAll(batch.subList(0, 100), pool));
+            Assert.assertEquals(new BitSet(), compiledRule.evaluateAll(Collections.<JsonNode>emptyList(), pool));
+            Assert.assertArrayEquals(new BitSet[]{new BitSet(), new BitSet(), new BitSet()},
+                                     rules.evaluateAll(Stream.<JsonNode>empty(), pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBatchEvaluationFailure() throws Exception {
+        final CompiledRule failing = OrExpression.builder()
+                .child(ExistsExpression.builder().path("$.string").build())
+                .child(new CountingExpression(false) {
+                    @Override
+                    public boolean evaluate(ExpressionEvaluationContext context) {
+                        throw new IllegalArgumentException("Failing document");
+                    }
+                })
+                .build()
+                .compile();
+        final List<JsonNode> batch = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            batch.add(i == 2500 ? documents.get(1) : documents.get(0));
+        }
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            failing.evaluateAll(batch, pool);
+            Assert.fail("Failures of single documents fail the batch");
+        } catch (IllegalArgumentException e) {
+            // expected
+        } finally {
+            pool.shutdown();
+        }
+        Assert.assertEquals(1000, failing.evaluateAll(batch.subList(0, 1000)).cardinality());
+    }
+
+    @Test
+    public void testColumnarBatchEvaluationMatchesEvaluation() throws Exception {
+        final List<Expression> expressions = mixedExpressions();
+        JsonRulesConfiguration.enableColumnarBatchEvaluation(true);
+        final Random random = new Random(7);
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (Expression expression : expressions) {
+                final CompiledRule compiledRule = expression.compile();
+                final List<JsonNode> batch = new ArrayList<>();
+                for (int i = 0; i < 2500; i++) {
+                    batch.add(random.nextInt(100) == 0 ? null : randomDocument(random));
+                }
+                // Documents failing on their own fail the batch, with the failure of the first one
+                Object expected = new BitSet();
+                for (int i = 0; i < batch.size() && expected instanceof BitSet; i++) {
+                    final JsonNode document = batch.get(i);
+                    final Object outcome = outcome(() -> expression.evaluate(document));
+                    if (outcome instanceof Boolean) {
+                        ((BitSet) expected).set(i, (Boolean) outcome);
+                    } else {
+                        expected = outcome;
+                    }
+                }
+                final Object actual;
+                try {
+                    actual = compiledRule.evaluateAll(batch, pool);
+                } catch (Exception e) {
+                    Assert.assertEquals(expression.toString(), expected, e.getClass());
+                    continue;
+                }
+                Assert.assertEquals(expression.toString(), expected, actual);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testGeneratedRulesMatchInterpretedEvaluation() throws Exception {
+        final List<Expression> expressions = mixedExpressions();
+        expressions.add(GreaterThanEqualsExpression.builder().path("$.value").value(20.5).build());
+        expressions.add(LessThanExpression.builder().path("$.value").value(Long.MAX_VALUE).defaultResult(true).build());
+        expressions.add(BetweenExpression.builder().path("$.value").lowerbound(10.5).upperBound(20)
+                                .includeUpperBound(true).build());
+        expressions.add(AndExpression.builder()
+                                .child(OrExpression.builder().build())
+                                .child(new CountingExpression(true))
+                                .build());
+        expressions.add(OrExpression.builder()
+                                .child(new CountingExpression(false))
+                                .child(NotExpression.builder().build())
+                                .child(AndExpression.builder().build())
+                                .build());
+        final Random random = new Random(11);
+        for (Expression expression : expressions) {
+            final CompiledRule generated = expression.compileToBytecode();
+            final List<JsonNode> batch = new ArrayList<>(documents);
+            for (int i = 0; i < 500; i++) {
+                batch.add(randomDocument(random));
+            }
+            for (JsonNode document : batch) {
+                Assert.assertEquals(expression + " on " + document,
+                        outcome(() -> expression.evaluate(document)),
+                        outcome(() -> generated.evaluate(document)));
+            }
+        }
+    }
+
+    @Test
+    public void testGeneratedRulesTooLargeForAClass() {
+        final AndExpression.AndExpressionBuilder builder = AndExpression.builder();
+        for (int i = 0; i < 5000; i++) {
+            builder.child(LessThanExpression.builder().path("$.value").value(i + 30).build());
+        }
+        final CompiledRule rule = builder.build().compileToBytecode();
+        Assert.assertTrue(rule.evaluate(documents.get(0)));
+        Assert.assertFalse(rule.evaluate(documents.get(1)));
+    }
+
+    // Rule files, and leaves of most types over values of every kind
+    private List<Expression> mixedExpressions() throws Exception {
+        final List<Expression> expressions = new ArrayList<>();
+        for (String rule : RULES) {
+            expressions.add(mapper.readValue(TestUtils.read(rule), Expression.class));
+        }
+        expressions.add(GreaterThanExpression.builder().path("$.value").value(20).build());
+        expressions.add(LessThanEqualsExpression.builder().path("$.value").value(20.5).defaultResult(true).build());
+        expressions.add(EqualsExpression.builder().path("$.value").value(20).build());
+        expressions.add(EqualsExpression.builder().path("$.string").value("Hello").build());
+        expressions.add(NotEqualsExpression.builder().path("$.value").value(40).build());
+        expressions.add(EqualsExpression.builder().path("$.value").value("$.i").extractValueFromPath(true).build());
+        expressions.add(BetweenExpression.builder().path("$.value").lowerbound(11).upperBound(40)
+                                .includeLowerBound(true).build());
+        expressions.add(InExpression.builder().path("$.string").values(ImmutableList.of("a", "Hello")).build());
+        expressions.add(StartsWithExpression.builder().path("$.string").value("He").defaultResult(false).build());
+        expressions.add(GreaterThanExpression.builder().path("$.string").value(2)
+                                .preoperation(LengthOperation.builder().build()).build());
+        expressions.add(NotExpression.builder()
+                                .child(OrExpression.builder()
+                                               .child(ExistsExpression.builder().path("$.kid").build())
+                                               .child(LessThanExpression.builder().path("$.value").value(11).build())
+                                               .build())
+                                .child(NotExistsExpression.builder().path("$.i").build())
+                                .build());
+        return expressions;
+    }
+
+    private JsonNode randomDocument(Random random) {
+        final ObjectNode document = mapper.createObjectNode();
+        for (String field : new String[]{"value", "string", "kid", "i", "arr", "s1"}) {
+            final JsonNode value = randomValue(random);
+            if (null != value) {
+                document.set(field, value);
+            }
+        }
+        return document;
+    }
+
+    // Null for missing values
+    private JsonNode randomValue(Random random) {
+        switch (random.nextInt(12)) {
+            case 0:
+                return null;
+            case 1:
+                return mapper.getNodeFactory().nullNode();
+            case 2:
+                return mapper.getNodeFactory().booleanNode(random.nextBoolean());
+            case 3:
+                return mapper.getNodeFactory().numberNode(random.nextInt(50) + 0.5);
+            case 4:
+                return mapper.getNodeFactory().numberNode(Long.MAX_VALUE - random.nextInt(2));
+            case 5:
+                return mapper.getNodeFactory().numberNode(BigInteger.TEN.pow(20));
+            case 6:
+            case 7:
+                return mapper.getNodeFactory().textNode(
+                        new String[]{"", "a", "Hello", "Hello World", "20"}[random.nextInt(5)]);
+            case 8:
+                return mapper.createArrayNode().add(1).add(random.nextInt(3)).add("a");
+            case 9:
+                return mapper.createObjectNode().put("value", 20);
+            default:
+                return mapper.getNodeFactory().numberNode(random.nextInt(50));
+        }
+    }
+
+    // Expression the compiler doesn't know, counting its evaluations
+    private static class CountingExpression extends Expression {
+        private final boolean result;
+        private int evaluations;
+
+        private CountingExpression(boolean result) {
+            super(ExpressionType.exists);
+            this.result = result;
+        }
+
+        @Override
+        public boolean evaluate(ExpressionEvaluationContext context) {
+            evaluations++;
+            return result;
+        }
+
+        @Override
+        public <T> T accept(ExpressionVisitor<T> visitor, JsonNode node) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // Pre-operations fail on unsupported types, the compiled rule must fail in the same way
+    private static Object outcome(Evaluation evaluation) {
+        try {
+            return evaluation.evaluate();
+        } catch (Exception e) {
+            return e.getClass();
+        }
+    }
+
+    private interface Evaluation {
+        boolean evaluate() throws Exception;
+    }
+}
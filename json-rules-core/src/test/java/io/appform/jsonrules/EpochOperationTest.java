@@ -28,16 +28,22 @@ import io.appform.jsonrules.expressions.equality.EqualsExpression;
 import io.appform.jsonrules.expressions.equality.NotEqualsExpression;
 import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
 import io.appform.jsonrules.expressions.numeric.LessThanExpression;
+import io.appform.jsonrules.expressions.preoperation.date.DateTimeOperation;
 import io.appform.jsonrules.expressions.preoperation.date.EpochOperation;
+import io.appform.jsonrules.utils.PreOperationUtils;
 import io.appform.jsonrules.utils.Rule;
 import io.appform.jsonrules.utils.TestUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.TextNode;
 import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoField;
+import java.util.Random;
 
 public class EpochOperationTest {
 
@@ -439,5 +445,57 @@ public class EpochOperationTest {
         System.out.println(ruleRep);
         Assert.assertEquals("{\"type\":\"not\",\"children\":[{\"type\":\"or\",\"children\":[{\"type\":\"less_than\",\"path\":\"$.unixTime\",\"preoperation\":{\"operation\":\"epoch\",\"operand\":\"hour_of_day\"},\"defaultResult\":false,\"value\":11,\"extractValueFromPath\":false},{\"type\":\"greater_than\",\"path\":\"$.unixTime\",\"preoperation\":{\"operation\":\"epoch\",\"operand\":\"week_of_month\"},\"defaultResult\":false,\"value\":30,\"extractValueFromPath\":false}]}]}", ruleRep);
     }
-    
+
+    @Test
+    public void testCalendarFieldsMatchDateTime() {
+        final String[] fields = {"minute_of_hour", "hour_of_day", "day_of_week", "day_of_month", "day_of_year",
+                "week_of_month", "week_of_year", "month_of_year", "year"};
+        final String[] offsets = {null, "", "Z", "+05:30", "-08:00", "+14:00", "-18:00"};
+        final long[] epochs = {0, -1, 99_999_999_999L, 100_000_000_000L, -9_999_999_999L, -10_000_000_000L,
+                1496209177, 1496209177000L, -62135596800L, Long.MAX_VALUE, Long.MIN_VALUE};
+        final Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            final long epoch = i < epochs.length
+                               ? epochs[i]
+                               : random.nextBoolean()
+                                 ? random.nextLong() % 10_000_000_000_000L
+                                 : random.nextLong() % 100_000_000_000L;
+            // Epochs with at least 12 characters are in milliseconds
+            Assert.assertEquals(String.valueOf(epoch).length() >= 12 ? Math.floorDiv(epoch, 1000) : epoch,
+                    PreOperationUtils.getEpochSecond(epoch));
+            final String zoneOffSet = offsets[random.nextInt(offsets.length)];
+            final OffsetDateTime expectedDateTime = PreOperationUtils.getDateTime(epoch, zoneOffSet);
+            for (String field : fields) {
+                final EpochOperation operation = new EpochOperation(field, zoneOffSet);
+                Assert.assertEquals(epoch + " " + zoneOffSet + " " + field,
+                        PreOperationUtils.getFromDateTime(expectedDateTime, field),
+                        operation.compute(LongNode.valueOf(epoch)));
+            }
+        }
+    }
+
+    @Test
+    public void testCalendarOperandChanges() {
+        final EpochOperation epochOperation = new EpochOperation("hour_of_day", "+25:00");
+        try {
+            epochOperation.compute(LongNode.valueOf(1496209177));
+            Assert.fail("Offset is not valid");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Operand doesnot represent a valid date", e.getMessage());
+        }
+        epochOperation.setZoneOffSet("+05:30");
+        Assert.assertEquals(11, epochOperation.compute(LongNode.valueOf(1496209177)));
+        epochOperation.setZoneOffSet(null);
+        Assert.assertEquals(5, epochOperation.compute(LongNode.valueOf(1496209177)));
+
+        // Patterns are parsed in the default time zone, so only the month is checked for them
+        final DateTimeOperation dateTimeOperation
+                = new DateTimeOperation("month_of_year", "+05:30", "dd/MM/yyyy HH:mm");
+        Assert.assertEquals(2, dateTimeOperation.compute(TextNode.valueOf("15/02/2024 12:00")));
+        dateTimeOperation.setPattern("yyyy-MM-dd HH:mm");
+        Assert.assertEquals(7, dateTimeOperation.compute(TextNode.valueOf("2024-07-15 12:00")));
+        dateTimeOperation.setPattern(null);
+        dateTimeOperation.setOperand("day_of_month");
+        Assert.assertEquals(1, dateTimeOperation.compute(TextNode.valueOf("2024-01-31T20:00:00Z")));
+    }
 }
@@ -0,0 +1,294 @@
+package io.appform.jsonrules;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.appform.jsonrules.expressions.array.InExpression;
+import io.appform.jsonrules.expressions.array.NotInExpression;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.composite.NotExpression;
+import io.appform.jsonrules.expressions.composite.OrExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.equality.NotEqualsExpression;
+import io.appform.jsonrules.expressions.meta.ExistsExpression;
+import io.appform.jsonrules.expressions.meta.NotExistsExpression;
+import io.appform.jsonrules.expressions.numeric.BetweenExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanExpression;
+import io.appform.jsonrules.expressions.preoperation.string.LengthOperation;
+import io.appform.jsonrules.expressions.string.MatchesExpression;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class ExpressionSimplifierTest {
+    private static final Expression TRUE = AndExpression.builder().build();
+    private static final Expression FALSE = OrExpression.builder().build();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testFlattensAndRemovesDuplicates() {
+        final Expression a = ExistsExpression.builder().path("$.a").build();
+        final Expression b = MatchesExpression.builder().path("$.b").value("x.*").defaultResult(false).build();
+        final Expression c = ExistsExpression.builder().path("$.c").build();
+        Assert.assertEquals(AndExpression.builder().child(a).child(b).child(c).build(),
+                            AndExpression.builder()
+                                    .child(a)
+                                    .child(AndExpression.builder().child(b).child(a).build())
+                                    .child(AndExpression.builder().child(c).build())
+                                    .build()
+                                    .simplify());
+    }
+
+    @Test
+    public void testMergesEqualsIntoIn() {
+        final Expression simplified = OrExpression.builder()
+                .child(EqualsExpression.builder().path("$.a").value("x").build())
+                .child(EqualsExpression.builder().path("$.a").value(3).build())
+                .child(ExistsExpression.builder().path("$.b").build())
+                .child(InExpression.builder().path("$.a").value("y").value(false).build())
+                .child(EqualsExpression.builder().path("$.a").value(4).build())
+                .build()
+                .simplify();
+        // Numbers are merged separately, comparing numbers with other values fails
+        Assert.assertEquals(OrExpression.builder()
+                                    .child(InExpression.builder().path("$.a").value("x").value("y").value(false)
+                                                   .build())
+                                    .child(InExpression.builder().path("$.a").value(3).value(4).build())
+                                    .child(ExistsExpression.builder().path("$.b").build())
+                                    .build(),
+                            simplified);
+    }
+
+    @Test
+    public void testKeepsChecksThatDifferInDefaultOrValueHandling() {
+        final Expression differentDefaults = OrExpression.builder()
+                .child(EqualsExpression.builder().path("$.a").value(1).build())
+                .child(EqualsExpression.builder().path("$.a").value(2).defaultResult(true).build())
+                .build();
+        Assert.assertEquals(differentDefaults, differentDefaults.simplify());
+        // Boolean nodes compare with the text "true" differently in collections
+        final Expression trueText = OrExpression.builder()
+                .child(EqualsExpression.builder().path("$.a").value("true").build())
+                .child(EqualsExpression.builder().path("$.a").value("x").build())
+                .build();
+        Assert.assertEquals(trueText, trueText.simplify());
+        final Expression preoperation = OrExpression.builder()
+                .child(EqualsExpression.builder().path("$.a").value(1).preoperation(new LengthOperation()).build())
+                .child(EqualsExpression.builder().path("$.a").value(2).build())
+                .build();
+        Assert.assertEquals(preoperation, preoperation.simplify());
+    }
+
+    @Test
+    public void testMergesBoundsIntoBetween() {
+        Assert.assertEquals(BetweenExpression.builder().path("$.a").lowerbound(10).upperBound(20.5)
+                                    .includeUpperBound(true).build(),
+                            AndExpression.builder()
+                                    .child(LessThanEqualsExpression.builder().path("$.a").value(20.5).build())
+                                    .child(GreaterThanExpression.builder().path("$.a").value(10).build())
+                                    .build()
+                                    .simplify());
+        // Negative zero is less than zero for the bounds, but not for between
+        final Expression zero = AndExpression.builder()
+                .child(GreaterThanEqualsExpression.builder().path("$.a").value(0).build())
+                .child(LessThanExpression.builder().path("$.a").value(10).build())
+                .build();
+        Assert.assertEquals(zero, zero.simplify());
+    }
+
+    @Test
+    public void testFoldsContradictions() {
+        Assert.assertEquals(FALSE, AndExpression.builder()
+                .child(GreaterThanExpression.builder().path("$.a").value(10).build())
+                .child(LessThanExpression.builder().path("$.a").value(5).build())
+                .child(ExistsExpression.builder().path("$.b").build())
+                .build()
+                .simplify());
+        Assert.assertEquals(TRUE, OrExpression.builder()
+                .child(ExistsExpression.builder().path("$.b").build())
+                .child(NotExpression.builder()
+                               .child(AndExpression.builder()
+                                              .child(GreaterThanEqualsExpression.builder().path("$.a").value(10)
+                                                             .build())
+                                              .child(LessThanEqualsExpression.builder().path("$.a").value(5).build())
+                                              .build())
+                               .child(InExpression.builder().path("$.a").build())
+                               .build())
+                .build()
+                .simplify());
+        // Documents without the path match the default result, so the bounds aren't contradictory for them
+        Assert.assertTrue(AndExpression.builder()
+                                  .child(GreaterThanExpression.builder().path("$.a").value(10).defaultResult(true)
+                                                 .build())
+                                  .child(LessThanExpression.builder().path("$.a").value(5).defaultResult(true).build())
+                                  .build()
+                                  .simplify() instanceof BetweenExpression);
+    }
+
+    @Test
+    public void testPushesNotIntoChecks() {
+        Assert.assertEquals(NotEqualsExpression.builder().path("$.a").value(1).defaultResult(false).build(),
+                            NotExpression.builder()
+                                    .child(EqualsExpression.builder().path("$.a").value(1).defaultResult(true).build())
+                                    .build()
+                                    .simplify());
+        Assert.assertEquals(NotInExpression.builder().path("$.a").value(1).value(2).build(),
+                            NotExpression.builder()
+                                    .child(EqualsExpression.builder().path("$.a").value(1).build())
+                                    .child(EqualsExpression.builder().path("$.a").value(2).build())
+                                    .build()
+                                    .simplify());
+        final Expression matches = MatchesExpression.builder().path("$.b").value("x.*").defaultResult(false).build();
+        Assert.assertEquals(matches, NotExpression.builder()
+                .child(NotExpression.builder().child(matches).build())
+                .build()
+                .simplify());
+        Assert.assertEquals(NotExpression.builder().child(matches).build(),
+                            NotExpression.builder().child(matches).build().simplify());
+        Assert.assertEquals(NotExistsExpression.builder().path("$.a").build(), NotExpression.builder()
+                .child(ExistsExpression.builder().path("$.a").build())
+                .build()
+                .simplify());
+    }
+
+    @Test
+    public void testSimplifiedExpressionsMatchEvaluation() {
+        final Random random = new Random(7);
+        final List<JsonNode> documents = documents();
+        for (int i = 0; i < 3000; i++) {
+            final Expression expression = randomExpression(random, 2);
+            final Expression simplified = expression.simplify();
+            for (JsonNode document : documents) {
+                final Object expected = outcome(() -> expression.evaluate(document));
+                // Failing subtrees may be folded away, so only successful evaluations must match
+                if (expected instanceof Boolean) {
+                    Assert.assertEquals(expression + " as " + simplified + " on " + document,
+                                        expected, outcome(() -> simplified.evaluate(document)));
+                }
+            }
+        }
+    }
+
+    private Expression randomExpression(Random random, int depth) {
+        // Composites at the top, so that most expressions have checks to merge
+        final int kind = depth > 1 ? 10 + random.nextInt(4) : random.nextInt(depth > 0 ? 14 : 10);
+        final String path = random.nextInt(4) == 0 ? "$.b" : "$.a";
+        final boolean defaultResult = random.nextBoolean();
+        switch (kind) {
+            case 0:
+                return EqualsExpression.builder().path(path).value(randomLiteral(random))
+                        .defaultResult(defaultResult).build();
+            case 1:
+                return NotEqualsExpression.builder().path(path).value(randomLiteral(random))
+                        .defaultResult(defaultResult).build();
+            case 2:
+                return InExpression.builder().path(path).values(randomLiterals(random))
+                        .defaultResult(defaultResult).build();
+            case 3:
+                return NotInExpression.builder().path(path).values(randomLiterals(random))
+                        .defaultResult(defaultResult).build();
+            case 4:
+                return GreaterThanExpression.builder().path(path).value(randomBound(random))
+                        .defaultResult(defaultResult).build();
+            case 5:
+                return GreaterThanEqualsExpression.builder().path(path).value(randomBound(random))
+                        .defaultResult(defaultResult).build();
+            case 6:
+                return LessThanExpression.builder().path(path).value(randomBound(random))
+                        .defaultResult(defaultResult).build();
+            case 7:
+                return LessThanEqualsExpression.builder().path(path).value(randomBound(random))
+                        .defaultResult(defaultResult).build();
+            case 8:
+                final ExistsExpression exists = ExistsExpression.builder().path(path).build();
+                exists.setDefaultResult(defaultResult);
+                return exists;
+            case 9:
+                return NotExistsExpression.builder().path(path).build();
+            default:
+                final List<Expression> children = new ArrayList<>();
+                final int size = random.nextInt(5);
+                for (int i = 0; i < size; i++) {
+                    children.add(randomExpression(random, depth - 1));
+                }
+                return kind == 10
+                       ? new AndExpression(children)
+                       : kind == 11 ? new OrExpression(children) : new NotExpression(children);
+        }
+    }
+
+    private static Object randomLiteral(Random random) {
+        final Object[] literals = {0, 1, 2, 10, 1.5, -0.0, 5L, "x", "1", "true", "false", "True", true, false, null};
+        return literals[random.nextInt(literals.length)];
+    }
+
+    private static List<Object> randomLiterals(Random random) {
+        final List<Object> literals = new ArrayList<>();
+        final int size = random.nextInt(4);
+        for (int i = 0; i < size; i++) {
+            final Object literal = randomLiteral(random);
+            if (null != literal) {
+                literals.add(literal);
+            }
+        }
+        return literals;
+    }
+
+    private static Number randomBound(Random random) {
+        final Number[] bounds = {0, 0.0, -0.0, 1, 2, 5, 10, 10.5, -3, Long.MAX_VALUE, Double.NaN};
+        return bounds[random.nextInt(bounds.length)];
+    }
+
+    // Every kind of value at $.a, including a missing one, next to a few values at $.b
+    private List<JsonNode> documents() {
+        final List<JsonNode> values = new ArrayList<>();
+        values.add(null);
+        values.add(mapper.getNodeFactory().nullNode());
+        values.add(mapper.getNodeFactory().booleanNode(true));
+        values.add(mapper.getNodeFactory().booleanNode(false));
+        for (double value : new double[]{-0.0, 0.0, 1.5, 5.0, 10.5, Double.NaN}) {
+            values.add(mapper.getNodeFactory().numberNode(value));
+        }
+        for (long value : new long[]{-3, 0, 1, 2, 5, 10, Long.MAX_VALUE}) {
+            values.add(mapper.getNodeFactory().numberNode(value));
+        }
+        for (String value : new String[]{"", "x", "1", "true", "True", "false"}) {
+            values.add(mapper.getNodeFactory().textNode(value));
+        }
+        values.add(mapper.createArrayNode().add(1));
+        final List<JsonNode> documents = new ArrayList<>();
+        for (JsonNode a : values) {
+            for (JsonNode b : Arrays.asList(values.get(0), values.get(12), values.get(19))) {
+                final ObjectNode document = mapper.createObjectNode();
+                if (null != a) {
+                    document.set("a", a);
+                }
+                if (null != b) {
+                    document.set("b", b);
+                }
+                documents.add(document);
+            }
+        }
+        return documents;
+    }
+
+    private static Object outcome(Evaluation evaluation) {
+        try {
+            return evaluation.evaluate();
+        } catch (Exception e) {
+            return e.getClass();
+        }
+    }
+
+    private interface Evaluation {
+        boolean evaluate();
+    }
+}
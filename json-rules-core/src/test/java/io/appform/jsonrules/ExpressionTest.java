@@ -20,20 +20,48 @@ package io.appform.jsonrules;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Sets;
+import com.sun.management.ThreadMXBean;
 import io.appform.jsonrules.expressions.array.InExpression;
 import io.appform.jsonrules.expressions.array.NotInExpression;
 import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.composite.CompositeExpression;
 import io.appform.jsonrules.expressions.composite.NotExpression;
 import io.appform.jsonrules.expressions.composite.OrExpression;
+import io.appform.jsonrules.expressions.JsonPathBasedExpression;
 import io.appform.jsonrules.expressions.equality.EqualsExpression;
 import io.appform.jsonrules.expressions.equality.NotEqualsExpression;
 import io.appform.jsonrules.expressions.meta.ExistsExpression;
 import io.appform.jsonrules.expressions.meta.NotExistsExpression;
+import io.appform.jsonrules.config.JsonRulesConfiguration;
 import io.appform.jsonrules.expressions.numeric.*;
+import io.appform.jsonrules.expressions.preoperation.PreOperation;
+import io.appform.jsonrules.expressions.preoperation.PreOperationType;
+import io.appform.jsonrules.expressions.preoperation.ResultType;
+import io.appform.jsonrules.expressions.preoperation.array.SizeOperation;
+import io.appform.jsonrules.expressions.preoperation.date.DateTimeOperation;
+import io.appform.jsonrules.expressions.preoperation.date.DiffFromCurrentEpochOperation;
+import io.appform.jsonrules.expressions.preoperation.date.EpochOperation;
+import io.appform.jsonrules.expressions.preoperation.numeric.*;
+import io.appform.jsonrules.expressions.preoperation.string.LengthOperation;
+import io.appform.jsonrules.expressions.preoperation.string.SubStringOperation;
+import io.appform.jsonrules.expressions.string.MatchesExpression;
+import io.appform.jsonrules.expressions.string.StartsWithExpression;
+import io.appform.jsonrules.expressions.string.StringJsonPathBasedExpression;
+import org.junit.After;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
 public class ExpressionTest {
 
     private ExpressionEvaluationContext context;
@@ -46,6 +74,11 @@ public class ExpressionTest {
         context = ExpressionEvaluationContext.builder().node(node).build();
     }
 
+    @After
+    public void tearDown() {
+        JsonRulesConfiguration.enableNativeResolutionForSimplePaths(false);
+    }
+
     @Test
     public void testEqualsExpression() throws Exception {
         Assert.assertTrue(EqualsExpression.builder()
@@ -499,4 +532,294 @@ public class ExpressionTest {
                         .evaluate(context));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCompositeExpressionChildren() throws Exception {
+        final Expression deserialized = mapper.readValue(
+                "{ \"type\": \"and\", \"children\": [ "
+                        + "{ \"type\": \"equals\", \"path\": \"$.value\", \"value\": 20 }, "
+                        + "{ \"type\": \"not\", \"children\": [ { \"type\": \"exists\", \"path\": \"$.abcd\" } ] } ] }",
+                Expression.class);
+        Assert.assertTrue(deserialized.evaluate(context));
+        Assert.assertFalse(mapper.writeValueAsString(deserialized).contains("childArray"));
+        Assert.assertEquals(deserialized, mapper.readValue(mapper.writeValueAsString(deserialized), Expression.class));
+
+        final OrExpression or = OrExpression.builder()
+                .child(EqualsExpression.builder().path("$.value").value(10).build())
+                .build();
+        Assert.assertFalse(or.evaluate(context));
+        or.setChildren(Collections.singletonList(EqualsExpression.builder().path("$.value").value(20).build()));
+        Assert.assertTrue(or.evaluate(context));
+        or.setChildren(null);
+        Assert.assertFalse(or.evaluate(context));
+
+        Assert.assertTrue(AndExpression.builder().build().evaluate(context));
+        Assert.assertFalse(OrExpression.builder().build().evaluate(context));
+        Assert.assertTrue(NotExpression.builder().build().evaluate(context));
+
+        // Children can only be changed by setting new ones, which evaluation sees
+        try {
+            or.setChildren(new ArrayList<>());
+            or.getChildren().add(ExistsExpression.builder().path("$.value").build());
+            Assert.fail("Children are modified in place");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        Assert.assertFalse(or.evaluate(context));
+    }
+
+    @Test
+    public void testCompositeExpressionsEvaluatingChildLists() {
+        // Composites written against the list of children keep working
+        final CompositeExpression exactlyOne = new CompositeExpression(ExpressionType.or) {
+            @Override
+            protected boolean evaluate(ExpressionEvaluationContext context, List<Expression> children) {
+                return children.stream().filter(child -> child.evaluate(context)).count() == 1;
+            }
+
+            @Override
+            public <T> T accept(ExpressionVisitor<T> visitor, JsonNode node) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        exactlyOne.setChildren(Arrays.asList(ExistsExpression.builder().path("$.value").build(),
+                                             ExistsExpression.builder().path("$.abcd").build()));
+        Assert.assertTrue(exactlyOne.evaluate(context));
+        exactlyOne.setChildren(Arrays.asList(ExistsExpression.builder().path("$.value").build(),
+                                             ExistsExpression.builder().path("$.value").build()));
+        Assert.assertFalse(exactlyOne.evaluate(context));
+    }
+
+    @Test
+    public void testCompositeEvaluationDoesNotAllocate() {
+        final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof ThreadMXBean
+                                  && ((ThreadMXBean) threads).isThreadAllocatedMemorySupported());
+        final ThreadMXBean allocations = (ThreadMXBean) threads;
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        final Expression expression = compositeTree(6);
+        final long threadId = Thread.currentThread().getId();
+        final int evaluations = 100_000;
+        boolean result = false;
+        for (int i = 0; i < evaluations; i++) {
+            result ^= expression.evaluate(context);
+        }
+        final long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < evaluations; i++) {
+            result ^= expression.evaluate(context);
+        }
+        final long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+        // Allows for the bytes allocated by reading the counter, far below a byte per evaluation
+        Assert.assertTrue(allocated + " bytes allocated", allocated < evaluations);
+        Assert.assertFalse(result);
+    }
+
+    // Composites without leaves, alternating operators so that every level both short-circuits and evaluates all of
+    // its children
+    private static Expression compositeTree(int depth) {
+        if (depth == 0) {
+            return AndExpression.builder().build();
+        }
+        switch (depth % 3) {
+            case 0:
+                return AndExpression.builder()
+                        .child(compositeTree(depth - 1))
+                        .child(NotExpression.builder().child(OrExpression.builder().build()).build())
+                        .child(compositeTree(depth - 1))
+                        .build();
+            case 1:
+                return OrExpression.builder()
+                        .child(OrExpression.builder().build())
+                        .child(compositeTree(depth - 1))
+                        .child(compositeTree(depth - 1))
+                        .build();
+            default:
+                return NotExpression.builder()
+                        .child(OrExpression.builder().build())
+                        .child(NotExpression.builder().child(compositeTree(depth - 1)).build())
+                        .build();
+        }
+    }
+
+    @Test
+    public void testValuePathComparisons() throws Exception {
+        final JsonNode node = mapper.readTree("{ \"a\": 20, \"b\": 30, \"f\": 20.5, \"s\": \"Hello\", "
+                + "\"t\": \"Hel.*\", \"arr\": [20, 30], \"nested\": { \"v\": 30 }, \"vals\": [20, 40], "
+                + "\"kid\": null }");
+        for (boolean nativeResolution : new boolean[]{false, true}) {
+            JsonRulesConfiguration.enableNativeResolutionForSimplePaths(nativeResolution);
+            valuePathExpressions().forEach((expression, expected) ->
+                    Assert.assertEquals(expression + " with native resolution " + nativeResolution,
+                            expected, expression.evaluate(node)));
+        }
+    }
+
+    @Test
+    public void testComputedPreoperationResults() throws Exception {
+        final JsonNode node = mapper.readTree("{ \"i\": 20, \"n\": -7, \"f\": 20.5, \"big\": 9223372036854775807, "
+                + "\"text\": \"12.5\", \"word\": \"abc\", \"bool\": true, \"kid\": null, \"v\": 23, "
+                + "\"vf\": 10.25, \"arr\": [1, 2, 3], \"date\": \"2024-01-31T10:15:30Z\", "
+                + "\"epoch\": 1706696130000 }");
+        final Map<OptionKeys, Object> options = Collections.singletonMap(OptionKeys.SYSTEM_TIME, 1706696130023L);
+        final PreOperation<?>[] preoperations = {
+                new AddOperation(3), new AddOperation(2.5), new SubtractOperation(-7L), new MultiplyOperation(0.5),
+                new DivideOperation(3), new DivideOperation(0), new DivideOperation(0.5), new ModuloOperation(6),
+                new ModuloOperation(2.5), new ModuloOperation(0), new SizeOperation(), new LengthOperation(),
+                SubStringOperation.builder().beginIndex(1).endIndex(3).build(),
+                SubStringOperation.builder().beginIndex(5).suppressExceptions(true).build(),
+                new DateTimeOperation("day_of_month", "+05:30"), new EpochOperation("hour_of_day", null),
+                DiffFromCurrentEpochOperation.builder().build()
+        };
+        final List<Function<PreOperation<?>, Expression>> expressions = Arrays.asList(
+                preoperation -> GreaterThanExpression.builder().value(23).preoperation(preoperation).build(),
+                preoperation -> GreaterThanEqualsExpression.builder().value(23.5).preoperation(preoperation).build(),
+                preoperation -> LessThanExpression.builder().value(-4).preoperation(preoperation).build(),
+                preoperation -> LessThanEqualsExpression.builder().value(10.25).preoperation(preoperation).build(),
+                preoperation -> GreaterThanExpression.builder()
+                        .value("$.v").extractValueFromPath(true).preoperation(preoperation).build(),
+                preoperation -> LessThanExpression.builder()
+                        .value("$.vf").extractValueFromPath(true).preoperation(preoperation).build(),
+                preoperation -> BetweenExpression.builder()
+                        .lowerbound(-4).upperBound(23).includeLowerBound(true).preoperation(preoperation).build(),
+                preoperation -> BetweenExpression.builder()
+                        .lowerbound(6.25).upperBound(10.25).includeUpperBound(true).preoperation(preoperation).build(),
+                preoperation -> EqualsExpression.builder().value(3).preoperation(preoperation).build(),
+                preoperation -> EqualsExpression.builder().value(10.25).preoperation(preoperation).build(),
+                preoperation -> EqualsExpression.builder().value("bc").preoperation(preoperation).build(),
+                preoperation -> EqualsExpression.builder()
+                        .value("$.v").extractValueFromPath(true).preoperation(preoperation).build(),
+                preoperation -> NotEqualsExpression.builder().value(23).preoperation(preoperation).build(),
+                preoperation -> NotEqualsExpression.builder().value("bc").preoperation(preoperation).build(),
+                preoperation -> StartsWithExpression.builder()
+                        .value("B").ignoreCase(true).defaultResult(false).preoperation(preoperation).build(),
+                preoperation -> InExpression.builder().value(3).value("bc").preoperation(preoperation).build());
+        for (String path : new String[]{
+                "$.i", "$.n", "$.f", "$.big", "$.text", "$.word", "$.bool", "$.kid", "$.arr", "$.date", "$.epoch"}) {
+            for (PreOperation<?> preoperation : preoperations) {
+                // Computes objects only, so its results are converted to nodes and evaluated as before
+                final PreOperation<Object> untyped = new PreOperation<Object>(preoperation.getOperation()) {
+                    @Override
+                    public Object compute(ExpressionEvaluationContext context) {
+                        return preoperation.compute(context);
+                    }
+                };
+                for (Function<PreOperation<?>, Expression> factory : expressions) {
+                    final JsonPathBasedExpression expression = (JsonPathBasedExpression) factory.apply(preoperation);
+                    expression.setPath(path);
+                    final JsonPathBasedExpression expected = (JsonPathBasedExpression) factory.apply(untyped);
+                    expected.setPath(path);
+                    Assert.assertEquals(expression.toString(),
+                            outcome(expected, node, options), outcome(expression, node, options));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNumericLiteralChanges() throws Exception {
+        final GreaterThanExpression greaterThan = GreaterThanExpression.builder().path("$.value").value(10).build();
+        Assert.assertTrue(greaterThan.evaluate(context));
+        greaterThan.setValue(20.5);
+        Assert.assertFalse(greaterThan.evaluate(context));
+        greaterThan.setValue("20");
+        try {
+            greaterThan.evaluate(context);
+            Assert.fail("Non numeric values can't be compared");
+        } catch (ClassCastException e) {
+            // expected
+        }
+
+        final BetweenExpression between = BetweenExpression.builder()
+                .path("$.v3").lowerbound(20).upperBound(21).build();
+        Assert.assertTrue(between.evaluate(context));
+        between.setUpperBound(20.001);
+        Assert.assertFalse(between.evaluate(context));
+        between.setIncludeUpperBound(true);
+        Assert.assertTrue(between.evaluate(context));
+        between.setLowerBound(20.001);
+        Assert.assertFalse(between.evaluate(context));
+        between.setIncludeLowerBound(true);
+        Assert.assertTrue(between.evaluate(context));
+
+        final LessThanEqualsExpression lessThanEquals = LessThanEqualsExpression.builder()
+                .path("$.v3").value(20.001).build();
+        Assert.assertTrue(lessThanEquals.evaluate(context));
+        lessThanEquals.setPreoperation(new MultiplyOperation(2));
+        Assert.assertFalse(lessThanEquals.evaluate(context));
+        lessThanEquals.setValue(40.002);
+        Assert.assertTrue(lessThanEquals.evaluate(context));
+    }
+
+    @Test
+    public void testTypedPreoperationsComputingObjectsOnly() throws Exception {
+        final JsonNode node = mapper.readTree("{ \"word\": \"abc\", \"f\": 20.5 }");
+        // Declare typed results without computing them as such, the defaults convert what compute returns
+        final Expression longer = GreaterThanExpression.builder().path("$.word").value(2)
+                .preoperation(typed(ResultType.INTEGRAL, value -> value.asText().length())).build();
+        final Expression scaled = EqualsExpression.builder().path("$.f").value(41.0)
+                .preoperation(typed(ResultType.FLOATING_POINT, value -> value.asDouble() * 2)).build();
+        final Expression upper = EqualsExpression.builder().path("$.word").value("ABC")
+                .preoperation(typed(ResultType.TEXT, value -> value.asText().toUpperCase())).build();
+        Assert.assertTrue(longer.evaluate(node));
+        Assert.assertTrue(scaled.evaluate(node));
+        Assert.assertTrue(upper.evaluate(node));
+    }
+
+    private static PreOperation<Object> typed(ResultType resultType, Function<JsonNode, Object> function) {
+        return new PreOperation<Object>(PreOperationType.length) {
+            @Override
+            public Object compute(ExpressionEvaluationContext context) {
+                return function.apply(context.getNode());
+            }
+
+            @Override
+            public ResultType resultType(JsonNode node) {
+                return resultType;
+            }
+        };
+    }
+
+    private static Object outcome(Expression expression, JsonNode node, Map<OptionKeys, Object> options) {
+        try {
+            return expression.evaluate(node, options);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static Map<Expression, Boolean> valuePathExpressions() {
+        final Map<Expression, Boolean> expressions = new LinkedHashMap<>();
+        expressions.put(valuePath(new GreaterThanExpression(), "$.b", "$.a"), true);
+        expressions.put(valuePath(new LessThanExpression(), "$.a", "$.nested.v"), true);
+        expressions.put(valuePath(new GreaterThanEqualsExpression(), "$.a", "$.arr[0]"), true);
+        expressions.put(valuePath(new LessThanExpression(), "$.a", "$.arr[-1]"), true);
+        expressions.put(valuePath(new LessThanExpression(), "$.a", "$.arr[5]"), false);
+        expressions.put(valuePath(new LessThanExpression(), "$.a", "$.missing"), false);
+        expressions.put(valuePath(new LessThanExpression(), "$.a", "$.s"), false);
+        expressions.put(valuePath(new LessThanExpression(), "$.a", "$.kid"), false);
+        expressions.put(valuePath(new GreaterThanExpression(), "$.f", "$['a']"), true);
+        expressions.put(valuePath(new GreaterThanExpression(), "$.a", "$.arr.length()"), true);
+        expressions.put(valuePath(new MatchesExpression(), "$.s", "$.t"), true);
+        expressions.put(valuePath(new StartsWithExpression(), "$.s", "$.missing"), false);
+        expressions.put(valuePath(new StartsWithExpression(), "$.s", "$.a"), false);
+        expressions.put(InExpression.builder().path("$.a").valuesPath("$.vals").extractValues(true).build(), true);
+        expressions.put(InExpression.builder().path("$.b").valuesPath("$.vals").extractValues(true).build(), false);
+        expressions.put(InExpression.builder().path("$.a").valuesPath("$.missing").extractValues(true).build(), false);
+        expressions.put(NotInExpression.builder().path("$.b").valuesPath("$.vals").extractValues(true).build(), true);
+        return expressions;
+    }
+
+    private static Expression valuePath(NumericJsonPathBasedExpression expression, String path, String valuePath) {
+        expression.setPath(path);
+        expression.setValue(valuePath);
+        expression.setExtractValueFromPath(true);
+        return expression;
+    }
+
+    private static Expression valuePath(StringJsonPathBasedExpression expression, String path, String valuePath) {
+        expression.setPath(path);
+        expression.setValue(valuePath);
+        expression.setExtractValueFromPath(true);
+        return expression;
+    }
+}
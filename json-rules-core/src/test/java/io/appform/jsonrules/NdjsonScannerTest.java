@@ -0,0 +1,111 @@
+package io.appform.jsonrules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.appform.jsonrules.compiler.CompiledRule;
+import io.appform.jsonrules.compiler.NdjsonScanner;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import io.appform.jsonrules.expressions.string.StartsWithExpression;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class NdjsonScannerTest {
+    private ObjectMapper mapper;
+    private Expression expression;
+    private CompiledRule rule;
+    private Path file;
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        mapper = new ObjectMapper();
+        expression = AndExpression.builder()
+                .child(GreaterThanExpression.builder().path("$.value").value(50).build())
+                .child(StartsWithExpression.builder().path("$.name").value("a").defaultResult(false).build())
+                .build();
+        rule = expression.compile();
+        file = Files.createTempFile("records", ".ndjson");
+        pool = new ForkJoinPool(3);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testScanMatchesLineByLineEvaluation() throws Exception {
+        final Random random = new Random(7);
+        final StringBuilder content = new StringBuilder();
+        final List<String> expected = new ArrayList<>();
+        int offset = 0;
+        for (int line = 1; line <= 3000; line++) {
+            final String record;
+            if (random.nextInt(20) == 0) {
+                record = "";
+            } else {
+                final StringBuilder name = new StringBuilder().append((char) ('a' + random.nextInt(3)));
+                // Some records longer than a chunk
+                for (int i = random.nextInt(100) == 0 ? 500 : random.nextInt(10); i > 0; i--) {
+                    name.append('é');
+                }
+                record = "{\"value\": " + random.nextInt(100) + ", \"name\": \"" + name + "\"}";
+                if (expression.evaluate(mapper.readTree(record))) {
+                    expected.add(line + ":" + offset);
+                }
+            }
+            final String separator = random.nextBoolean() ? "\r\n" : "\n";
+            final String text = record + (line == 3000 ? "" : separator);
+            content.append(text);
+            offset += text.getBytes(StandardCharsets.UTF_8).length;
+        }
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        Assert.assertFalse(expected.isEmpty());
+        for (int chunkSize : new int[]{1, 100, 1000, Integer.MAX_VALUE}) {
+            final NdjsonScanner scanner = NdjsonScanner.builder()
+                    .rule(rule)
+                    .pool(pool)
+                    .chunkSize(chunkSize)
+                    .build();
+            final List<String> actual = new ArrayList<>();
+            scanner.scan(file, (line, position) -> actual.add(line + ":" + position));
+            Assert.assertEquals("Chunks of " + chunkSize, expected, actual);
+            Assert.assertEquals(expected.size(), scanner.count(file));
+        }
+    }
+
+    @Test
+    public void testScanOfEmptyFileAndTrailingNewline() throws Exception {
+        final NdjsonScanner scanner = NdjsonScanner.builder().rule(rule).pool(pool).chunkSize(10).build();
+        Assert.assertEquals(0, scanner.count(file));
+        Files.write(file, "{\"value\": 60, \"name\": \"ab\"}\n\n{\"value\": 70, \"name\": \"a\"}\n"
+                .getBytes(StandardCharsets.UTF_8));
+        final List<String> actual = new ArrayList<>();
+        scanner.scan(file, (line, position) -> actual.add(line + ":" + position));
+        Assert.assertEquals(2, actual.size());
+        Assert.assertEquals("1:0", actual.get(0));
+        Assert.assertEquals("3:29", actual.get(1));
+    }
+
+    @Test(expected = IOException.class)
+    public void testScanOfInvalidRecord() throws Exception {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append(i == 700 ? "{\"value\": " : "{\"value\": 60, \"name\": \"a\"}").append('\n');
+        }
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        NdjsonScanner.builder().rule(rule).pool(pool).chunkSize(100).build().count(file);
+    }
+}
@@ -0,0 +1,134 @@
+package io.appform.jsonrules;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.jayway.jsonpath.PathNotFoundException;
+import io.appform.jsonrules.compiler.ReferencedPaths;
+import io.appform.jsonrules.compiler.RuleSet;
+import io.appform.jsonrules.expressions.array.ContainsAnyExpression;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.composite.OrExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.meta.ExistsExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import io.appform.jsonrules.utils.JsonPathUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReferencedPathsTest {
+    private static final String DOCUMENT = "{\"s\":\"x\",\"i\":2,\"b\":true,\"n\":null,\"e\":{},"
+            + "\"o\":{\"p\":1,\"q\":null,\"big\":{\"x\":[1,2,3]}},\"arr\":[1,{\"q\":1,\"r\":2},{\"q\":[3]},[4]],"
+            + "\"nested\":[[1],[2,3]],\"a b\":4,\"unread\":{\"large\":[1,2,3]}}";
+
+    private static final String[] PATHS = {
+            "$.s", "$.i", "$.n", "$.e", "$.e.x", "$.o.p", "$.o.q", "$.o.p.x", "$.o.big", "$.arr[0]", "$.arr[1].q",
+            "$.arr[2].q[0]", "$.arr[3][0]", "$.arr[-1]", "$.arr[-1][0]", "$.arr[9]", "$.arr[9].x", "$.arr.x",
+            "$.nested[1][1]", "$.nested[0][5]", "$['a b']", "$.missing", "$.missing[0]", "$.s.x", "$.i[0]"
+    };
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testPathsOfLeavesAndValuePaths() {
+        final Expression expression = AndExpression.builder()
+                .child(EqualsExpression.builder().path("$.user.name").value("$.owner").extractValueFromPath(true)
+                               .build())
+                .child(OrExpression.builder()
+                               .child(GreaterThanExpression.builder().path("$.user.age").value(18).build())
+                               .child(ContainsAnyExpression.builder().path("$.user.tags").valuesPath("$.tags")
+                                              .extractValues(true).build())
+                               .child(ExistsExpression.builder().path("$.user.name").build())
+                               .build())
+                .build();
+        final ReferencedPaths paths = expression.referencedPaths();
+        Assert.assertEquals(ImmutableList.of("$.user.name", "$.owner", "$.user.age", "$.user.tags", "$.tags"),
+                            new ArrayList<>(paths.getPaths()));
+        Assert.assertTrue(paths.isComplete());
+        Assert.assertFalse(paths.needsFullDocument());
+    }
+
+    @Test
+    public void testFullDocumentNeeded() {
+        final ReferencedPaths complexPath = ExistsExpression.builder().path("$..p").build().referencedPaths();
+        Assert.assertEquals(ImmutableSet.of("$..p"), complexPath.getPaths());
+        Assert.assertTrue(complexPath.isComplete());
+        Assert.assertTrue(complexPath.needsFullDocument());
+
+        final ReferencedPaths unknownType = AndExpression.builder()
+                .child(ExistsExpression.builder().path("$.a").build())
+                .child(new Expression(ExpressionType.exists) {
+                    @Override
+                    public boolean evaluate(ExpressionEvaluationContext context) {
+                        return true;
+                    }
+
+                    @Override
+                    public <T> T accept(ExpressionVisitor<T> visitor, JsonNode node) {
+                        throw new UnsupportedOperationException();
+                    }
+                })
+                .build()
+                .referencedPaths();
+        Assert.assertEquals(ImmutableSet.of("$.a"), unknownType.getPaths());
+        Assert.assertFalse(unknownType.isComplete());
+        Assert.assertTrue(unknownType.needsFullDocument());
+    }
+
+    @Test
+    public void testFilteredDocumentsReadLikeFullDocuments() throws Exception {
+        final JsonNode document = mapper.readTree(DOCUMENT);
+        final List<Expression> expressions = new ArrayList<>();
+        for (String path : PATHS) {
+            final ReferencedPaths paths = ExistsExpression.builder().path(path).build().referencedPaths();
+            Assert.assertEquals(path, read(path, document), read(path, filter(paths)));
+            expressions.add(ExistsExpression.builder().path(path).build());
+        }
+        final ReferencedPaths paths = ReferencedPaths.of(expressions);
+        final JsonNode filtered = filter(paths);
+        for (String path : PATHS) {
+            Assert.assertEquals(path, read(path, document), read(path, filtered));
+        }
+        Assert.assertFalse(filtered.has("unread"));
+        Assert.assertFalse(filtered.has("b"));
+    }
+
+    @Test
+    public void testFilteredDocumentsEvaluateLikeFullDocuments() throws Exception {
+        final RuleSet ruleSet = RuleSet.builder()
+                .rule("name", EqualsExpression.builder().path("$.user.name").value("bob").build())
+                .rule("adult", GreaterThanExpression.builder().path("$.user.age").value(18).build())
+                .rule("first", EqualsExpression.builder().path("$.orders[1].id").value(7).build())
+                .build();
+        final ReferencedPaths paths = ruleSet.getReferencedPaths();
+        final String document = "{\"id\":\"e-1\",\"user\":{\"name\":\"bob\",\"age\":30,\"address\":{\"city\":\"x\"}},"
+                + "\"orders\":[{\"id\":3,\"items\":[1,2]},{\"id\":7,\"items\":[3]}],\"payload\":\"...\"}";
+        final JsonNode filtered = mapper.readTree(paths.filter(mapper.getFactory().createParser(document)));
+        Assert.assertEquals(ruleSet.evaluate(mapper.readTree(document)), ruleSet.evaluate(filtered));
+        Assert.assertEquals(3, ruleSet.evaluate(filtered).cardinality());
+        // Arrays read at an index are kept in full
+        Assert.assertEquals(mapper.readTree("{\"user\":{\"name\":\"bob\",\"age\":30},"
+                                                    + "\"orders\":[{\"id\":3,\"items\":[1,2]},{\"id\":7,\"items\":[3]}]}"),
+                            filtered);
+    }
+
+    private JsonNode filter(ReferencedPaths paths) throws IOException {
+        final JsonNode filtered = mapper.readTree(paths.filter(mapper.getFactory().createParser(DOCUMENT)));
+        // Documents without any of the paths are left out entirely
+        return null == filtered ? MissingNode.getInstance() : filtered;
+    }
+
+    private static Object read(String path, JsonNode node) {
+        try {
+            return JsonPathUtils.read(node, path);
+        } catch (PathNotFoundException e) {
+            return PathNotFoundException.class;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package io.appform.jsonrules;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.appform.jsonrules.compiler.CompiledRule;
+import io.appform.jsonrules.compiler.ResultCacheStatistics;
+import io.appform.jsonrules.compiler.RuleSet;
+import io.appform.jsonrules.expressions.array.ContainsAnyExpression;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanExpression;
+import io.appform.jsonrules.expressions.preoperation.date.DiffFromCurrentEpochOperation;
+import io.appform.jsonrules.expressions.string.MatchesExpression;
+import io.appform.jsonrules.utils.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class ResultCacheTest {
+    private static final String[] RULES = {
+            "/simple.rule", "/simple_rule_with_default.rule", "/complex.rule", "/notExists.rule",
+            "/emptyExpression.rule", "/notEmptyExpression.rule", "/matchesExpression.rule",
+            "/containsAnyExpression.rule", "/containsAllExpression.rule", "/extractPathExpression.rule",
+            "/subStringOperation.rule", "/lengthOperation.rule", "/moduloOperation.rule", "/sizeOperation.rule",
+            "/diffFromEpochOperation.rule"
+    };
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testDocumentsDifferingInUnreadFieldsShareResults() throws Exception {
+        final CompiledRule rule = AndExpression.builder()
+                .child(EqualsExpression.builder().path("$.user.country").value("IN").build())
+                .child(MatchesExpression.builder().path("$.user.email").value("$.domain")
+                               .extractValueFromPath(true).defaultResult(false).build())
+                .build()
+                .compileWithResultCache(100);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(rule.evaluate(document(i, "IN", ".*@corp.com")));
+            Assert.assertFalse(rule.evaluate(document(i, "US", ".*@corp.com")));
+            // The value path is part of the fingerprint
+            Assert.assertFalse(rule.evaluate(document(i, "IN", ".*@other.com")));
+        }
+        final ResultCacheStatistics stats = rule.getResultCacheStatistics().get();
+        Assert.assertEquals(3, stats.getMissCount());
+        Assert.assertEquals(27, stats.getHitCount());
+        Assert.assertEquals(3, stats.getSize());
+        Assert.assertEquals(0.9, stats.hitRate(), 1e-9);
+        Assert.assertTrue(stats.getEstimatedBytes() > 0);
+    }
+
+    @Test
+    public void testCacheIsBounded() throws Exception {
+        final CompiledRule rule = EqualsExpression.builder().path("$.user.country").value("IN").build()
+                .compileWithResultCache(10);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertFalse(rule.evaluate(document(0, "C" + i, "")));
+        }
+        final ResultCacheStatistics stats = rule.getResultCacheStatistics().get();
+        Assert.assertTrue(stats.getSize() <= 10);
+        Assert.assertEquals(100 - stats.getSize(), stats.getEvictionCount());
+        Assert.assertEquals(10, stats.getMaximumSize());
+    }
+
+    @Test
+    public void testCachedValuesAreCopied() throws Exception {
+        final CompiledRule rule = ContainsAnyExpression.builder().path("$.tags").values(Collections.singleton("a"))
+                .defaultResult(false).build()
+                .compileWithResultCache(100);
+        final JsonNode document = mapper.readTree("{ \"tags\": [\"a\", \"b\"] }");
+        Assert.assertTrue(rule.evaluate(document));
+        ((ObjectNode) document).withArray("tags").remove(0);
+        Assert.assertFalse(rule.evaluate(document));
+        Assert.assertEquals(0, rule.getResultCacheStatistics().get().getHitCount());
+    }
+
+    @Test
+    public void testRulesReadingCurrentTimeAreNotCached() throws Exception {
+        final Expression recent = LessThanExpression.builder()
+                .path("$.time")
+                .value(1000)
+                .preoperation(DiffFromCurrentEpochOperation.builder().build())
+                .build();
+        final JsonNode document = mapper.readTree("{ \"time\": 1500000000000 }");
+        final Map<OptionKeys, Object> justAfter = Collections.singletonMap(OptionKeys.SYSTEM_TIME, 1500000000500L);
+        final Map<OptionKeys, Object> later = Collections.singletonMap(OptionKeys.SYSTEM_TIME, 1500000005000L);
+
+        final CompiledRule rule = recent.compileWithResultCache(100);
+        Assert.assertFalse(rule.getResultCacheStatistics().isPresent());
+        Assert.assertTrue(rule.evaluate(document, justAfter));
+        Assert.assertFalse(rule.evaluate(document, later));
+
+        final RuleSet ruleSet = RuleSet.builder()
+                .rule("recent", recent)
+                .rule("present", EqualsExpression.builder().path("$.time").value(1500000000000L).build())
+                .resultCache(100)
+                .build();
+        Assert.assertEquals(2, ruleSet.evaluate(document, justAfter).cardinality());
+        Assert.assertEquals(1, ruleSet.evaluate(document, later).cardinality());
+        Assert.assertEquals(1, ruleSet.getResultCacheStatistics().get().getHitCount());
+        Assert.assertFalse(RuleSet.builder().rule("recent", recent).resultCache(100).build()
+                                   .getResultCacheStatistics()
+                                   .isPresent());
+    }
+
+    @Test
+    public void testRuleSetMatchesUncachedEvaluation() throws Exception {
+        final RuleSet.Builder builder = RuleSet.builder().resultCache(1000);
+        final List<Expression> expressions = new ArrayList<>();
+        for (String rule : RULES) {
+            final Expression expression = mapper.readValue(TestUtils.read(rule), Expression.class);
+            builder.rule(rule, expression);
+            expressions.add(expression);
+        }
+        final RuleSet ruleSet = builder.build();
+        final String[] strings = {"\"Hello\"", "\"Hello World\"", "\"\"", "null", "3"};
+        final String[] values = {"20", "11.5", "40", "-1"};
+        for (int i = 0; i < 3; i++) {
+            for (String string : strings) {
+                for (String value : values) {
+                    final JsonNode document = mapper.readTree(
+                            "{ \"requestId\": " + i + ", \"string\": " + string + ", \"value\": " + value
+                                    + ", \"s1\": \"Hello World\", \"s2\": " + string + ", \"values\": [1, 2, 3],"
+                                    + " \"felines\": [\"tiger\", \"lion\"], \"decimals\": [" + value + "] }");
+                    final BitSet expected = new BitSet();
+                    boolean failed = false;
+                    for (int rule = 0; rule < expressions.size(); rule++) {
+                        try {
+                            expected.set(rule, expressions.get(rule).evaluate(document));
+                        } catch (RuntimeException e) {
+                            failed = true;
+                        }
+                    }
+                    try {
+                        final BitSet matches = ruleSet.evaluate(document);
+                        Assert.assertFalse(document.toString(), failed);
+                        Assert.assertEquals(document.toString(), expected, matches);
+                        // Results handed out can be modified without affecting the cache
+                        matches.clear();
+                    } catch (RuntimeException e) {
+                        Assert.assertTrue(document.toString(), failed);
+                    }
+                }
+            }
+        }
+        final ResultCacheStatistics stats = ruleSet.getResultCacheStatistics().get();
+        // Failed evaluations are not cached
+        Assert.assertEquals(2 * stats.getSize(), stats.getHitCount());
+    }
+
+    private JsonNode document(int requestId, String country, String domain) {
+        final ObjectNode document = mapper.createObjectNode()
+                .put("requestId", requestId)
+                .put("timestamp", System.nanoTime())
+                .put("domain", domain);
+        document.putObject("user").put("country", country).put("email", "someone@corp.com");
+        return document;
+    }
+}
@@ -0,0 +1,242 @@
+package io.appform.jsonrules;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.appform.jsonrules.compiler.RuleSet;
+import io.appform.jsonrules.expressions.array.InExpression;
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.composite.OrExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.meta.ExistsExpression;
+import io.appform.jsonrules.expressions.numeric.BetweenExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanEqualsExpression;
+import io.appform.jsonrules.expressions.numeric.LessThanExpression;
+import io.appform.jsonrules.expressions.string.MatchesExpression;
+import io.appform.jsonrules.utils.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+public class RuleSetTest {
+    private static final String[] RULES = {
+            "/simple.rule", "/simple_rule_with_default.rule", "/complex.rule", "/notExists.rule",
+            "/emptyExpression.rule", "/notEmptyExpression.rule", "/matchesExpression.rule",
+            "/containsAnyExpression.rule", "/containsAllExpression.rule"
+    };
+
+    private static final Object[] VALUES = {
+            "x", "y", "1", "true", 1, 2, 2L, 2.5, 0.0, -0.0, 1e20, true, false, Long.MAX_VALUE, Long.MIN_VALUE
+    };
+    private static final Number[] NUMBERS = {
+            -1, 0, 1, 2, 2.5, 3.0, 0.0, -0.0, 1e20, -1e20, Long.MAX_VALUE, Long.MIN_VALUE, Double.MAX_VALUE
+    };
+    private static final String[] DOCUMENT_VALUES = {
+            "\"x\"", "\"1\"", "\"true\"", "1", "2", "2.0", "2.5", "3", "0", "0.0", "-0.0", "-1", "1e20", "true",
+            "false", "null", "{}", "[1]", "9223372036854775807", "-9223372036854775808", "1.7976931348623157E308"
+    };
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testRuleSetMatchesIndividualEvaluation() throws Exception {
+        final RuleSet.Builder builder = RuleSet.builder();
+        for (String rule : RULES) {
+            builder.rule(rule, mapper.readValue(TestUtils.read(rule), Expression.class));
+        }
+        final RuleSet ruleSet = builder.build();
+        Assert.assertEquals(RULES.length, ruleSet.size());
+
+        final List<JsonNode> documents = ImmutableList.of(
+                mapper.readTree("{ \"value\": 20, \"string\" : \"Hello\", \"kid\": null }"),
+                mapper.readTree("{ \"value\": 40, \"s1\": \"Hello World\", \"string\": \"\" }"),
+                mapper.readTree("{ \"value\": 11.5, \"arr\": [1, 2, 3], \"i\": 9 }"),
+                mapper.readTree("{}"));
+        for (JsonNode document : documents) {
+            final BitSet expected = new BitSet();
+            for (int i = 0; i < RULES.length; i++) {
+                final Expression expression = mapper.readValue(TestUtils.read(RULES[i]), Expression.class);
+                if (expression.evaluate(document)) {
+                    expected.set(i);
+                }
+            }
+            Assert.assertEquals(document.toString(), expected, ruleSet.evaluate(document));
+            Assert.assertEquals(document.toString(), expected, ruleSet.evaluate(mapper.writeValueAsBytes(document)));
+        }
+    }
+
+    @Test
+    public void testIds() throws Exception {
+        final RuleSet ruleSet = RuleSet.builder()
+                .rule("adult", GreaterThanExpression.builder().path("$.user.age").value(18).build())
+                .rules(ImmutableMap.of(
+                        "named", ExistsExpression.builder().path("$.user.name").build(),
+                        "bob", AndExpression.builder()
+                                .child(EqualsExpression.builder().path("$.user.name").value("bob").build())
+                                .child(GreaterThanExpression.builder().path("$.user.age").value(18).build())
+                                .build()))
+                .build();
+        Assert.assertEquals(ImmutableList.of("adult", "named", "bob"), ruleSet.getIds());
+        Assert.assertEquals(2, ruleSet.indexOf("bob"));
+        Assert.assertEquals(-1, ruleSet.indexOf("unknown"));
+        Assert.assertEquals("named", ruleSet.getId(1));
+
+        final BitSet matches = ruleSet.evaluate(mapper.readTree("{ \"user\": { \"name\": \"alice\", \"age\": 30 } }"));
+        Assert.assertEquals(ImmutableList.of("adult", "named"), ruleSet.ids(matches));
+        Assert.assertTrue(ruleSet.evaluate((JsonNode) null).isEmpty());
+        Assert.assertTrue(RuleSet.builder().build().evaluate(mapper.createObjectNode()).isEmpty());
+    }
+
+    @Test
+    public void testIndexedRulesMatchIndividualEvaluation() throws Exception {
+        final Random random = new Random(42);
+        final List<Expression> expressions = new ArrayList<>();
+        final RuleSet.Builder builder = RuleSet.builder();
+        for (int i = 0; i < 2000; i++) {
+            Expression expression = randomLeaf(random);
+            if (random.nextBoolean()) {
+                expression = AndExpression.builder()
+                        .child(expression)
+                        .child(random.nextBoolean() ? randomLeaf(random) : ExistsExpression.builder().path("$.b").build())
+                        .build();
+            } else if (random.nextInt(10) == 0) {
+                expression = OrExpression.builder()
+                        .child(expression)
+                        .child(randomLeaf(random))
+                        .build();
+            }
+            expressions.add(expression);
+            builder.rule(String.valueOf(i), expression);
+        }
+        final RuleSet ruleSet = builder.build();
+
+        final List<String> documents = new ArrayList<>();
+        documents.add("{}");
+        for (String a : DOCUMENT_VALUES) {
+            documents.add("{ \"a\": " + a + " }");
+            for (String b : new String[]{"1", "\"x\"", "2.5"}) {
+                documents.add("{ \"a\": " + a + ", \"b\": " + b + " }");
+            }
+        }
+        for (String document : documents) {
+            final JsonNode node = mapper.readTree(document);
+            final List<String> expected = new ArrayList<>();
+            final RuleSet.Builder passing = RuleSet.builder();
+            boolean failed = false;
+            for (int i = 0; i < expressions.size(); i++) {
+                try {
+                    if (expressions.get(i).evaluate(node)) {
+                        expected.add(String.valueOf(i));
+                    }
+                    passing.rule(String.valueOf(i), expressions.get(i));
+                } catch (RuntimeException e) {
+                    failed = true;
+                }
+            }
+            final RuleSet passingRuleSet = passing.build();
+            Assert.assertEquals(document, expected, passingRuleSet.ids(passingRuleSet.evaluate(node)));
+            if (failed) {
+                try {
+                    ruleSet.evaluate(node);
+                    Assert.fail(document);
+                } catch (RuntimeException e) {
+                    // Expected
+                }
+            } else {
+                Assert.assertEquals(document, expected, ruleSet.ids(ruleSet.evaluate(node)));
+            }
+        }
+    }
+
+    @Test
+    public void testSharedSubexpressionsEvaluatedOncePerDocument() {
+        final RuleSet.Builder builder = RuleSet.builder();
+        for (int i = 0; i < 100; i++) {
+            builder.rule(String.valueOf(i), AndExpression.builder()
+                    .child(InExpression.builder().path("$.country").values(ImmutableList.of("IN", "US")).build())
+                    .child(MatchesExpression.builder().path("$.email").value(".*@corp.com").defaultResult(false)
+                                   .build())
+                    .child(GreaterThanExpression.builder().path("$.age").value(i).build())
+                    .build());
+        }
+        final RuleSet ruleSet = builder.build();
+        final CountingTextNode email = new CountingTextNode("a@corp.com");
+        final ObjectNode node = mapper.createObjectNode().put("country", "IN").put("age", 50);
+        node.set("email", email);
+        Assert.assertEquals(50, ruleSet.evaluate(node).cardinality());
+        Assert.assertEquals(1, email.reads);
+        Assert.assertEquals(50, ruleSet.evaluate(node).cardinality());
+        Assert.assertEquals(2, email.reads);
+    }
+
+    private static Expression randomLeaf(Random random) {
+        final String path = random.nextInt(4) == 0 ? "$.b" : "$.a";
+        final boolean defaultResult = random.nextInt(4) == 0;
+        switch (random.nextInt(8)) {
+            case 0:
+                return EqualsExpression.builder().path(path).value(randomValue(random)).defaultResult(defaultResult)
+                        .build();
+            case 1:
+                return InExpression.builder().path(path).value(randomValue(random)).value(randomValue(random))
+                        .defaultResult(defaultResult).build();
+            case 2:
+                return GreaterThanExpression.builder().path(path).value(randomNumber(random))
+                        .defaultResult(defaultResult).build();
+            case 3:
+                return GreaterThanEqualsExpression.builder().path(path).value(randomNumber(random))
+                        .defaultResult(defaultResult).build();
+            case 4:
+                return LessThanExpression.builder().path(path).value(randomNumber(random))
+                        .defaultResult(defaultResult).build();
+            case 5:
+                return LessThanEqualsExpression.builder().path(path).value(randomNumber(random))
+                        .defaultResult(defaultResult).build();
+            case 6:
+                return BetweenExpression.builder().path(path)
+                        .lowerbound(randomNumber(random)).upperBound(randomNumber(random))
+                        .includeLowerBound(random.nextBoolean()).includeUpperBound(random.nextBoolean())
+                        .defaultResult(defaultResult).build();
+            default:
+                return ExistsExpression.builder().path(path).build();
+        }
+    }
+
+    private static Object randomValue(Random random) {
+        return VALUES[random.nextInt(VALUES.length)];
+    }
+
+    private static Number randomNumber(Random random) {
+        return NUMBERS[random.nextInt(NUMBERS.length)];
+    }
+
+    // Counts evaluations of the string expressions reading it
+    private static final class CountingTextNode extends TextNode {
+        private int reads;
+
+        private CountingTextNode(String value) {
+            super(value);
+        }
+
+        @Override
+        public String asText() {
+            reads++;
+            return super.asText();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateIds() {
+        RuleSet.builder()
+                .rule("a", ExistsExpression.builder().path("$.a").build())
+                .rule("a", ExistsExpression.builder().path("$.b").build());
+    }
+}
@@ -28,6 +28,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.regex.PatternSyntaxException;
+
 public class StringExpressionTest {
 
     private ExpressionEvaluationContext context;
@@ -140,6 +142,46 @@ public class StringExpressionTest {
                 .build()
                 .evaluate(context));
     }
+
+    @Test
+    public void testMatchesExpressionPatternChanges() throws Exception {
+        final MatchesExpression expression = MatchesExpression.builder()
+                .path("$.string")
+                .value("H\\D+")
+                .defaultResult(false)
+                .build();
+        Assert.assertTrue(expression.evaluate(context));
+        Assert.assertTrue(expression.evaluate(context));
+        expression.setValue("h\\D+");
+        Assert.assertFalse(expression.evaluate(context));
+        // Upper case escapes keep their meaning when ignoring case
+        expression.setIgnoreCase(true);
+        Assert.assertTrue(expression.evaluate(context));
+        expression.setValue("h\\d+");
+        Assert.assertFalse(expression.evaluate(context));
+
+        final MatchesExpression extracted = MatchesExpression.builder()
+                .path("$.s1")
+                .value("$.s3")
+                .ignoreCase(true)
+                .extractValueFromPath(true)
+                .defaultResult(false)
+                .build();
+        Assert.assertTrue(extracted.evaluate(mapper.readTree("{ \"s1\": \"HELLO world\", \"s3\": \"hello.*\" }")));
+        Assert.assertFalse(extracted.evaluate(mapper.readTree("{ \"s1\": \"HELLO world\", \"s3\": \"world.*\" }")));
+        extracted.setIgnoreCase(false);
+        Assert.assertFalse(extracted.evaluate(mapper.readTree("{ \"s1\": \"HELLO world\", \"s3\": \"hello.*\" }")));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void testMatchesExpressionInvalidPattern() {
+        MatchesExpression.builder()
+                .path("$.string")
+                .value("H(")
+                .defaultResult(false)
+                .build()
+                .evaluate(context);
+    }
     
     @Test
     public void testEndsWithExpression() throws Exception {
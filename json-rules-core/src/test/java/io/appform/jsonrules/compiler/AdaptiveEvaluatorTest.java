@@ -0,0 +1,149 @@
+package io.appform.jsonrules.compiler;
+
+import io.appform.jsonrules.expressions.composite.AndExpression;
+import io.appform.jsonrules.expressions.composite.NotExpression;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.meta.ExistsExpression;
+import io.appform.jsonrules.expressions.numeric.BetweenExpression;
+import io.appform.jsonrules.expressions.numeric.GreaterThanExpression;
+import io.appform.jsonrules.expressions.preoperation.string.LengthOperation;
+import io.appform.jsonrules.expressions.string.MatchesExpression;
+import io.appform.jsonrules.expressions.string.StartsWithExpression;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveEvaluatorTest {
+    private static final int TRAINING = AdaptiveEvaluator.SAMPLE_INTERVAL * AdaptiveEvaluator.REORDER_INTERVAL * 4;
+
+    // Time seen by the evaluators, advanced only by the children
+    private long now;
+
+    @Test
+    public void testDecidingChildrenMoveFirst() {
+        final Child alwaysTrue = new Child(true, 100);
+        final Child alwaysFalse = new Child(false, 300);
+        final AdaptiveEvaluator evaluator = and(new double[]{1, 1}, new boolean[]{true, true}, alwaysTrue, alwaysFalse);
+        Assert.assertArrayEquals(new int[]{0, 1}, evaluator.rankedOrder());
+        for (int i = 0; i < TRAINING; i++) {
+            Assert.assertFalse(evaluator.evaluate(null));
+        }
+        // Deciding the result is worth the extra cost
+        Assert.assertArrayEquals(new int[]{1, 0}, evaluator.rankedOrder());
+        alwaysTrue.evaluations = 0;
+        alwaysFalse.evaluations = 0;
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertFalse(evaluator.evaluate(null));
+        }
+        Assert.assertEquals(0, alwaysTrue.evaluations);
+        Assert.assertEquals(1000, alwaysFalse.evaluations);
+    }
+
+    @Test
+    public void testChildrenStartOrderedByStaticCost() {
+        final Child expensive = new Child(true, 0);
+        final AdaptiveEvaluator evaluator = and(new double[]{10, 1}, new boolean[]{true, true},
+                                                expensive, new Child(false, 0));
+        Assert.assertFalse(evaluator.evaluate(null));
+        Assert.assertEquals(0, expensive.evaluations);
+    }
+
+    @Test
+    public void testChildrenOnlyMoveWithinRunsOfMovableChildren() {
+        final Child fixed = new Child(true, 10);
+        final AdaptiveEvaluator evaluator = and(new double[]{1, 1, 1, 1}, new boolean[]{true, false, true, true},
+                                                new Child(true, 50), fixed, new Child(false, 500),
+                                                new Child(false, 20));
+        for (int i = 0; i < TRAINING; i++) {
+            Assert.assertFalse(evaluator.evaluate(null));
+        }
+        Assert.assertArrayEquals(new int[]{0, 1, 3, 2}, evaluator.rankedOrder());
+        Assert.assertEquals(TRAINING, fixed.evaluations);
+    }
+
+    @Test
+    public void testFailingChildrenAreNotOvertaken() {
+        final Child failing = new Child(true, 10) {
+            @Override
+            public boolean evaluate(EvaluationState state) {
+                super.evaluate(state);
+                throw new IllegalArgumentException();
+            }
+        };
+        final Child deciding = new Child(false, 1);
+        final AdaptiveEvaluator evaluator = and(new double[]{10, 10, 1}, new boolean[]{true, false, true},
+                                                new Child(true, 100), failing, deciding);
+        for (int i = 0; i < TRAINING; i++) {
+            try {
+                evaluator.evaluate(null);
+                Assert.fail("The failing child is evaluated before the deciding one");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        Assert.assertEquals(0, deciding.evaluations);
+    }
+
+    @Test
+    public void testChildrenThatNeverFail() {
+        Assert.assertTrue(AdaptiveEvaluator.neverFails(ExistsExpression.builder().path("$.a").build()));
+        Assert.assertTrue(AdaptiveEvaluator.neverFails(GreaterThanExpression.builder().path("$.a[0]").value(1)
+                                                               .build()));
+        Assert.assertTrue(AdaptiveEvaluator.neverFails(StartsWithExpression.builder().path("$.a").value("x")
+                                                               .defaultResult(false).build()));
+        Assert.assertTrue(AdaptiveEvaluator.neverFails(BetweenExpression.builder().path("$.a").lowerbound(1)
+                                                               .upperBound(2).build()));
+        Assert.assertTrue(AdaptiveEvaluator.neverFails(
+                NotExpression.builder()
+                        .child(AndExpression.builder()
+                                       .child(ExistsExpression.builder().path("$.a").build())
+                                       .child(GreaterThanExpression.builder().path("$.b").value(1.5).build())
+                                       .build())
+                        .build()));
+
+        // Comparisons that fail on some values, or could read any part of the document
+        Assert.assertFalse(AdaptiveEvaluator.neverFails(EqualsExpression.builder().path("$.a").value("x").build()));
+        Assert.assertFalse(AdaptiveEvaluator.neverFails(MatchesExpression.builder().path("$.a").value("(")
+                                                                .defaultResult(false).build()));
+        Assert.assertFalse(AdaptiveEvaluator.neverFails(GreaterThanExpression.builder().path("$.a").value("x")
+                                                                .build()));
+        Assert.assertFalse(AdaptiveEvaluator.neverFails(GreaterThanExpression.builder().path("$.a").value("$.b")
+                                                                .extractValueFromPath(true).build()));
+        Assert.assertFalse(AdaptiveEvaluator.neverFails(GreaterThanExpression.builder().path("$.a").value(5)
+                                                                .preoperation(LengthOperation.builder().build())
+                                                                .build()));
+        Assert.assertFalse(AdaptiveEvaluator.neverFails(ExistsExpression.builder().path("$..a").build()));
+        Assert.assertFalse(AdaptiveEvaluator.neverFails(BetweenExpression.builder().path("$.a").lowerbound(1)
+                                                                .build()));
+        Assert.assertFalse(AdaptiveEvaluator.neverFails(
+                AndExpression.builder()
+                        .child(ExistsExpression.builder().path("$.a").build())
+                        .child(EqualsExpression.builder().path("$.a").value(1).build())
+                        .build()));
+
+        Assert.assertTrue(AdaptiveEvaluator.canReorder(new boolean[]{false, true, true}));
+        Assert.assertFalse(AdaptiveEvaluator.canReorder(new boolean[]{true, false, true}));
+    }
+
+    private AdaptiveEvaluator and(double[] staticCosts, boolean[] movable, Evaluator... children) {
+        return new AdaptiveEvaluator(children, staticCosts, movable, false, false, () -> now);
+    }
+
+    // Child taking a fixed time to evaluate, counting its evaluations
+    private class Child implements Evaluator {
+        private final boolean result;
+        private final long nanos;
+        private int evaluations;
+
+        private Child(boolean result, long nanos) {
+            this.result = result;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public boolean evaluate(EvaluationState state) {
+            evaluations++;
+            now += nanos;
+            return result;
+        }
+    }
+}
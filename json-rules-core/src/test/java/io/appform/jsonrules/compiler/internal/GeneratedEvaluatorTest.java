@@ -0,0 +1,11 @@
+package io.appform.jsonrules.compiler.internal;
+
+import org.junit.Test;
+
+public class GeneratedEvaluatorTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstantsOfClassesNotGenerated() {
+        GeneratedEvaluator.constants(GeneratedEvaluatorTest.class);
+    }
+}
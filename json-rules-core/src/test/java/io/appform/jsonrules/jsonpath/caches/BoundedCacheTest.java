@@ -0,0 +1,80 @@
+package io.appform.jsonrules.jsonpath.caches;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testHitsAndMisses() {
+        final BoundedCache cache = new BoundedCache(10);
+        assertNull(cache.get("$.a"));
+        cache.put("$.a", JsonPath.compile("$.a"));
+        assertEquals("$['a']", cache.get("$.a").getPath());
+        assertEquals("$['a']", cache.get("$.a").getPath());
+
+        final CacheStatistics stats = cache.stats();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(0, stats.getEvictionCount());
+        assertEquals(1, stats.getSize());
+        assertEquals(10, stats.getMaximumSize());
+        assertEquals(2.0 / 3, stats.hitRate(), 0.0001);
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        final BoundedCache cache = new BoundedCache(100);
+        for (int i = 0; i < 1000; i++) {
+            final String path = "$.a" + i;
+            // Requested twice, so that it is admitted even when the cache is full
+            cache.get(path);
+            cache.get(path);
+            cache.put(path, JsonPath.compile(path));
+        }
+        final CacheStatistics stats = cache.stats();
+        assertTrue(stats.getSize() <= 100);
+        assertTrue(stats.getEvictionCount() >= 900);
+        assertEquals(0, stats.getRejectionCount());
+    }
+
+    @Test
+    public void testFrequentlyUsedPathsSurviveOneOffPaths() {
+        final BoundedCache cache = new BoundedCache(64);
+        for (int i = 0; i < 200; i++) {
+            cacheOnMiss(cache, "$.hot" + (i % 32));
+            cacheOnMiss(cache, "$.cold" + i);
+        }
+        assertTrue(cache.stats().getRejectionCount() > 0);
+        for (int i = 0; i < 32; i++) {
+            assertNotNull(cache.get("$.hot" + i));
+        }
+    }
+
+    @Test
+    public void testHitsAreNotCounted() {
+        final BoundedCache cache = new BoundedCache(10);
+        cacheOnMiss(cache, "$.a");
+        for (int i = 0; i < 100; i++) {
+            assertNotNull(cache.get("$.a"));
+        }
+        assertEquals(1, cache.missFrequency("$.a"));
+        assertNull(cache.get("$.b"));
+        assertNull(cache.get("$.b"));
+        assertEquals(2, cache.missFrequency("$.b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new BoundedCache(0);
+    }
+
+    // Same access pattern as JsonPath
+    private static void cacheOnMiss(BoundedCache cache, String path) {
+        if (null == cache.get(path)) {
+            cache.put(path, JsonPath.compile(path));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.appform.jsonrules.jsonpath.resolvers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.jayway.jsonpath.PathNotFoundException;
+import io.appform.jsonrules.config.JsonRulesConfiguration;
+import io.appform.jsonrules.expressions.equality.EqualsExpression;
+import io.appform.jsonrules.expressions.meta.ExistsExpression;
+import io.appform.jsonrules.utils.JsonPathUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SimplePathResolverTest {
+    private static final String[] SIMPLE_PATHS = {
+            "$", "$.s", "$.i", "$.d", "$.b", "$.n", "$.o", "$.o.p", "$.o.q", "$.o.p.x", "$.arr", "$.arr[0]",
+            "$.arr[1]", "$.arr[2].q", "$.arr[-1]", "$.arr[-1].q", "$.arr[-4]", "$.arr[7]", "$.arr[7].x",
+            "$.arr[-9].x", "$.nested[0][1]", "$.nested[1][5]", "$.s[0]", "$.o[0]", "$.n[0]", "$.n.x", "$.arr.x",
+            "$.i.x", "$.missing", "$.missing.x", "$['a b']", "$[\"o\"]['p']", "$.a-b", "$.a_b", "$.1a", "$['']",
+            "$['a.b']", "$[0]", "$.arr[01]", "$.arr[-0]"
+    };
+
+    private static final String[] COMPLEX_PATHS = {
+            "$..p", "$.arr[*]", "$.arr[0:2]", "$.arr[?(@ > 1)]", "$.arr.length()", "$['o','s']", "$.o.*", "s",
+            "$.s ", "$['a\\'b']", "$.", "$.arr[+1]", "$.arr[ 0 ]", "sum($.arr)"
+    };
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @After
+    public void tearDown() {
+        JsonRulesConfiguration.enableNativeResolutionForSimplePaths(false);
+    }
+
+    @Test
+    public void testSimplePathsResolveLikeJsonPath() throws Exception {
+        final JsonNode node = mapper.readTree("{\"s\":\"x\",\"i\":2,\"d\":1.5,\"b\":true,\"n\":null,"
+                + "\"o\":{\"p\":1,\"q\":null},\"arr\":[1,2,{\"q\":1}],\"nested\":[[1],[2,3]],"
+                + "\"a b\":4,\"a-b\":5,\"a_b\":6,\"1a\":7,\"\":8,\"a.b\":9}");
+        for (String path : SIMPLE_PATHS) {
+            final SimplePathResolver resolver = SimplePathResolver.compile(path)
+                    .orElseThrow(() -> new AssertionError("Not recognised as simple: " + path));
+            assertEquals(path, readWithJsonPath(path, node), read(resolver, node));
+            assertEquals(path, readWithJsonPath(path, MissingNode.getInstance()),
+                         read(resolver, MissingNode.getInstance()));
+        }
+    }
+
+    @Test
+    public void testReadIfPresentReportsMissingPathsWithoutFailing() throws Exception {
+        final JsonNode node = mapper.readTree("{\"s\":\"x\",\"n\":null,\"o\":{\"p\":1},\"arr\":[1,{\"q\":1}]}");
+        for (String path : SIMPLE_PATHS) {
+            final PathResolver[] resolvers = {SimplePathResolver.compile(path).get(), new JaywayPathResolver(path)};
+            for (PathResolver resolver : resolvers) {
+                final Object value = read(resolver, node);
+                assertEquals(path, value == PathNotFoundException.class ? PathResolver.MISSING : value,
+                             resolver.readIfPresent(node));
+            }
+        }
+    }
+
+    @Test
+    public void testComplexPathsAreNotSimple() {
+        for (String path : COMPLEX_PATHS) {
+            assertFalse(path, SimplePathResolver.compile(path).isPresent());
+        }
+        assertFalse(SimplePathResolver.compile(null).isPresent());
+        assertFalse(SimplePathResolver.compile("").isPresent());
+    }
+
+    @Test
+    public void testSelectionThroughConfiguration() {
+        assertTrue(JsonPathUtils.compile("$.a.b[0]") instanceof JaywayPathResolver);
+
+        JsonRulesConfiguration.enableNativeResolutionForSimplePaths(true);
+        assertTrue(JsonPathUtils.compile("$.a.b[0]") instanceof SimplePathResolver);
+        assertTrue(JsonPathUtils.compile("$.a[*].b") instanceof JaywayPathResolver);
+    }
+
+    @Test
+    public void testDefaultResultForMissingPaths() throws Exception {
+        JsonRulesConfiguration.enableNativeResolutionForSimplePaths(true);
+        final JsonNode node = mapper.readTree("{\"a\":{\"b\":[10, 20]}}");
+        assertTrue(EqualsExpression.builder().path("$.a.b[1]").value(20).build().evaluate(node));
+        assertTrue(EqualsExpression.builder().path("$.a.c").value(20).defaultResult(true).build().evaluate(node));
+        assertFalse(EqualsExpression.builder().path("$.a.c").value(20).build().evaluate(node));
+        assertTrue(EqualsExpression.builder().path("$.a.b[2].c").value(20).defaultResult(true).build()
+                           .compile()
+                           .evaluate(node));
+        // Out of range at the end of the path is a null value and not a missing path
+        assertFalse(EqualsExpression.builder().path("$.a.b[2]").value(20).defaultResult(true).build()
+                            .evaluate(node));
+        assertFalse(ExistsExpression.builder().path("$.a.b[2]").build().evaluate(node));
+    }
+
+    private static Object read(PathResolver resolver, JsonNode node) {
+        try {
+            return resolver.read(node);
+        } catch (PathNotFoundException e) {
+            return PathNotFoundException.class;
+        }
+    }
+
+    private static Object readWithJsonPath(String path, JsonNode node) {
+        try {
+            return JsonPathUtils.read(node, path);
+        } catch (PathNotFoundException e) {
+            return PathNotFoundException.class;
+        }
+    }
+}
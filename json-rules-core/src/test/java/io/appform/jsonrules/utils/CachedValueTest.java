@@ -0,0 +1,42 @@
+package io.appform.jsonrules.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Objects;
+
+public class CachedValueTest {
+
+    @Test
+    public void testValuesAreBuiltAgainForOtherKeys() {
+        final CachedValue<String, Length> cache = new CachedValue<>();
+        final Length first = cache.get("abc", Length::isOf, Length::new);
+        Assert.assertSame(first, cache.get("abc", Length::isOf, Length::new));
+        final Length second = cache.get("abcd", Length::isOf, Length::new);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(4, second.length);
+    }
+
+    @Test
+    public void testValuesAreBuiltAgainAfterReset() {
+        final CachedValue<String, Length> cache = new CachedValue<>();
+        final Length first = cache.get("abc", Length::new);
+        Assert.assertSame(first, cache.get("abcd", Length::new));
+        cache.reset();
+        Assert.assertEquals(4, cache.get("abcd", Length::new).length);
+    }
+
+    private static final class Length {
+        private final String text;
+        private final int length;
+
+        private Length(String text) {
+            this.text = text;
+            this.length = text.length();
+        }
+
+        private boolean isOf(String text) {
+            return Objects.equals(this.text, text);
+        }
+    }
+}